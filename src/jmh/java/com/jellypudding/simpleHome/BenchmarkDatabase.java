@@ -0,0 +1,73 @@
+package com.jellypudding.simpleHome;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Creates throwaway SQLite databases filled with generated homes for the benchmarks.
+ */
+final class BenchmarkDatabase {
+
+    static final int MAX_HOME_LIMIT = 100;
+    static final int HOMES_PER_PLAYER = 10;
+    static final String[] WORLDS = {"world", "world_nether", "world_the_end"};
+
+    private static final Logger LOGGER = Logger.getLogger("SimpleHome-Benchmark");
+
+    static {
+        // Keep per-operation log lines (e.g. limit changes) out of the measurements.
+        LOGGER.setLevel(Level.WARNING);
+    }
+
+    private BenchmarkDatabase() {
+    }
+
+    static DatabaseSettings settings() {
+        return new DatabaseSettings(4, 100_000, 4, "WAL", "NORMAL", -8000, 67108864, 5000,
+                true, 1000, 10, 0);
+    }
+
+    static DatabaseManager open(Path dataFolder) {
+        // Metrics stay enabled, as in production, so their overhead is part of the measurements.
+        return new DatabaseManager(LOGGER, dataFolder.toFile(), MAX_HOME_LIMIT, settings(), new Metrics(true, () -> false));
+    }
+
+    /**
+     * Inserts homeCount homes spread over homeCount / HOMES_PER_PLAYER players and returns those players.
+     */
+    static UUID[] populate(DatabaseManager databaseManager, int homeCount) {
+        int playerCount = Math.max(1, homeCount / HOMES_PER_PLAYER);
+        UUID[] players = new UUID[playerCount];
+        WriteBehindQueue queue = databaseManager.getWriteQueue();
+        CompletableFuture<HomeWriteResult> last = CompletableFuture.completedFuture(HomeWriteResult.CREATED);
+        for (int p = 0; p < playerCount; p++) {
+            UUID uuid = new UUID(0x5348L, p + 1L);
+            players[p] = uuid;
+            for (int h = 0; h < HOMES_PER_PLAYER && p * HOMES_PER_PLAYER + h < homeCount; h++) {
+                last = queue.enqueueSet(uuid, home("home" + h, p + h), false);
+            }
+            databaseManager.setHomeLimit(uuid, HOMES_PER_PLAYER + 1);
+        }
+        queue.flush();
+        last.join();
+        return players;
+    }
+
+    static Home home(String name, int seed) {
+        return new Home(name, WORLDS[seed % WORLDS.length], seed * 16.5, 64, -seed * 8.25, seed % 360, 0);
+    }
+
+    static void delete(Path dataFolder) throws IOException {
+        try (Stream<Path> files = Files.walk(dataFolder)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
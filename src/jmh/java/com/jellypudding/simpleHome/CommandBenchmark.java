@@ -0,0 +1,77 @@
+package com.jellypudding.simpleHome;
+
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The in-memory parts of the command hot paths: home name validation, building the /homes message
+ * (rendered and cached) and filtering home names for tab completion.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int homeCount;
+
+    private List<String> homeNames;
+    private PrefixIndex homeIndex;
+    private HomeListRenderer renderer;
+    private final UUID uuid = UUID.randomUUID();
+
+    @Setup
+    public void setUp() {
+        homeNames = new ArrayList<>(homeCount);
+        for (int i = 0; i < homeCount; i++) {
+            homeNames.add("home_" + i);
+        }
+        homeIndex = new PrefixIndex(homeNames);
+        renderer = new HomeListRenderer();
+    }
+
+    @Benchmark
+    public boolean isValidHomeName() {
+        return SimpleHome.isValidHomeName("my_base-42");
+    }
+
+    @Benchmark
+    public boolean isValidHomeNameRejected() {
+        return SimpleHome.isValidHomeName("not a valid name!");
+    }
+
+    @Benchmark
+    public Component renderHomesPage() {
+        return HomeListRenderer.renderHomesPage(homeNames, homeCount, 1);
+    }
+
+    @Benchmark
+    public Component cachedHomesPage() {
+        return renderer.homesPage(uuid, 1, homeNames, homeCount, 1);
+    }
+
+    /**
+     * The original tab completion filter: lowercase every name and collect the matches from a stream.
+     */
+    @Benchmark
+    public List<String> tabCompleteStream() {
+        String currentArg = "home_1";
+        return homeNames.stream()
+                .filter(name -> name.toLowerCase().startsWith(currentArg))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> tabCompletePrefixIndex() {
+        return homeIndex.startingWith("home_1");
+    }
+}
@@ -0,0 +1,172 @@
+package com.jellypudding.simpleHome;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every DatabaseManager operation against a temporary SQLite file, at several database sizes.
+ * The *Contended benchmarks run the same operation from several threads, and the "mixed" group
+ * runs readers and a writer side by side to show how reads behave while writes are committed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatabaseBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int homeCount;
+
+    private Path dataFolder;
+    private DatabaseManager databaseManager;
+    private UUID[] players;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+        private int sequence;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFolder = Files.createTempDirectory("simplehome-jmh");
+        databaseManager = BenchmarkDatabase.open(dataFolder);
+        players = BenchmarkDatabase.populate(databaseManager, homeCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        databaseManager.closeConnection();
+        BenchmarkDatabase.delete(dataFolder);
+    }
+
+    private UUID randomPlayer(ThreadState state) {
+        return players[state.random.nextInt(players.length)];
+    }
+
+    private String randomHomeName(ThreadState state) {
+        return "home" + state.random.nextInt(BenchmarkDatabase.HOMES_PER_PLAYER);
+    }
+
+    // --- Reads ---
+
+    @Benchmark
+    public Home getHome(ThreadState state) {
+        return databaseManager.getHome(randomPlayer(state), randomHomeName(state));
+    }
+
+    @Benchmark
+    public List<Home> getAllHomes(ThreadState state) {
+        return databaseManager.getAllHomes(randomPlayer(state));
+    }
+
+    @Benchmark
+    public List<String> getHomes(ThreadState state) {
+        return databaseManager.getHomes(randomPlayer(state));
+    }
+
+    @Benchmark
+    public int getHomeCount(ThreadState state) {
+        return databaseManager.getHomeCount(randomPlayer(state));
+    }
+
+    @Benchmark
+    public int getHomeLimit(ThreadState state) {
+        return databaseManager.getHomeLimit(randomPlayer(state));
+    }
+
+    // --- Writes (they overwrite existing rows so the database size stays constant) ---
+
+    @Benchmark
+    public boolean setHome(ThreadState state) {
+        return databaseManager.setHome(randomPlayer(state), BenchmarkDatabase.home(randomHomeName(state), state.sequence++));
+    }
+
+    @Benchmark
+    public HomeWriteResult setHomeWithinLimit(ThreadState state) {
+        return databaseManager.setHomeWithinLimit(randomPlayer(state), BenchmarkDatabase.home(randomHomeName(state), state.sequence++));
+    }
+
+    @Benchmark
+    public boolean deleteHome(ThreadState state) {
+        UUID uuid = randomPlayer(state);
+        String homeName = randomHomeName(state);
+        boolean deleted = databaseManager.deleteHome(uuid, homeName);
+        databaseManager.setHome(uuid, BenchmarkDatabase.home(homeName, state.sequence++));
+        return deleted;
+    }
+
+    @Benchmark
+    public boolean setHomeLimit(ThreadState state) {
+        return databaseManager.setHomeLimit(randomPlayer(state), BenchmarkDatabase.HOMES_PER_PLAYER + 1);
+    }
+
+    /**
+     * 100 queued writes committed through the write-behind queue, i.e. with group commit.
+     */
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public List<Boolean> setHomeAsyncBatch(ThreadState state) {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            futures.add(databaseManager.setHomeAsync(randomPlayer(state), BenchmarkDatabase.home(randomHomeName(state), state.sequence++)));
+        }
+        databaseManager.getWriteQueue().flush();
+        List<Boolean> results = new ArrayList<>(100);
+        for (CompletableFuture<Boolean> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    // --- Contended ---
+
+    @Benchmark
+    @Threads(4)
+    public Home getHomeContended(ThreadState state) {
+        return getHome(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Home> getAllHomesContended(ThreadState state) {
+        return getAllHomes(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean setHomeContended(ThreadState state) {
+        return setHome(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public HomeWriteResult setHomeWithinLimitContended(ThreadState state) {
+        return setHomeWithinLimit(state);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Home mixedRead(ThreadState state) {
+        return getHome(state);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean mixedWrite(ThreadState state) {
+        return setHome(state);
+    }
+}
@@ -0,0 +1,22 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.logging.Logger;
+
+/**
+ * Cold storage settings for inactive players' homes, read from config.yml.
+ */
+public record ArchiveSettings(boolean enabled,
+                              int inactiveDays,
+                              int batchSize,
+                              int maxPlayersPerRun) {
+
+    public static ArchiveSettings load(FileConfiguration config, Logger logger) {
+        return new ArchiveSettings(
+                config.getBoolean("archive.enabled", false),
+                DatabaseSettings.atLeast(config, logger, "archive.inactive-days", 365, 1),
+                DatabaseSettings.atLeast(config, logger, "archive.batch-size", 200, 1),
+                DatabaseSettings.atLeast(config, logger, "archive.max-players-per-run", 5000, 1));
+    }
+}
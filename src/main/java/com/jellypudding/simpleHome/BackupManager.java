@@ -0,0 +1,223 @@
+package com.jellypudding.simpleHome;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Takes consistent snapshots of homes.db and archive.db while the server runs, into plugins/SimpleHome/backups, and
+ * keeps the newest few. Each backup is a homes-<time>.db file plus, if cold storage was in use, an archive-<time>.db
+ * file beside it. A backup is restored by validating it and staging it as homes.db.restore and archive.db.restore,
+ * which {@link SqliteHomeStore} swaps in together at the next start, before any connection is open.
+ */
+public class BackupManager {
+
+    static final String STAGED_RESTORE = "homes.db.restore";
+    static final String STAGED_ARCHIVE_RESTORE = "archive.db.restore";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final List<String> REQUIRED_TABLES = List.of("worlds", "player_homes", "player_home_limits");
+    private static final List<String> REQUIRED_ARCHIVE_TABLES = List.of("players", "homes");
+
+    private final JavaPlugin plugin;
+    private final Logger logger;
+    private final DatabaseManager databaseManager;
+    private final BackupSettings settings;
+    private final File folder;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ScheduledTask task;
+
+    public BackupManager(JavaPlugin plugin, DatabaseManager databaseManager, BackupSettings settings) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.databaseManager = databaseManager;
+        this.settings = settings;
+        this.folder = new File(plugin.getDataFolder(), "backups");
+    }
+
+    public void start() {
+        if (settings.intervalHours() == 0) return;
+        long ticks = settings.intervalHours() * 60L * 60L * 20L;
+        task = Schedulers.runAsyncTimer(plugin, () -> databaseManager.supplyAsync(() -> {
+            try {
+                backup();
+            } catch (IOException | SQLException | IllegalStateException e) {
+                logger.log(Level.SEVERE, "Scheduled backup failed: " + e.getMessage(), e);
+            }
+            return null;
+        }, null), ticks, ticks);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Writes a snapshot and deletes the oldest ones beyond the configured count. Blocks, so call it off the main thread.
+     */
+    public File backup() throws IOException, SQLException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A backup is already running.");
+        }
+        try {
+            folder.mkdirs();
+            long start = System.nanoTime();
+            String name = "homes-" + LocalDateTime.now().format(NAME_FORMAT) + ".db";
+            File temp = new File(folder, name + ".tmp");
+            File archiveTemp = new File(folder, archiveName(name) + ".tmp");
+            Files.deleteIfExists(temp.toPath());
+            Files.deleteIfExists(archiveTemp.toPath());
+            try {
+                boolean withArchive = databaseManager.snapshot(temp, archiveTemp);
+                File snapshot = new File(folder, settings.compress() ? name + ".gz" : name);
+                // The archive goes first, so a backup listed under its homes file is always complete.
+                if (withArchive) {
+                    store(archiveTemp, new File(folder, archiveName(snapshot.getName())));
+                }
+                store(temp, snapshot);
+                long size = snapshot.length() + (withArchive ? archiveOf(snapshot).length() : 0);
+                logger.info(String.format("Backed up the database%s to %s (%d KiB) in %d ms.", withArchive ? " and archive" : "",
+                        snapshot.getName(), size / 1024, (System.nanoTime() - start) / 1_000_000));
+                rotate();
+                return snapshot;
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+                Files.deleteIfExists(archiveTemp.toPath());
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Moves a fresh snapshot to its final name, compressing it on the way if configured.
+    private void store(File temp, File target) throws IOException {
+        if (settings.compress()) {
+            File compressed = new File(folder, target.getName() + ".tmp");
+            try (InputStream in = Files.newInputStream(temp.toPath());
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed.toPath()))) {
+                in.transferTo(out);
+            }
+            Files.move(compressed.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String archiveName(String backupName) {
+        return "archive-" + backupName.substring("homes-".length());
+    }
+
+    private File archiveOf(File backup) {
+        return new File(folder, archiveName(backup.getName()));
+    }
+
+    /**
+     * Backups, newest first.
+     */
+    public List<File> listBackups() {
+        File[] files = folder.listFiles((dir, name) -> name.startsWith("homes-") && (name.endsWith(".db") || name.endsWith(".db.gz")));
+        if (files == null) return new ArrayList<>();
+        List<File> backups = new ArrayList<>(Arrays.asList(files));
+        // The timestamp in the name sorts chronologically.
+        backups.sort(Comparator.comparing(File::getName).reversed());
+        return backups;
+    }
+
+    private void rotate() {
+        List<File> backups = listBackups();
+        for (File old : backups.subList(Math.min(settings.keep(), backups.size()), backups.size())) {
+            archiveOf(old).delete();
+            if (old.delete()) {
+                logger.info("Deleted old backup " + old.getName() + ".");
+            }
+        }
+    }
+
+    /**
+     * Checks a backup and stages it, with its archive if it has one, to replace homes.db and archive.db at the next
+     * start. Blocks, so call it off the main thread. Throws if the backup is missing or fails the integrity check.
+     */
+    public void stageRestore(String fileName) throws IOException, SQLException {
+        File source = new File(folder, fileName);
+        if (!new File(fileName).getName().equals(fileName) || !fileName.startsWith("homes-") || !source.isFile()) {
+            throw new IOException("Backup '" + fileName + "' not found in plugins/SimpleHome/backups.");
+        }
+        File archiveSource = archiveOf(source);
+        File staged = new File(plugin.getDataFolder(), STAGED_RESTORE);
+        File stagedArchive = new File(plugin.getDataFolder(), STAGED_ARCHIVE_RESTORE);
+        File temp = new File(plugin.getDataFolder(), STAGED_RESTORE + ".tmp");
+        File archiveTemp = new File(plugin.getDataFolder(), STAGED_ARCHIVE_RESTORE + ".tmp");
+        try {
+            copy(source, temp);
+            validate(temp, "The backup", REQUIRED_TABLES);
+            if (archiveSource.isFile()) {
+                copy(archiveSource, archiveTemp);
+                validate(archiveTemp, "The archive backup", REQUIRED_ARCHIVE_TABLES);
+            }
+            // homes.db.restore is what triggers the swap, so it is staged last.
+            Files.deleteIfExists(staged.toPath());
+            if (archiveSource.isFile()) {
+                Files.move(archiveTemp.toPath(), stagedArchive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(stagedArchive.toPath());
+            }
+            Files.move(temp.toPath(), staged.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+            Files.deleteIfExists(archiveTemp.toPath());
+        }
+        logger.info("Staged backup " + fileName + (archiveSource.isFile() ? " and " + archiveSource.getName() : "") +
+                " to replace homes.db and archive.db at the next start.");
+    }
+
+    private static void copy(File source, File target) throws IOException {
+        try (InputStream in = source.getName().endsWith(".gz")
+                ? new GZIPInputStream(Files.newInputStream(source.toPath()))
+                : Files.newInputStream(source.toPath())) {
+            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void validate(File file, String label, List<String> requiredTables) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+             Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA integrity_check")) {
+                String result = rs.next() ? rs.getString(1) : "no result";
+                if (!result.equals("ok")) {
+                    throw new SQLException(label + " failed the integrity check: " + result);
+                }
+            }
+            for (String table : requiredTables) {
+                try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+                    if (!rs.next()) {
+                        throw new SQLException(label + " has no " + table + " table.");
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.logging.Logger;
+
+/**
+ * Online backup settings read from config.yml.
+ */
+public record BackupSettings(int intervalHours,
+                             int keep,
+                             boolean compress) {
+
+    public static BackupSettings load(FileConfiguration config, Logger logger) {
+        return new BackupSettings(
+                DatabaseSettings.atLeast(config, logger, "backup.interval-hours", 24, 0),
+                DatabaseSettings.atLeast(config, logger, "backup.keep", 7, 1),
+                config.getBoolean("backup.compress", true));
+    }
+}
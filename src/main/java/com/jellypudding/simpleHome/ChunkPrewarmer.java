@@ -0,0 +1,166 @@
+package com.jellypudding.simpleHome;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the chunks around likely teleport destinations ahead of time and holds them with plugin chunk tickets
+ * for a short while, so the teleport finds them already loaded.
+ * A global budget (loads started per tick, loads in flight, tickets held) keeps pre-warming from causing a
+ * chunk-load storm; requests beyond the queue size are dropped, since pre-warming is only an optimisation.
+ * All state is touched on the global region thread (the main thread on Paper) only.
+ */
+public class ChunkPrewarmer {
+
+    private final JavaPlugin plugin;
+    private final PrewarmSettings settings;
+    private final long ticketTicks;
+    private final int maxQueued;
+
+    private final ArrayDeque<ChunkKey> queue = new ArrayDeque<>();
+    private final Set<ChunkKey> queued = new HashSet<>();
+    // Chunk -> tick at which its ticket is released, in expiry order.
+    private final LinkedHashMap<ChunkKey, Long> tickets = new LinkedHashMap<>();
+    private int loadsInFlight;
+    private long currentTick;
+    private ScheduledTask task;
+
+    // Statistics.
+    private long chunksRequested;
+    private long chunksLoaded;
+    private long chunksAlreadyLoaded;
+    private long chunksDropped;
+
+    private record ChunkKey(World world, int x, int z) {}
+
+    public ChunkPrewarmer(JavaPlugin plugin, PrewarmSettings settings) {
+        this.plugin = plugin;
+        this.settings = settings;
+        this.ticketTicks = settings.ticketSeconds() * 20L;
+        int side = 2 * settings.radius() + 1;
+        // Room for a handful of destinations; anything more is already more than the budget can serve soon.
+        this.maxQueued = side * side * 8;
+    }
+
+    public void start() {
+        if (settings.enabled()) {
+            task = Schedulers.runGlobalTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queue.clear();
+        queued.clear();
+        for (ChunkKey key : tickets.keySet()) {
+            key.world().removePluginChunkTicket(key.x(), key.z(), plugin);
+        }
+        tickets.clear();
+    }
+
+    /**
+     * Queues the chunks around a location, nearest first. Chunks that already hold a ticket have it extended.
+     */
+    public void prewarm(Location location) {
+        if (task == null || location == null || location.getWorld() == null) return;
+        Schedulers.runGlobal(plugin, () -> queueAround(location));
+    }
+
+    private void queueAround(Location location) {
+        World world = location.getWorld();
+        int centerX = location.getBlockX() >> 4;
+        int centerZ = location.getBlockZ() >> 4;
+
+        int radius = settings.radius();
+        for (int ring = 0; ring <= radius; ring++) {
+            for (int dx = -ring; dx <= ring; dx++) {
+                for (int dz = -ring; dz <= ring; dz++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dz)) != ring) continue;
+                    request(new ChunkKey(world, centerX + dx, centerZ + dz));
+                }
+            }
+        }
+    }
+
+    private void request(ChunkKey key) {
+        chunksRequested++;
+        Long expiry = tickets.remove(key);
+        if (expiry != null) {
+            tickets.put(key, currentTick + ticketTicks);
+            return;
+        }
+        if (queued.contains(key)) return;
+        if (queue.size() >= maxQueued) {
+            chunksDropped++;
+            return;
+        }
+        queue.add(key);
+        queued.add(key);
+    }
+
+    private void tick() {
+        currentTick++;
+        releaseExpiredTickets();
+
+        int started = 0;
+        while (!queue.isEmpty() && started < settings.maxLoadsPerTick()
+                && loadsInFlight < settings.maxLoadsInFlight()
+                && tickets.size() + loadsInFlight < settings.maxTickets()) {
+            ChunkKey key = queue.poll();
+            queued.remove(key);
+            if (key.world().isChunkLoaded(key.x(), key.z())) {
+                // Already loaded: a ticket keeps it that way without costing a load.
+                chunksAlreadyLoaded++;
+                addTicket(key);
+                continue;
+            }
+
+            started++;
+            loadsInFlight++;
+            // Paper completes chunk futures on the main thread, Folia on the chunk's region thread.
+            key.world().getChunkAtAsync(key.x(), key.z()).whenComplete((chunk, error) -> Schedulers.runGlobal(plugin, () -> {
+                loadsInFlight--;
+                if (error == null && chunk != null && task != null) {
+                    chunksLoaded++;
+                    addTicket(key);
+                }
+            }));
+        }
+    }
+
+    private void addTicket(ChunkKey key) {
+        if (!tickets.containsKey(key)) {
+            key.world().addPluginChunkTicket(key.x(), key.z(), plugin);
+        }
+        tickets.remove(key);
+        tickets.put(key, currentTick + ticketTicks);
+    }
+
+    private void releaseExpiredTickets() {
+        Iterator<Map.Entry<ChunkKey, Long>> iterator = tickets.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ChunkKey, Long> entry = iterator.next();
+            if (entry.getValue() > currentTick) break;
+            ChunkKey key = entry.getKey();
+            key.world().removePluginChunkTicket(key.x(), key.z(), plugin);
+            iterator.remove();
+        }
+    }
+
+    public String describeStats() {
+        return String.format("Chunk pre-warming: %d chunks requested, %d loaded, %d already loaded, %d dropped, %d queued, %d loading, %d tickets held",
+                chunksRequested, chunksLoaded, chunksAlreadyLoaded, chunksDropped, queue.size(), loadsInFlight, tickets.size());
+    }
+}
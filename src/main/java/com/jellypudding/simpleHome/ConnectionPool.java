@@ -0,0 +1,221 @@
+package com.jellypudding.simpleHome;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One writer connection plus a small pool of read-only connections to the same SQLite file.
+ * In WAL mode readers never wait for the writer, and the writer lock keeps writes serialized.
+ */
+public class ConnectionPool implements SqlConnections {
+
+    private final Logger logger;
+    private final String url;
+    private final DatabaseSettings settings;
+    private final PooledConnection writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<PooledConnection> readers = new ArrayList<>();
+    private BlockingQueue<PooledConnection> idleReaders;
+    // Schema name -> file of databases attached to every connection.
+    private final Map<String, String> attached = new LinkedHashMap<>();
+
+    public ConnectionPool(Logger logger, String url, DatabaseSettings settings) throws SQLException {
+        this.logger = logger;
+        this.url = url;
+        this.settings = settings;
+        this.writer = new PooledConnection(open(false));
+    }
+
+    /**
+     * Attaches another database file under the given schema name, to the writer now and to every reader as it opens.
+     * Creates the file if it does not exist. Called before {@link #openReaders()}.
+     */
+    public void attach(String schema, File file) throws SQLException {
+        write(connection -> {
+            attach(connection.raw(), schema, file.getAbsolutePath());
+            return null;
+        });
+        attached.put(schema, file.getAbsolutePath());
+    }
+
+    private static void attach(Connection connection, String schema, String path) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("ATTACH DATABASE ? AS " + schema)) {
+            pstmt.setString(1, path);
+            pstmt.execute();
+        }
+    }
+
+    /**
+     * Opens the read-only connections. Called once the schema is in place.
+     */
+    public void openReaders() throws SQLException {
+        idleReaders = new ArrayBlockingQueue<>(Math.max(1, settings.readerPoolSize()));
+        for (int i = 0; i < settings.readerPoolSize(); i++) {
+            PooledConnection reader = new PooledConnection(open(true));
+            readers.add(reader);
+            idleReaders.add(reader);
+        }
+    }
+
+    private Connection open(boolean readOnly) throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + settings.busyTimeoutMillis());
+            if (!readOnly) {
+                // Only takes effect for a new database or at the next VACUUM; see SqliteHomeStore.releaseFreePages.
+                stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                // The journal mode is stored in the database file, so setting it on the writer is enough.
+                try (ResultSet rs = stmt.executeQuery("PRAGMA journal_mode = " + settings.journalMode())) {
+                    if (rs.next() && !rs.getString(1).equalsIgnoreCase(settings.journalMode())) {
+                        logger.warning("SQLite refused journal mode " + settings.journalMode() + "; using " + rs.getString(1) + ".");
+                    }
+                }
+            }
+            stmt.execute("PRAGMA synchronous = " + settings.synchronous());
+            stmt.execute("PRAGMA cache_size = " + settings.cacheSize());
+            stmt.execute("PRAGMA mmap_size = " + settings.mmapSize());
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = 1");
+                for (Map.Entry<String, String> entry : attached.entrySet()) {
+                    attach(connection, entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * Runs a query on an idle reader, or on the writer when no reader pool is configured.
+     * Gives up with an SQLException if no reader is returned within the busy timeout.
+     */
+    @Override
+    public <T> T read(SqlFunction<T> work) throws SQLException {
+        if (readers.isEmpty()) {
+            return write(work);
+        }
+        PooledConnection reader;
+        try {
+            reader = idleReaders.poll(settings.busyTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database reader.", e);
+        }
+        if (reader == null) {
+            throw new SQLException("No database reader became free within " + settings.busyTimeoutMillis() + " ms.");
+        }
+        try {
+            return work.apply(reader);
+        } finally {
+            idleReaders.add(reader);
+        }
+    }
+
+    /**
+     * Runs work on the single writer connection while holding the write lock.
+     */
+    @Override
+    public <T> T write(SqlFunction<T> work) throws SQLException {
+        writeLock.lock();
+        try {
+            return work.apply(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Runs work inside one transaction on the writer connection, rolling back if it throws.
+     */
+    @Override
+    public <T> T transaction(SqlFunction<T> work) throws SQLException {
+        return write(connection -> {
+            Connection raw = connection.raw();
+            raw.setAutoCommit(false);
+            try {
+                T result = work.apply(connection);
+                raw.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                raw.rollback();
+                throw e;
+            } finally {
+                raw.setAutoCommit(true);
+            }
+        });
+    }
+
+    /**
+     * SQLite streams result sets anyway; a reader keeps the export from blocking writes.
+     */
+    @Override
+    public <T> T stream(SqlFunction<T> work) throws SQLException {
+        return read(work);
+    }
+
+    /**
+     * Closes every reader as it is returned to the pool, waiting up to the busy timeout for readers still in use,
+     * then the writer once it is free.
+     */
+    @Override
+    public void close() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.busyTimeoutMillis());
+        int returned = 0;
+        try {
+            while (returned < readers.size()) {
+                PooledConnection reader = idleReaders.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (reader == null) break;
+                closeQuietly(reader);
+                returned++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (returned < readers.size()) {
+            logger.warning((readers.size() - returned) + " database readers were still in use; closing them anyway.");
+            for (PooledConnection reader : readers) {
+                if (!isClosed(reader)) closeQuietly(reader);
+            }
+        }
+        readers.clear();
+        writeLock.lock();
+        try {
+            closeQuietly(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static boolean isClosed(PooledConnection connection) {
+        try {
+            return connection.raw().isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private void closeQuietly(PooledConnection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Could not close database connection: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.jellypudding.simpleHome;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically tidies the database on a database thread while few players are online: refreshes query planner
+ * statistics, releases free pages left behind by deleted homes in bounded steps, truncates the write-ahead log
+ * and, if configured, archives or deletes homes in worlds that no longer exist and moves inactive players to cold storage.
+ * Every step takes the write lock on its own, so queued home writes get through in between.
+ */
+public class DatabaseMaintenance {
+
+    private final JavaPlugin plugin;
+    private final Logger logger;
+    private final DatabaseManager databaseManager;
+    private final HomeCache homeCache;
+    private final HomeHistory history;
+    private final MaintenanceSettings settings;
+    private final ArchiveSettings archiveSettings;
+    private final Metrics metrics;
+    // Worlds are per server, so homes are only treated as orphaned in a database no other server uses.
+    private final boolean localDatabase;
+    private final File orphanFile;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ScheduledTask task;
+
+    // Statistics.
+    private volatile Report lastReport;
+    private volatile long runs;
+    private long skippedBusy;
+
+    public record Report(long millis, boolean optimized, long releasedBytes, long walBytes,
+                         int orphanedHomes, List<String> missingWorlds, int archivedPlayers, int prunedChanges,
+                         int failures) {
+
+        public String describe() {
+            List<String> parts = new ArrayList<>();
+            parts.add(optimized ? "statistics refreshed" : "statistics not refreshed");
+            parts.add(formatBytes(releasedBytes) + " of free pages released");
+            parts.add("WAL shrunk by " + formatBytes(walBytes));
+            if (!missingWorlds.isEmpty()) {
+                parts.add(orphanedHomes + " homes removed from missing worlds " + missingWorlds);
+            }
+            if (archivedPlayers > 0) {
+                parts.add(archivedPlayers + " inactive players moved to cold storage");
+            }
+            if (prunedChanges > 0) {
+                parts.add(prunedChanges + " old home history entries deleted");
+            }
+            if (failures > 0) {
+                parts.add(failures + " steps failed (see the console)");
+            }
+            return "took " + millis + " ms: " + String.join(", ", parts);
+        }
+    }
+
+    public DatabaseMaintenance(JavaPlugin plugin, DatabaseManager databaseManager, HomeCache homeCache,
+                               HomeHistory history, MaintenanceSettings settings, ArchiveSettings archiveSettings,
+                               Metrics metrics, boolean localDatabase) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.databaseManager = databaseManager;
+        this.homeCache = homeCache;
+        this.history = history;
+        this.settings = settings;
+        this.archiveSettings = archiveSettings;
+        this.metrics = metrics;
+        this.localDatabase = localDatabase;
+        this.orphanFile = new File(new File(plugin.getDataFolder(), "transfers"), "orphaned-homes.csv");
+    }
+
+    public void start() {
+        if (!settings.enabled()) return;
+        long ticks = settings.intervalMinutes() * 60L * 20L;
+        task = Schedulers.runGlobalTimer(plugin, this::runIfQuiet, ticks, ticks);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void runIfQuiet() {
+        if (plugin.getServer().getOnlinePlayers().size() > settings.maxOnlinePlayers()) {
+            skippedBusy++;
+            return;
+        }
+        run();
+    }
+
+    /**
+     * Starts a run on a database thread. Completes with null if a run is already in progress.
+     * Call on the global region thread (the main thread on Paper), since the worlds that still exist are looked up here.
+     */
+    public CompletableFuture<Report> run() {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Set<String> existingWorlds = existingWorlds();
+        return databaseManager.supplyAsync(() -> maintain(existingWorlds), null)
+                .whenComplete((report, error) -> running.set(false));
+    }
+
+    private Set<String> existingWorlds() {
+        Set<String> names = new HashSet<>();
+        for (World world : plugin.getServer().getWorlds()) {
+            names.add(world.getName());
+        }
+        // Worlds that are not loaded right now (e.g. by a world manager plugin) still count while their folder exists.
+        File[] folders = plugin.getServer().getWorldContainer().listFiles(File::isDirectory);
+        if (folders != null) {
+            for (File folder : folders) {
+                if (new File(folder, "level.dat").exists()) {
+                    names.add(folder.getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    private Report maintain(Set<String> existingWorlds) {
+        long start = metrics.start();
+        long startNanos = System.nanoTime();
+        int failures = 0;
+
+        boolean optimized = false;
+        try {
+            databaseManager.optimize();
+            optimized = true;
+        } catch (SQLException e) {
+            failures++;
+            logger.log(Level.WARNING, "Could not refresh database statistics: " + e.getMessage(), e);
+        }
+
+        // Also before vacuuming, to release the pages of deleted history entries.
+        int prunedChanges = 0;
+        try {
+            prunedChanges = history.prune();
+        } catch (SQLException e) {
+            failures++;
+            logger.log(Level.WARNING, "Could not delete old home history entries: " + e.getMessage(), e);
+        }
+
+        // Before vacuuming, so the pages archived players leave behind are released in the same run.
+        int archivedPlayers = 0;
+        if (archiveSettings.enabled()) {
+            long seenBefore = System.currentTimeMillis() - archiveSettings.inactiveDays() * 86_400_000L;
+            try {
+                while (archivedPlayers < archiveSettings.maxPlayersPerRun()) {
+                    int batch = Math.min(archiveSettings.batchSize(), archiveSettings.maxPlayersPerRun() - archivedPlayers);
+                    int moved = databaseManager.archiveInactivePlayers(seenBefore, batch, homeCache.activePlayers());
+                    archivedPlayers += moved;
+                    if (moved < batch) break;
+                }
+            } catch (SQLException e) {
+                failures++;
+                logger.log(Level.WARNING, "Could not move inactive players to cold storage: " + e.getMessage(), e);
+            }
+        }
+
+        long releasedBytes = 0;
+        try {
+            for (int step = 0; step < settings.vacuumMaxSteps(); step++) {
+                long released = databaseManager.releaseFreePages(settings.vacuumPagesPerStep());
+                if (released == 0) break;
+                releasedBytes += released;
+            }
+        } catch (SQLException e) {
+            failures++;
+            logger.log(Level.WARNING, "Could not release free database pages: " + e.getMessage(), e);
+        }
+
+        long walBytes = 0;
+        if (settings.checkpoint()) {
+            try {
+                walBytes = databaseManager.checkpoint();
+            } catch (SQLException e) {
+                failures++;
+                logger.log(Level.WARNING, "Could not checkpoint the write-ahead log: " + e.getMessage(), e);
+            }
+        }
+
+        int orphanedHomes = 0;
+        List<String> missingWorlds = new ArrayList<>();
+        if (localDatabase && !settings.orphanedHomes().equals("keep")) {
+            try {
+                for (String world : databaseManager.getWorldNames()) {
+                    if (existingWorlds.contains(world)) continue;
+                    int removed = removeHomesInWorld(world);
+                    if (removed > 0) {
+                        orphanedHomes += removed;
+                        missingWorlds.add(world);
+                    }
+                }
+            } catch (SQLException | IOException e) {
+                failures++;
+                logger.log(Level.WARNING, "Could not remove homes in missing worlds: " + e.getMessage(), e);
+            }
+        }
+
+        Report report = new Report((System.nanoTime() - startNanos) / 1_000_000, optimized, releasedBytes, walBytes,
+                orphanedHomes, missingWorlds, archivedPlayers, prunedChanges, failures);
+        metrics.record("maintenance.run", start);
+        lastReport = report;
+        runs++;
+        logger.info("Database maintenance " + report.describe() + ".");
+        return report;
+    }
+
+    private int removeHomesInWorld(String world) throws SQLException, IOException {
+        boolean archive = settings.orphanedHomes().equals("archive");
+        int removed = 0;
+        while (true) {
+            List<HomeTransfer.Row> homes = databaseManager.getHomesInWorld(world, settings.orphanBatchSize());
+            if (homes.isEmpty()) break;
+            // Written before deleting, so a failed delete at worst leaves a duplicate line that imports harmlessly.
+            if (archive) {
+                HomeTransfer.appendCsv(orphanFile, homes);
+            }
+            int deleted = databaseManager.deleteHomes(homes);
+            homeCache.homesDeleted(homes);
+            removed += deleted;
+            if (deleted == 0 || homes.size() < settings.orphanBatchSize()) break;
+        }
+        if (removed > 0) {
+            logger.info((archive ? "Archived " : "Deleted ") + removed + " homes in missing world '" + world + "'" +
+                    (archive ? " to " + orphanFile.getName() + "." : "."));
+        }
+        return removed;
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) return (bytes / 1024) + " KiB";
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+
+    public String describeStats() {
+        Report report = lastReport;
+        return "Maintenance: " + runs + " runs, " + skippedBusy + " skipped while busy" +
+                (report != null ? ", last " + report.describe() : "");
+    }
+}
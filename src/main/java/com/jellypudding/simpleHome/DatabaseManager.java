@@ -1,298 +1,781 @@
 package com.jellypudding.simpleHome;
 
-import org.bukkit.Location;
-import org.bukkit.World;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
-import java.sql.*;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * The plugin's entry point to storage. Runs {@link HomeStore} calls on a bounded executor, batches home writes
+ * through the {@link WriteBehindQueue}, records metrics, and turns storage failures into logged fallback values.
+ */
 public class DatabaseManager {
 
-    private final JavaPlugin plugin;
-    private Connection connection;
-    private final String databasePath;
+    private final Logger logger;
+    private HomeStore store;
     private int maxHomeLimit;
+    private final ThreadPoolExecutor executor;
+    private final WriteBehindQueue writeQueue;
+    private final Metrics metrics;
+
+    public DatabaseManager(JavaPlugin plugin, int maxHomeLimit, DatabaseSettings settings, StorageSettings storage,
+                           ArchiveSettings archive, Metrics metrics) {
+        this(plugin.getLogger(), openStore(plugin.getLogger(), plugin.getDataFolder(), settings, storage, archive.enabled()),
+                maxHomeLimit, settings, metrics);
+        writeQueue.start(plugin);
+    }
+
+    /**
+     * Opens the SQLite database without any scheduled tasks, so it can be used outside a running server (e.g. benchmarks).
+     * Queued writes are then only flushed by batch size, reads and explicit flushes.
+     */
+    DatabaseManager(Logger logger, File dataFolder, int maxHomeLimit, DatabaseSettings settings, Metrics metrics) {
+        this(logger, openStore(logger, dataFolder, settings, null, false), maxHomeLimit, settings, metrics);
+    }
 
-    public DatabaseManager(JavaPlugin plugin, int maxHomeLimit) {
-        this.plugin = plugin;
+    private DatabaseManager(Logger logger, HomeStore store, int maxHomeLimit, DatabaseSettings settings, Metrics metrics) {
+        this.logger = logger;
+        this.store = store;
+        this.metrics = metrics;
         this.maxHomeLimit = maxHomeLimit;
-        if (!plugin.getDataFolder().exists()) {
-            plugin.getDataFolder().mkdirs();
-        }
-        this.databasePath = "jdbc:sqlite:" + new File(plugin.getDataFolder(), "homes.db").getAbsolutePath();
-        connect();
-        initializeDatabase(this.maxHomeLimit);
+        this.executor = createExecutor(settings.ioThreads(), settings.ioQueueCapacity());
+        this.writeQueue = new WriteBehindQueue(logger, this, settings.writeBehindEnabled(), settings.writeBatchSize(),
+                settings.writeFlushIntervalTicks(), settings.writeStatsLogIntervalSeconds());
     }
 
-    private void connect() {
+    /**
+     * Opens the configured store, or SQLite when storage is null. Returns null if the database can't be reached;
+     * every method then returns its fallback value.
+     */
+    private static HomeStore openStore(Logger logger, File dataFolder, DatabaseSettings settings, StorageSettings storage,
+                                       boolean coldStorage) {
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
         try {
-            Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection(databasePath);
-            plugin.getLogger().info("Successfully connected to SQLite database.");
-        } catch (SQLException | ClassNotFoundException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not connect to SQLite database: " + e.getMessage(), e);
-            connection = null;
-        }
-    }
-
-    private void initializeDatabase(int limit) {
-        if (connection == null) return;
-
-        String sqlHomes = "CREATE TABLE IF NOT EXISTS player_homes (" +
-                        " uuid TEXT NOT NULL," +
-                        " home_name TEXT NOT NULL COLLATE NOCASE," +
-                        " world TEXT NOT NULL," +
-                        " x REAL NOT NULL," +
-                        " y REAL NOT NULL," +
-                        " z REAL NOT NULL," +
-                        " yaw REAL NOT NULL," +
-                        " pitch REAL NOT NULL," +
-                        " PRIMARY KEY (uuid, home_name)" +
-                        ");";
-
-        String sqlLimits = "CREATE TABLE IF NOT EXISTS player_home_limits (" +
-                         " uuid TEXT PRIMARY KEY NOT NULL," +
-                         " max_homes INTEGER NOT NULL DEFAULT 1 CHECK(max_homes >= 1 AND max_homes <= " + limit + ")" +
-                         ");";
-
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(sqlHomes);
-            plugin.getLogger().info("Database table 'player_homes' initialized.");
-            stmt.execute(sqlLimits);
-            plugin.getLogger().info("Database table 'player_home_limits' initialized.");
-
-            migrateHomeLimitsSchema(limit);
+            if (storage == null || storage.isSqlite()) {
+                return SqliteHomeStore.open(logger, dataFolder, settings, coldStorage);
+            }
+            return JdbcHomeStore.open(logger, storage);
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not create database tables: " + e.getMessage(), e);
+            String name = storage == null ? "sqlite" : storage.type();
+            logger.log(Level.SEVERE, "Could not connect to " + name + " database: " + e.getMessage(), e);
+            return null;
         }
     }
 
-    private void migrateHomeLimitsSchema(int newLimit) {
-        if (connection == null) return;
+    public String describeStore() {
+        return store != null ? store.describe() : "no database connection";
+    }
+
+    public WriteBehindQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    /**
+     * Commits every queued home write. Called on shutdown before the connection is closed.
+     */
+    public void flushPendingWrites() {
+        writeQueue.stop();
+        writeQueue.flush();
+    }
+
+    private ThreadPoolExecutor createExecutor(int threads, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "SimpleHome-DB-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
 
+    public void closeConnection() {
+        writeQueue.stop();
+        executor.shutdown();
         try {
-            String testSql = "INSERT OR IGNORE INTO player_home_limits (uuid, max_homes) VALUES (?, ?)";
-            String testUuid = "test-constraint-check-uuid";
-
-            try (PreparedStatement testStmt = connection.prepareStatement(testSql)) {
-                testStmt.setString(1, testUuid);
-                testStmt.setInt(2, newLimit);
-                testStmt.executeUpdate();
-
-                String checkSql = "SELECT max_homes FROM player_home_limits WHERE uuid = ?";
-                try (PreparedStatement checkStmt = connection.prepareStatement(checkSql)) {
-                    checkStmt.setString(1, testUuid);
-                    ResultSet rs = checkStmt.executeQuery();
-
-                    if (rs.next() && rs.getInt("max_homes") == newLimit) {
-                        String deleteSql = "DELETE FROM player_home_limits WHERE uuid = ?";
-                        try (PreparedStatement deleteStmt = connection.prepareStatement(deleteSql)) {
-                            deleteStmt.setString(1, testUuid);
-                            deleteStmt.executeUpdate();
-                        }
-                        plugin.getLogger().info("Database schema is compatible with max home limit: " + newLimit);
-                        return;
-                    }
-                }
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Timed out waiting for pending database tasks to finish.");
+                executor.shutdownNow();
             }
-        } catch (SQLException e) {
-            plugin.getLogger().info("Database constraint needs updating for new max home limit: " + newLimit);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
         }
+        // Tasks that were still running may have queued more writes.
+        writeQueue.flush();
+        logger.info(writeQueue.describeStats());
+
+        if (store != null) {
+            store.close();
+            store = null;
+            logger.info("Database connection closed.");
+        }
+    }
 
-        try (Statement stmt = connection.createStatement()) {
-            plugin.getLogger().info("Migrating player_home_limits table for new max limit: " + newLimit);
+    // --- Async Methods ---
+    // These run the synchronous methods below on the database executor. Like their synchronous
+    // counterparts they never complete exceptionally; failures resolve to the same fallback values.
 
-            String createTempSql = "CREATE TABLE player_home_limits_temp (" +
-                                 " uuid TEXT PRIMARY KEY NOT NULL," +
-                                 " max_homes INTEGER NOT NULL DEFAULT 1 CHECK(max_homes >= 1 AND max_homes <= " + newLimit + ")" +
-                                 ");";
-            stmt.execute(createTempSql);
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task, T fallback) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            logger.warning("Database queue is full or shut down; dropping a database task.");
+            return CompletableFuture.completedFuture(fallback);
+        }
+    }
 
-            String copySql = "INSERT INTO player_home_limits_temp (uuid, max_homes) " +
-                           "SELECT uuid, MIN(max_homes, " + newLimit + ") FROM player_home_limits";
-            stmt.execute(copySql);
+    /**
+     * Records the time from submission to completion, including time spent waiting in the queue.
+     */
+    private <T> CompletableFuture<T> timedAsync(String name, CompletableFuture<T> future) {
+        long start = metrics.start();
+        return future.whenComplete((result, error) -> metrics.record(name, start));
+    }
+
+    public CompletableFuture<Integer> getHomeLimitAsync(UUID uuid) {
+        return timedAsync("db.getHomeLimitAsync", supplyAsync(() -> getHomeLimit(uuid), 1));
+    }
 
-            stmt.execute("DROP TABLE player_home_limits");
+    public CompletableFuture<Integer> increaseHomeLimitAsync(UUID uuid) {
+        return timedAsync("db.increaseHomeLimitAsync", supplyAsync(() -> increaseHomeLimit(uuid), 0));
+    }
 
-            stmt.execute("ALTER TABLE player_home_limits_temp RENAME TO player_home_limits");
+    public CompletableFuture<HomeStore.LimitDecrease> decreaseHomeLimitAsync(UUID uuid) {
+        return timedAsync("db.decreaseHomeLimitAsync", supplyAsync(() -> decreaseHomeLimit(uuid), null));
+    }
 
-            plugin.getLogger().info("Successfully migrated player_home_limits table to support max limit: " + newLimit);
+    public CompletableFuture<Boolean> setHomeLimitAsync(UUID uuid, int limit) {
+        return timedAsync("db.setHomeLimitAsync", supplyAsync(() -> setHomeLimit(uuid, limit), false));
+    }
 
+    public CompletableFuture<Map<UUID, List<String>>> setHomeLimitsAsync(Collection<UUID> uuids, int limit) {
+        return timedAsync("db.setHomeLimitsAsync", supplyAsync(() -> setHomeLimits(uuids, limit), null));
+    }
+
+    public CompletableFuture<Map<UUID, Integer>> getHomeLimitsAsync(Collection<UUID> uuids) {
+        return timedAsync("db.getHomeLimitsAsync", supplyAsync(() -> getHomeLimits(uuids), filled(uuids, 1)));
+    }
+
+    public CompletableFuture<Map<UUID, Integer>> getHomeCountsAsync(Collection<UUID> uuids) {
+        return timedAsync("db.getHomeCountsAsync", supplyAsync(() -> getHomeCounts(uuids), filled(uuids, 0)));
+    }
+
+    public CompletableFuture<Integer> getHomeCountAsync(UUID uuid) {
+        return timedAsync("db.getHomeCountAsync", supplyAsync(() -> getHomeCount(uuid), 0));
+    }
+
+    public CompletableFuture<Boolean> setHomeAsync(UUID uuid, Home home) {
+        if (store == null) return CompletableFuture.completedFuture(false);
+        return timedAsync("db.setHomeAsync", writeQueue.enqueueSet(uuid, home, false).thenApply(HomeWriteResult::isSuccess));
+    }
+
+    public CompletableFuture<HomeWriteResult> setHomeWithinLimitAsync(UUID uuid, Home home) {
+        if (store == null) return CompletableFuture.completedFuture(HomeWriteResult.ERROR);
+        return timedAsync("db.setHomeWithinLimitAsync", writeQueue.enqueueSet(uuid, home, true));
+    }
+
+    public CompletableFuture<Home> getHomeAsync(UUID uuid, String homeName) {
+        return timedAsync("db.getHomeAsync", supplyAsync(() -> getHome(uuid, homeName), null));
+    }
+
+    public CompletableFuture<List<Home>> getAllHomesAsync(UUID uuid) {
+        return timedAsync("db.getAllHomesAsync", supplyAsync(() -> getAllHomes(uuid), new ArrayList<>()));
+    }
+
+    public CompletableFuture<Map<String, HomeUsage>> getHomeUsageAsync(UUID uuid) {
+        return timedAsync("db.getHomeUsageAsync", supplyAsync(() -> getHomeUsage(uuid), new HashMap<>()));
+    }
+
+    public CompletableFuture<List<String>> getHomesAsync(UUID uuid) {
+        return timedAsync("db.getHomesAsync", supplyAsync(() -> getHomes(uuid), new ArrayList<>()));
+    }
+
+    public CompletableFuture<Boolean> deleteHomeAsync(UUID uuid, String homeName) {
+        if (store == null) return CompletableFuture.completedFuture(false);
+        return timedAsync("db.deleteHomeAsync", writeQueue.enqueueDelete(uuid, homeName).thenApply(HomeWriteResult::isSuccess));
+    }
+
+    // --- Home Limit Methods ---
+
+    public int getHomeLimit(UUID uuid) {
+        if (store == null) return 1;
+        long start = metrics.start();
+        try {
+            // Limits stored before max-home-limit was lowered stay in the database but are capped here.
+            return Math.min(store.getHomeLimit(uuid), maxHomeLimit);
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to migrate database schema: " + e.getMessage(), e);
+            metrics.recordError("db.getHomeLimit");
+            logger.log(Level.SEVERE, "Could not retrieve home limit for " + uuid + ": " + e.getMessage(), e);
+        } finally {
+            metrics.record("db.getHomeLimit", start);
         }
+        return 1;
     }
 
-    public void closeConnection() {
+    /**
+     * The limit of every given player, capped like {@link #getHomeLimit}. Falls back to 1 for everyone on failure.
+     */
+    public Map<UUID, Integer> getHomeLimits(Collection<UUID> uuids) {
+        if (store != null) {
+            long start = metrics.start();
+            try {
+                Map<UUID, Integer> limits = store.getHomeLimits(uuids);
+                limits.replaceAll((uuid, limit) -> Math.min(limit, maxHomeLimit));
+                return limits;
+            } catch (SQLException e) {
+                metrics.recordError("db.getHomeLimits");
+                logger.log(Level.SEVERE, "Could not retrieve home limits for " + uuids.size() + " players: " + e.getMessage(), e);
+            } finally {
+                metrics.record("db.getHomeLimits", start);
+            }
+        }
+        return filled(uuids, 1);
+    }
+
+    private static Map<UUID, Integer> filled(Collection<UUID> uuids, int value) {
+        Map<UUID, Integer> values = new HashMap<>();
+        for (UUID uuid : uuids) {
+            values.put(uuid, value);
+        }
+        return values;
+    }
+
+    /**
+     * Raises the limit by one. Returns the new limit, -1 if it was already at the maximum, or 0 if the update failed.
+     */
+    public int increaseHomeLimit(UUID uuid) {
+        if (store == null) return 0;
+        long start = metrics.start();
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                plugin.getLogger().info("Database connection closed.");
+            int newLimit = store.increaseHomeLimit(uuid, this.maxHomeLimit);
+            if (newLimit < 0) {
+                return -1;
             }
+            logger.info("Increased home limit for " + uuid + " to " + newLimit);
+            return newLimit;
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not close database connection: " + e.getMessage(), e);
+            metrics.recordError("db.increaseHomeLimit");
+            logger.log(Level.SEVERE, "Could not increase home limit for " + uuid + ": " + e.getMessage(), e);
+            return 0;
+        } finally {
+            metrics.record("db.increaseHomeLimit", start);
         }
     }
 
-    // --- Home Limit Methods ---
-
-    public int getHomeLimit(UUID uuid) {
-        if (connection == null) return 1;
-        String sql = "SELECT max_homes FROM player_home_limits WHERE uuid = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("max_homes");
+    /**
+     * Lowers the limit by one, deleting the homes that no longer fit. The new limit is -1 if it was already 1.
+     * Returns null if the update failed.
+     */
+    public HomeStore.LimitDecrease decreaseHomeLimit(UUID uuid) {
+        if (store == null) return null;
+        // Archived homes must be trimmed too, not merged back later.
+        restoreArchivedPlayer(uuid);
+        long start = metrics.start();
+        // Queued writes must not recreate homes after they are trimmed.
+        writeQueue.flushIfPending(uuid);
+        try {
+            HomeStore.LimitDecrease result = store.decreaseHomeLimit(uuid);
+            if (result.limit() > 0) {
+                logger.info("Decreased home limit for " + uuid + " to " + result.limit());
             }
+            return result;
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not retrieve home limit for " + uuid + ": " + e.getMessage(), e);
+            metrics.recordError("db.decreaseHomeLimit");
+            logger.log(Level.SEVERE, "Could not decrease home limit for " + uuid + ": " + e.getMessage(), e);
+            return null;
+        } finally {
+            metrics.record("db.decreaseHomeLimit", start);
         }
-        return 1;
     }
 
-    public boolean increaseHomeLimit(UUID uuid) {
-        if (connection == null) return false;
-        int currentLimit = getHomeLimit(uuid);
-        if (currentLimit >= this.maxHomeLimit) {
+    public boolean setHomeLimit(UUID uuid, int limit) {
+        if (store == null) return false;
+        if (limit < 1 || limit > this.maxHomeLimit) {
             return false;
         }
-        int newLimit = currentLimit + 1;
 
-        String sql = "INSERT OR REPLACE INTO player_home_limits (uuid, max_homes) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            pstmt.setInt(2, newLimit);
-            pstmt.executeUpdate();
-            plugin.getLogger().info("Increased home limit for " + uuid + " to " + newLimit);
+        long start = metrics.start();
+        try {
+            store.setHomeLimit(uuid, limit);
+            logger.info("Set home limit for " + uuid + " to " + limit);
             return true;
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not increase home limit for " + uuid + ": " + e.getMessage(), e);
+            metrics.recordError("db.setHomeLimit");
+            logger.log(Level.SEVERE, "Could not set home limit for " + uuid + ": " + e.getMessage(), e);
             return false;
+        } finally {
+            metrics.record("db.setHomeLimit", start);
         }
     }
 
-    public boolean setHomeLimit(UUID uuid, int limit) {
-        if (connection == null) return false;
+    /**
+     * Sets the home limit of several players in one transaction. Homes that no longer fit are deleted, starting
+     * from the end of the alphabetical list as a limit decrease does. Returns the deleted home names of every
+     * player (an empty list if none were deleted), or null if the transaction failed.
+     */
+    public Map<UUID, List<String>> setHomeLimits(Collection<UUID> uuids, int limit) {
+        if (store == null) return null;
         if (limit < 1 || limit > this.maxHomeLimit) {
-            return false;
+            return null;
         }
 
-        String sql = "INSERT OR REPLACE INTO player_home_limits (uuid, max_homes) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            pstmt.setInt(2, limit);
-            pstmt.executeUpdate();
-            plugin.getLogger().info("Set home limit for " + uuid + " to " + limit);
-            return true;
+        // Archived homes must be trimmed too, not merged back later.
+        for (UUID uuid : uuids) {
+            restoreArchivedPlayer(uuid);
+        }
+        long start = metrics.start();
+        // Queued writes must not recreate homes after they are trimmed.
+        writeQueue.flush();
+        try {
+            Map<UUID, List<String>> deleted = store.setHomeLimits(uuids, limit);
+            logger.info("Set home limit for " + uuids.size() + " players to " + limit);
+            return deleted;
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not set home limit for " + uuid + ": " + e.getMessage(), e);
-            return false;
+            metrics.recordError("db.setHomeLimits");
+            logger.log(Level.SEVERE, "Could not set home limit for " + uuids.size() + " players: " + e.getMessage(), e);
+            return null;
+        } finally {
+            metrics.record("db.setHomeLimits", start);
         }
     }
 
     // --- Home Data Methods ---
 
     public int getHomeCount(UUID uuid) {
-        if (connection == null) return 0;
-        String sql = "SELECT COUNT(*) FROM player_homes WHERE uuid = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
+        if (store == null) return 0;
+        long start = metrics.start();
+        writeQueue.flushIfPending(uuid);
+        try {
+            return store.getHomeCount(uuid);
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not retrieve home count for " + uuid + ": " + e.getMessage(), e);
+            metrics.recordError("db.getHomeCount");
+            logger.log(Level.SEVERE, "Could not retrieve home count for " + uuid + ": " + e.getMessage(), e);
+        } finally {
+            metrics.record("db.getHomeCount", start);
         }
         return 0;
     }
 
-    public boolean setHome(UUID uuid, String homeName, Location location) {
-        if (connection == null) return false;
-        // Use REPLACE INTO to handle both inserts and updates based on composite primary key
-        String sql = "REPLACE INTO player_homes (uuid, home_name, world, x, y, z, yaw, pitch) VALUES(?, ?, ?, ?, ?, ?, ?, ?)";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            pstmt.setString(2, homeName.toLowerCase());
-            pstmt.setString(3, location.getWorld().getName());
-            pstmt.setDouble(4, location.getX());
-            pstmt.setDouble(5, location.getY());
-            pstmt.setDouble(6, location.getZ());
-            pstmt.setFloat(7, location.getYaw());
-            pstmt.setFloat(8, location.getPitch());
-            pstmt.executeUpdate();
-            return true;
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not save home '" + homeName + "' for " + uuid + ": " + e.getMessage(), e);
-            return false;
+    /**
+     * The home count of every given player. Falls back to 0 for everyone on failure.
+     */
+    public Map<UUID, Integer> getHomeCounts(Collection<UUID> uuids) {
+        if (store != null) {
+            long start = metrics.start();
+            for (UUID uuid : uuids) {
+                writeQueue.flushIfPending(uuid);
+            }
+            try {
+                return store.getHomeCounts(uuids);
+            } catch (SQLException e) {
+                metrics.recordError("db.getHomeCounts");
+                logger.log(Level.SEVERE, "Could not retrieve home counts for " + uuids.size() + " players: " + e.getMessage(), e);
+            } finally {
+                metrics.record("db.getHomeCounts", start);
+            }
         }
+        return filled(uuids, 0);
     }
 
-    public Location getHome(UUID uuid, String homeName) {
-        if (connection == null) return null;
-        String sql = "SELECT world, x, y, z, yaw, pitch FROM player_homes WHERE uuid = ? AND home_name = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            pstmt.setString(2, homeName.toLowerCase());
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                String worldName = rs.getString("world");
-                World world = plugin.getServer().getWorld(worldName);
-                if (world == null) {
-                    plugin.getLogger().warning("World '" + worldName + "' not found for home '" + homeName + "' of " + uuid);
-                    return null;
-                }
-                double x = rs.getDouble("x");
-                double y = rs.getDouble("y");
-                double z = rs.getDouble("z");
-                float yaw = rs.getFloat("yaw");
-                float pitch = rs.getFloat("pitch");
-                return new Location(world, x, y, z, yaw, pitch);
-            }
+    public boolean setHome(UUID uuid, Home home) {
+        if (store == null) return false;
+        long start = metrics.start();
+        CompletableFuture<HomeWriteResult> pending = writeQueue.enqueueSet(uuid, home, false);
+        // Holds the flush lock, so a batch that already took this write is committed by the time it returns.
+        writeQueue.flushIfPending(uuid);
+        HomeWriteResult result = pending.join();
+        recordWrite("db.setHome", start, result);
+        return result.isSuccess();
+    }
+
+    /**
+     * Creates or updates a home unless that would take the player past their home limit.
+     * The existence check, the limit check and the upsert run in one transaction.
+     */
+    public HomeWriteResult setHomeWithinLimit(UUID uuid, Home home) {
+        if (store == null) return HomeWriteResult.ERROR;
+        long start = metrics.start();
+        CompletableFuture<HomeWriteResult> pending = writeQueue.enqueueSet(uuid, home, true);
+        writeQueue.flushIfPending(uuid);
+        HomeWriteResult result = pending.join();
+        recordWrite("db.setHomeWithinLimit", start, result);
+        return result;
+    }
+
+    public Home getHome(UUID uuid, String homeName) {
+        if (store == null) return null;
+        long start = metrics.start();
+        writeQueue.flushIfPending(uuid);
+        try {
+            return store.getHome(uuid, homeName);
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not retrieve home '" + homeName + "' for " + uuid + ": " + e.getMessage(), e);
+            metrics.recordError("db.getHome");
+            logger.log(Level.SEVERE, "Could not retrieve home '" + homeName + "' for " + uuid + ": " + e.getMessage(), e);
+        } finally {
+            metrics.record("db.getHome", start);
         }
         return null;
     }
 
+    public List<Home> getAllHomes(UUID uuid) {
+        if (store == null) return new ArrayList<>();
+        long start = metrics.start();
+        writeQueue.flushIfPending(uuid);
+        try {
+            return store.getAllHomes(uuid);
+        } catch (SQLException e) {
+            metrics.recordError("db.getAllHomes");
+            logger.log(Level.SEVERE, "Could not retrieve homes for " + uuid + ": " + e.getMessage(), e);
+        } finally {
+            metrics.record("db.getAllHomes", start);
+        }
+        return new ArrayList<>();
+    }
+
     public List<String> getHomes(UUID uuid) {
-        if (connection == null) return new ArrayList<>();
-        List<String> homeNames = new ArrayList<>();
-        String sql = "SELECT home_name FROM player_homes WHERE uuid = ? ORDER BY home_name";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                homeNames.add(rs.getString("home_name"));
-            }
+        if (store == null) return new ArrayList<>();
+        long start = metrics.start();
+        writeQueue.flushIfPending(uuid);
+        try {
+            return store.getHomes(uuid);
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not retrieve home list for " + uuid + ": " + e.getMessage(), e);
+            metrics.recordError("db.getHomes");
+            logger.log(Level.SEVERE, "Could not retrieve home list for " + uuid + ": " + e.getMessage(), e);
+        } finally {
+            metrics.record("db.getHomes", start);
         }
-        return homeNames;
+        return new ArrayList<>();
     }
 
     public boolean deleteHome(UUID uuid, String homeName) {
-        if (connection == null) return false;
-        String sql = "DELETE FROM player_homes WHERE uuid = ? AND home_name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            pstmt.setString(2, homeName.toLowerCase());
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+        if (store == null) return false;
+        long start = metrics.start();
+        CompletableFuture<HomeWriteResult> pending = writeQueue.enqueueDelete(uuid, homeName);
+        writeQueue.flushIfPending(uuid);
+        HomeWriteResult result = pending.join();
+        recordWrite("db.deleteHome", start, result);
+        return result.isSuccess();
+    }
+
+    private void recordWrite(String name, long start, HomeWriteResult result) {
+        if (result == HomeWriteResult.ERROR) {
+            metrics.recordError(name);
+        }
+        metrics.record(name, start);
+    }
+
+    // --- Home Usage Methods ---
+
+    public CompletableFuture<Boolean> recordHomeUseAsync(UUID uuid, String homeName, long usedAt) {
+        return timedAsync("db.recordHomeUseAsync", supplyAsync(() -> recordHomeUse(uuid, homeName, usedAt), false));
+    }
+
+    /**
+     * Counts one teleport to a home and stores when it happened.
+     */
+    public boolean recordHomeUse(UUID uuid, String homeName, long usedAt) {
+        if (store == null) return false;
+        long start = metrics.start();
+        writeQueue.flushIfPending(uuid);
+        try {
+            return store.recordHomeUse(uuid, homeName, usedAt);
+        } catch (SQLException e) {
+            metrics.recordError("db.recordHomeUse");
+            logger.log(Level.SEVERE, "Could not record use of home '" + homeName + "' for " + uuid + ": " + e.getMessage(), e);
+            return false;
+        } finally {
+            metrics.record("db.recordHomeUse", start);
+        }
+    }
+
+    /**
+     * Returns the usage of every home the player has used at least once.
+     */
+    public Map<String, HomeUsage> getHomeUsage(UUID uuid) {
+        if (store == null) return new HashMap<>();
+        long start = metrics.start();
+        writeQueue.flushIfPending(uuid);
+        try {
+            return store.getHomeUsage(uuid);
+        } catch (SQLException e) {
+            metrics.recordError("db.getHomeUsage");
+            logger.log(Level.SEVERE, "Could not retrieve home usage for " + uuid + ": " + e.getMessage(), e);
+        } finally {
+            metrics.record("db.getHomeUsage", start);
+        }
+        return new HashMap<>();
+    }
+
+    // --- Teleport Cooldown Methods ---
+
+    /**
+     * Deletes expired cooldowns and returns the rest.
+     */
+    public List<TeleportManager.Cooldown> loadCooldowns(long now) {
+        if (store == null) return new ArrayList<>();
+        try {
+            return store.loadCooldowns(now);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Could not load teleport cooldowns: " + e.getMessage(), e);
+        }
+        return new ArrayList<>();
+    }
+
+    public CompletableFuture<Boolean> saveCooldownAsync(TeleportManager.Cooldown cooldown) {
+        return timedAsync("db.saveCooldownAsync", supplyAsync(() -> saveCooldown(cooldown), false));
+    }
+
+    public boolean saveCooldown(TeleportManager.Cooldown cooldown) {
+        if (store == null) return false;
+        long start = metrics.start();
+        try {
+            store.saveCooldown(cooldown);
+            return true;
+        } catch (SQLException e) {
+            metrics.recordError("db.saveCooldown");
+            logger.log(Level.SEVERE, "Could not save teleport cooldown for " + cooldown.uuid() + ": " + e.getMessage(), e);
+            return false;
+        } finally {
+            metrics.record("db.saveCooldown", start);
+        }
+    }
+
+    // --- Bulk Transfer Methods ---
+
+    /**
+     * Streams every home, then every home limit, to the given consumers.
+     */
+    void exportAll(BiConsumer<UUID, Home> homes, ObjIntConsumer<UUID> limits) throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        // Include writes that are still queued.
+        writeQueue.flush();
+        store.exportAll(homes, limits);
+    }
+
+    /**
+     * Writes one chunk of imported rows in a single transaction. Homes replace existing homes of the same name
+     * without a limit check; limits are clamped to the configured maximum.
+     */
+    void importChunk(List<HomeTransfer.Row> rows) throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        store.importChunk(rows, this.maxHomeLimit);
+    }
+
+    /**
+     * The limit importChunk stores for an imported limit.
+     */
+    int clampImportedLimit(int limit) {
+        return Math.max(1, Math.min(limit, this.maxHomeLimit));
+    }
+
+    // --- History ---
+
+    void appendHistory(List<HomeChange> changes) throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        long start = metrics.start();
+        try {
+            store.appendHistory(changes);
+        } catch (SQLException e) {
+            metrics.recordError("db.appendHistory");
+            throw e;
+        } finally {
+            metrics.record("db.appendHistory", start);
+        }
+    }
+
+    /**
+     * Up to limit of the player's home changes, newest first, after skipping offset. Falls back to an empty list.
+     */
+    public List<HomeChange> getHistory(UUID uuid, int offset, int limit) {
+        if (store == null) return new ArrayList<>();
+        long start = metrics.start();
+        try {
+            return store.getHistory(uuid, offset, limit);
+        } catch (SQLException e) {
+            metrics.recordError("db.getHistory");
+            logger.log(Level.SEVERE, "Could not retrieve home history for " + uuid + ": " + e.getMessage(), e);
+        } finally {
+            metrics.record("db.getHistory", start);
+        }
+        return new ArrayList<>();
+    }
+
+    int pruneHistory(long changedBefore) throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        return store.pruneHistory(changedBefore);
+    }
+
+    // --- Maintenance ---
+
+    void optimize() throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        store.optimize();
+    }
+
+    long releaseFreePages(int maxPages) throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        return store.releaseFreePages(maxPages);
+    }
+
+    long checkpoint() throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        return store.checkpoint();
+    }
+
+    List<String> getWorldNames() throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        return store.getWorldNames();
+    }
+
+    List<HomeTransfer.Row> getHomesInWorld(String world, int limit) throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        return store.getHomesInWorld(world, limit);
+    }
+
+    int deleteHomes(List<HomeTransfer.Row> homes) throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        return store.deleteHomes(homes);
+    }
+
+    // --- Backups ---
+
+    boolean snapshot(File target, File archiveTarget) throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        // Include writes that are still queued.
+        writeQueue.flush();
+        long start = metrics.start();
+        try {
+            return store.snapshot(target, archiveTarget);
+        } catch (SQLException e) {
+            metrics.recordError("db.snapshot");
+            throw e;
+        } finally {
+            metrics.record("db.snapshot", start);
+        }
+    }
+
+    // --- Cold Storage ---
+
+    int archiveInactivePlayers(long seenBefore, int limit, Set<UUID> exclude) throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        return store.archiveInactivePlayers(seenBefore, limit, exclude);
+    }
+
+    /**
+     * Moves an archived player's homes back into the database. Blocks, so call it off the main thread.
+     * Returns true if the player was archived.
+     */
+    public boolean restoreArchivedPlayer(UUID uuid) {
+        if (store == null || store.countArchivedPlayers() == 0) return false;
+        long start = metrics.start();
+        try {
+            int homes = store.restoreArchivedPlayer(uuid);
+            if (homes < 0) return false;
+            logger.info("Restored " + homes + " archived homes of " + uuid + ".");
+            return true;
+        } catch (SQLException e) {
+            metrics.recordError("db.restoreArchivedPlayer");
+            logger.log(Level.SEVERE, "Could not restore archived homes of " + uuid + ": " + e.getMessage(), e);
+            return false;
+        } finally {
+            metrics.record("db.restoreArchivedPlayer", start);
+        }
+    }
+
+    public CompletableFuture<Boolean> restoreArchivedPlayerAsync(UUID uuid) {
+        if (store == null || store.countArchivedPlayers() == 0) return CompletableFuture.completedFuture(false);
+        return timedAsync("db.restoreArchivedPlayerAsync", supplyAsync(() -> restoreArchivedPlayer(uuid), false));
+    }
+
+    public long countArchivedPlayers() {
+        return store != null ? store.countArchivedPlayers() : 0;
+    }
+
+    // --- Player Name Methods ---
+
+    /**
+     * Returns every known player name, oldest first.
+     */
+    public List<PlayerNameIndex.Entry> getPlayerNames() {
+        if (store == null) return new ArrayList<>();
+        long start = metrics.start();
+        try {
+            return store.getPlayerNames();
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not delete home '" + homeName + "' for " + uuid + ": " + e.getMessage(), e);
+            metrics.recordError("db.getPlayerNames");
+            logger.log(Level.SEVERE, "Could not load player names: " + e.getMessage(), e);
+        } finally {
+            metrics.record("db.getPlayerNames", start);
+        }
+        return new ArrayList<>();
+    }
+
+    public CompletableFuture<Boolean> updatePlayerNameAsync(UUID uuid, String name, long lastSeen) {
+        return timedAsync("db.updatePlayerNameAsync", supplyAsync(() -> updatePlayerName(uuid, name, lastSeen), false));
+    }
+
+    /**
+     * Stores a player's current name, replacing their previous name and any other player that used to have it.
+     */
+    public boolean updatePlayerName(UUID uuid, String name, long lastSeen) {
+        if (store == null) return false;
+        long start = metrics.start();
+        try {
+            store.updatePlayerName(uuid, name, lastSeen);
+            return true;
+        } catch (SQLException e) {
+            metrics.recordError("db.updatePlayerName");
+            logger.log(Level.SEVERE, "Could not store player name " + name + " for " + uuid + ": " + e.getMessage(), e);
             return false;
+        } finally {
+            metrics.record("db.updatePlayerName", start);
+        }
+    }
+
+    /**
+     * Adds names that are not known yet, in one transaction. Used to import the server's players once.
+     */
+    public int addPlayerNames(List<PlayerNameIndex.Entry> entries) {
+        if (store == null || entries.isEmpty()) return 0;
+        try {
+            return store.addPlayerNames(entries);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Could not import player names: " + e.getMessage(), e);
+            return 0;
         }
     }
 
-} 
\ No newline at end of file
+    /**
+     * Applies a batch of coalesced home writes in one transaction.
+     * Writes are executed one by one so that limit checks see the homes created earlier in the batch.
+     */
+    HomeWriteResult[] applyHomeWrites(List<WriteBehindQueue.PendingWrite> writes) throws SQLException {
+        if (store == null) throw new SQLException("No database connection.");
+        long start = metrics.start();
+        try {
+            return store.applyHomeWrites(writes, maxHomeLimit);
+        } catch (SQLException e) {
+            metrics.recordError("db.applyHomeWrites");
+            throw e;
+        } finally {
+            metrics.record("db.applyHomeWrites", start);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Database, executor and write-behind settings read from config.yml.
+ */
+public record DatabaseSettings(int ioThreads,
+                               int ioQueueCapacity,
+                               int readerPoolSize,
+                               String journalMode,
+                               String synchronous,
+                               long cacheSize,
+                               long mmapSize,
+                               int busyTimeoutMillis,
+                               boolean writeBehindEnabled,
+                               int writeBatchSize,
+                               int writeFlushIntervalTicks,
+                               int writeStatsLogIntervalSeconds) {
+
+    private static final Set<String> JOURNAL_MODES = Set.of("WAL", "DELETE", "TRUNCATE", "PERSIST", "MEMORY");
+    private static final Set<String> SYNCHRONOUS_MODES = Set.of("OFF", "NORMAL", "FULL", "EXTRA");
+
+    public static DatabaseSettings load(FileConfiguration config, Logger logger) {
+        return new DatabaseSettings(
+                atLeast(config, logger, "database.io-threads", 2, 1),
+                atLeast(config, logger, "database.io-queue-capacity", 1000, 1),
+                atLeast(config, logger, "database.reader-pool-size", 2, 0),
+                oneOf(config, logger, "database.journal-mode", "WAL", JOURNAL_MODES),
+                oneOf(config, logger, "database.synchronous", "NORMAL", SYNCHRONOUS_MODES),
+                config.getLong("database.cache-size", -8000),
+                Math.max(0, config.getLong("database.mmap-size", 67108864)),
+                atLeast(config, logger, "database.busy-timeout-ms", 5000, 0),
+                config.getBoolean("write-behind.enabled", true),
+                atLeast(config, logger, "write-behind.max-batch-size", 256, 1),
+                atLeast(config, logger, "write-behind.flush-interval-ticks", 10, 1),
+                atLeast(config, logger, "write-behind.stats-log-interval-seconds", 0, 0));
+    }
+
+    static int atLeast(FileConfiguration config, Logger logger, String path, int defaultValue, int minimum) {
+        int value = config.getInt(path, defaultValue);
+        if (value < minimum) {
+            logger.warning("Invalid " + path + " in config.yml (must be >= " + minimum + "). Using default value: " + defaultValue);
+            return defaultValue;
+        }
+        return value;
+    }
+
+    private static String oneOf(FileConfiguration config, Logger logger, String path, String defaultValue, Set<String> allowed) {
+        String value = config.getString(path, defaultValue).toUpperCase();
+        if (!allowed.contains(value)) {
+            logger.warning("Invalid " + path + " in config.yml (must be one of " + allowed + "). Using default value: " + defaultValue);
+            return defaultValue;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,93 @@
+package com.jellypudding.simpleHome;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A HikariCP pool for a networked database. Unlike SQLite, the server handles concurrent writers itself,
+ * so every call simply borrows a connection; statement caching is left to the JDBC driver.
+ */
+public class HikariConnectionPool implements SqlConnections {
+
+    private final HikariDataSource dataSource;
+
+    public HikariConnectionPool(StorageSettings settings) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("SimpleHome");
+        config.setJdbcUrl(settings.jdbcUrl());
+        config.setUsername(settings.username());
+        config.setPassword(settings.password());
+        if (settings.driverClass() != null) {
+            config.setDriverClassName(settings.driverClass());
+        }
+        config.setMaximumPoolSize(settings.poolSize());
+        config.setMinimumIdle(Math.min(settings.minimumIdle(), settings.poolSize()));
+        config.setConnectionTimeout(settings.connectionTimeoutMillis());
+        config.setIdleTimeout(settings.idleTimeoutMillis());
+        config.setMaxLifetime(settings.maxLifetimeMillis());
+        if (settings.dialect() == SqlDialect.MYSQL) {
+            // InnoDB's default REPEATABLE READ would keep a home quota check reading the count from before the
+            // limit row lock was granted; PostgreSQL already defaults to READ COMMITTED.
+            config.setTransactionIsolation("TRANSACTION_READ_COMMITTED");
+        }
+        // Driver properties are only understood by the driver they belong to, so they follow the URL, not the dialect.
+        String url = settings.jdbcUrl().toLowerCase();
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+        }
+        if (url.startsWith("jdbc:mysql:")) {
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            // Lets a positive fetch size stream large result sets instead of buffering them. MariaDB's driver does so anyway.
+            config.addDataSourceProperty("useCursorFetch", "true");
+        }
+        this.dataSource = new HikariDataSource(config);
+    }
+
+    @Override
+    public <T> T read(SqlFunction<T> work) throws SQLException {
+        try (PooledConnection connection = new PooledConnection(dataSource.getConnection())) {
+            return work.apply(connection);
+        }
+    }
+
+    @Override
+    public <T> T write(SqlFunction<T> work) throws SQLException {
+        return read(work);
+    }
+
+    @Override
+    public <T> T transaction(SqlFunction<T> work) throws SQLException {
+        try (PooledConnection connection = new PooledConnection(dataSource.getConnection())) {
+            Connection raw = connection.raw();
+            raw.setAutoCommit(false);
+            try {
+                T result = work.apply(connection);
+                raw.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                raw.rollback();
+                throw e;
+            } finally {
+                raw.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * PostgreSQL only honours the fetch size inside a transaction.
+     */
+    @Override
+    public <T> T stream(SqlFunction<T> work) throws SQLException {
+        return transaction(work);
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,22 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.logging.Logger;
+
+/**
+ * Home history (audit journal) settings read from config.yml.
+ */
+public record HistorySettings(boolean enabled,
+                              int batchSize,
+                              int flushIntervalSeconds,
+                              int retentionDays) {
+
+    public static HistorySettings load(FileConfiguration config, Logger logger) {
+        return new HistorySettings(
+                config.getBoolean("history.enabled", true),
+                DatabaseSettings.atLeast(config, logger, "history.batch-size", 200, 1),
+                DatabaseSettings.atLeast(config, logger, "history.flush-interval-seconds", 5, 1),
+                DatabaseSettings.atLeast(config, logger, "history.retention-days", 180, 0));
+    }
+}
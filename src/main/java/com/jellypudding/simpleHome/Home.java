@@ -0,0 +1,17 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+public record Home(String name, String world, double x, double y, double z, float yaw, float pitch) {
+
+    public static Home of(String name, Location location) {
+        return new Home(name.toLowerCase(), location.getWorld().getName(),
+                location.getX(), location.getY(), location.getZ(),
+                location.getYaw(), location.getPitch());
+    }
+
+    public Location toLocation(World world) {
+        return new Location(world, x, y, z, yaw, pitch);
+    }
+}
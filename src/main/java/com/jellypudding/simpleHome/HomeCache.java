@@ -0,0 +1,624 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the homes and home limit of online players in memory so that reads never reach the database.
+ * Players that are not cached (offline targets of admin commands) are read straight from the database.
+ * When several servers share the database, every write is announced on an invalidation bus and the other
+ * servers refresh just that player's entry. Successful writes are recorded in the {@link HomeHistory}, together
+ * with the actor that made them.
+ */
+public class HomeCache {
+
+    private final JavaPlugin plugin;
+    private final DatabaseManager databaseManager;
+    private final long evictionDelayTicks;
+    private final Map<UUID, PlayerHomes> entries = new ConcurrentHashMap<>();
+    private final Set<UUID> loading = ConcurrentHashMap.newKeySet();
+    // Player -> number of load() calls between the cold-storage restore and the fetch, which maintenance must not
+    // archive in between.
+    private final Map<UUID, Integer> loadsInProgress = new ConcurrentHashMap<>();
+    private final Metrics metrics;
+    private final HomeSpatialIndex spatialIndex;
+    private final HomeHistory history;
+    // Null when the database is not shared.
+    private final InvalidationBus bus;
+    private final String nodeId = UUID.randomUUID().toString();
+    // Source of PlayerHomes versions, so a reloaded entry never reuses the version of the entry it replaces.
+    private final AtomicLong versions = new AtomicLong();
+
+    // Statistics.
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidationsSent = new LongAdder();
+    private final LongAdder invalidationsReceived = new LongAdder();
+
+    private static final int MAX_REFRESH_ATTEMPTS = 3;
+    // How long a pre-login load waits for the player to join before it is dropped.
+    private static final long LOGIN_TIMEOUT_TICKS = 60 * 20L;
+
+    public HomeCache(JavaPlugin plugin, DatabaseManager databaseManager, int evictionDelaySeconds, Metrics metrics,
+                     HomeSpatialIndex spatialIndex, HomeHistory history, InvalidationBus bus) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.evictionDelayTicks = Math.max(0, evictionDelaySeconds) * 20L;
+        this.metrics = metrics;
+        this.spatialIndex = spatialIndex;
+        this.history = history;
+        this.bus = bus;
+        metrics.gauge("cache.hits", hits::sum);
+        metrics.gauge("cache.misses", misses::sum);
+        metrics.gauge("cache.players", entries::size);
+    }
+
+    // --- Lifecycle ---
+
+    /**
+     * Loads a player's homes into the cache, first moving them back from cold storage if they were archived.
+     * Blocks on the database, so call it off the main thread.
+     */
+    public void load(UUID uuid) {
+        long loginTime = System.currentTimeMillis();
+        loadsInProgress.merge(uuid, 1, Integer::sum);
+        try {
+            if (!entries.containsKey(uuid)) {
+                databaseManager.restoreArchivedPlayer(uuid);
+            }
+            PlayerHomes cached = entries.computeIfAbsent(uuid, this::fetch);
+            cached.lastLogin = loginTime;
+        } finally {
+            loadsInProgress.computeIfPresent(uuid, (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    public void scheduleEviction(UUID uuid) {
+        PlayerHomes cached = entries.get(uuid);
+        if (cached == null) return;
+
+        long quitTime = System.currentTimeMillis();
+        Schedulers.runGlobalLater(plugin, () -> {
+            // Keep the entry if the player came back during the grace period.
+            if (plugin.getServer().getPlayer(uuid) == null && cached.lastLogin <= quitTime) {
+                entries.remove(uuid, cached);
+            }
+        }, evictionDelayTicks);
+    }
+
+    /**
+     * Drops an entry loaded at pre-login if the player is still not online once the login should have completed,
+     * e.g. because a plugin refused the login after pre-login or the connection dropped before the join.
+     */
+    public void scheduleLoginTimeout(UUID uuid) {
+        PlayerHomes cached = entries.get(uuid);
+        if (cached == null) return;
+
+        long loginTime = cached.lastLogin;
+        Schedulers.runGlobalLater(plugin, () -> {
+            // A later login renews the entry and schedules its own timeout.
+            if (plugin.getServer().getPlayer(uuid) == null && cached.lastLogin == loginTime) {
+                entries.remove(uuid, cached);
+            }
+        }, Math.max(evictionDelayTicks, LOGIN_TIMEOUT_TICKS));
+    }
+
+    /**
+     * Whether the player is cached. If not, loads them in the background, restoring them from cold storage first
+     * like a login does, and evicts them again after the grace period unless they are online. Never touches the
+     * database on the calling thread.
+     */
+    public boolean ensureLoaded(UUID uuid) {
+        if (entries.containsKey(uuid)) return true;
+        if (loading.add(uuid)) {
+            databaseManager.supplyAsync(() -> {
+                load(uuid);
+                scheduleEviction(uuid);
+                return null;
+            }, null).whenComplete((ignored, error) -> loading.remove(uuid));
+        }
+        return false;
+    }
+
+    public void invalidate(UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    /**
+     * Forgets homes deleted without going through the cache, e.g. by maintenance. Homes that were moved to another
+     * world since the rows were read stay cached and indexed.
+     */
+    public void homesDeleted(List<HomeTransfer.Row> rows) {
+        for (HomeTransfer.Row row : rows) {
+            String homeName = row.home().name().toLowerCase();
+            entries.computeIfPresent(row.uuid(), (key, cached) -> {
+                Home home = cached.homes.get(homeName);
+                if (home != null && home.world().equals(row.home().world())) {
+                    cached.remove(homeName);
+                    cached.version = versions.incrementAndGet();
+                }
+                return cached;
+            });
+            spatialIndex.remove(row.uuid(), homeName, row.home().world());
+            history.record(HomeChange.delete(row.uuid(), homeName, false, HomeChange.MAINTENANCE));
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * A live view of the players currently cached.
+     */
+    public Set<UUID> cachedPlayers() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * A live view of the players that must not be moved to cold storage: the cached ones and those being loaded.
+     */
+    public Set<UUID> activePlayers() {
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object uuid) {
+                return entries.containsKey(uuid) || loadsInProgress.containsKey(uuid);
+            }
+
+            @Override
+            public Iterator<UUID> iterator() {
+                return Stream.concat(entries.keySet().stream(), loadsInProgress.keySet().stream()).distinct().iterator();
+            }
+
+            @Override
+            public int size() {
+                return entries.size() + loadsInProgress.size();
+            }
+        };
+    }
+
+    /**
+     * Reloads every cached player from the database, e.g. after an import changed their rows. Blocks on the
+     * database, so call it off the main thread.
+     */
+    public void reloadAll() {
+        spatialIndex.invalidateAll();
+        reloadEntries();
+        publish(null);
+    }
+
+    private void reloadEntries() {
+        for (UUID uuid : entries.keySet()) {
+            refresh(uuid);
+        }
+    }
+
+    /**
+     * Replaces a cached entry with a fresh copy from the database. A local write that lands while the copy is
+     * being read may be missing from it, so the read is repeated; after a few attempts the entry is dropped instead.
+     */
+    private void refresh(UUID uuid) {
+        for (int attempt = 0; attempt < MAX_REFRESH_ATTEMPTS; attempt++) {
+            PlayerHomes before = entries.get(uuid);
+            if (before == null) return;
+            long version = before.version;
+            PlayerHomes fresh = fetch(uuid);
+            boolean[] replaced = {false};
+            entries.computeIfPresent(uuid, (key, cached) -> {
+                if (cached != before || cached.version != version) return cached;
+                fresh.lastLogin = cached.lastLogin;
+                replaced[0] = true;
+                return fresh;
+            });
+            if (replaced[0]) {
+                spatialIndex.replacePlayer(uuid, fresh.homes.values());
+                return;
+            }
+            if (!entries.containsKey(uuid)) return;
+        }
+        entries.remove(uuid);
+    }
+
+    // --- Invalidation ---
+
+    private void publish(UUID uuid) {
+        if (bus == null) return;
+        invalidationsSent.increment();
+        bus.publish(new Invalidation(nodeId, uuid, System.currentTimeMillis()));
+    }
+
+    private boolean published(UUID uuid, boolean success) {
+        if (success) {
+            publish(uuid);
+        }
+        return success;
+    }
+
+    /**
+     * Called by the bus, on any thread, when another server changed a player's homes or limit.
+     */
+    public void onInvalidation(Invalidation invalidation) {
+        if (nodeId.equals(invalidation.origin())) return;
+        invalidationsReceived.increment();
+        // Relies on the servers' clocks being in sync.
+        long lagMillis = Math.max(0, System.currentTimeMillis() - invalidation.sentAt());
+        metrics.recordWait("cache.invalidation.lag", lagMillis * 1_000_000);
+
+        UUID uuid = invalidation.uuid();
+        if (uuid == null) {
+            spatialIndex.invalidateAll();
+        } else if (!entries.containsKey(uuid)) {
+            // Not cached here, but its homes may be indexed.
+            if (spatialIndex.isBuilt()) {
+                databaseManager.getAllHomesAsync(uuid).thenAccept(homes -> spatialIndex.replacePlayer(uuid, homes));
+            }
+            return;
+        }
+        databaseManager.supplyAsync(() -> {
+            if (uuid == null) {
+                reloadEntries();
+            } else {
+                refresh(uuid);
+            }
+            return null;
+        }, null);
+    }
+
+    private PlayerHomes fetch(UUID uuid) {
+        PlayerHomes loaded = new PlayerHomes(databaseManager.getHomeLimit(uuid));
+        loaded.version = versions.incrementAndGet();
+        List<String> names = new ArrayList<>();
+        for (Home home : databaseManager.getAllHomes(uuid)) {
+            loaded.homes.put(home.name(), home);
+            names.add(home.name());
+        }
+        loaded.names.addAll(names);
+        loaded.usage.putAll(databaseManager.getHomeUsage(uuid));
+        return loaded;
+    }
+
+    private PlayerHomes lookup(UUID uuid) {
+        PlayerHomes cached = entries.get(uuid);
+        (cached != null ? hits : misses).increment();
+        return cached;
+    }
+
+    // --- Reads ---
+    // The synchronous reads answer cached players from memory and read anyone else from the database on the calling
+    // thread. Callers on the main thread check ensureLoaded first.
+
+    public Home getHome(UUID uuid, String homeName) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getHome(uuid, homeName);
+        return cached.homes.get(homeName.toLowerCase());
+    }
+
+    public List<String> getHomes(UUID uuid) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getHomes(uuid);
+        return cached.names.all();
+    }
+
+    /**
+     * Tab completion for home names. A player that is not cached is loaded in the background (see
+     * {@link #ensureLoaded}), so later keystrokes are answered from memory.
+     */
+    public List<String> completeHomes(UUID uuid, String lowercasePrefix) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached != null) return cached.names.startingWith(lowercasePrefix);
+        ensureLoaded(uuid);
+        return Collections.emptyList();
+    }
+
+    public int getHomeCount(UUID uuid) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getHomeCount(uuid);
+        return cached.homes.size();
+    }
+
+    public boolean hasHome(UUID uuid, String homeName) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getHome(uuid, homeName) != null;
+        return cached.homes.containsKey(homeName.toLowerCase());
+    }
+
+    public int getHomeLimit(UUID uuid) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getHomeLimit(uuid);
+        return cached.limit;
+    }
+
+    /**
+     * Changes whenever a cached player's homes or limit change, including reloads from the database.
+     * Returns -1 for players that are not cached.
+     */
+    public long version(UUID uuid) {
+        PlayerHomes cached = entries.get(uuid);
+        return cached != null ? cached.version : -1;
+    }
+
+    public CompletableFuture<Map<String, HomeUsage>> getHomeUsageAsync(UUID uuid) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getHomeUsageAsync(uuid);
+        return CompletableFuture.completedFuture(Map.copyOf(cached.usage));
+    }
+
+    public CompletableFuture<Home> getHomeAsync(UUID uuid, String homeName) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getHomeAsync(uuid, homeName);
+        return CompletableFuture.completedFuture(cached.homes.get(homeName.toLowerCase()));
+    }
+
+    public CompletableFuture<List<Home>> getAllHomesAsync(UUID uuid) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getAllHomesAsync(uuid);
+        List<Home> homes = new ArrayList<>();
+        for (String homeName : cached.names.all()) {
+            Home home = cached.homes.get(homeName);
+            if (home != null) homes.add(home);
+        }
+        return CompletableFuture.completedFuture(homes);
+    }
+
+    public CompletableFuture<List<String>> getHomesAsync(UUID uuid) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getHomesAsync(uuid);
+        return CompletableFuture.completedFuture(cached.names.all());
+    }
+
+    public CompletableFuture<Integer> getHomeCountAsync(UUID uuid) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getHomeCountAsync(uuid);
+        return CompletableFuture.completedFuture(cached.homes.size());
+    }
+
+    public CompletableFuture<Integer> getHomeLimitAsync(UUID uuid) {
+        PlayerHomes cached = lookup(uuid);
+        if (cached == null) return databaseManager.getHomeLimitAsync(uuid);
+        return CompletableFuture.completedFuture(cached.limit);
+    }
+
+    /**
+     * Limits of many players: cached players from memory, the rest in one database round trip.
+     */
+    public CompletableFuture<Map<UUID, Integer>> getHomeLimitsAsync(Collection<UUID> uuids) {
+        return bulkAsync(uuids, cached -> cached.limit, databaseManager::getHomeLimitsAsync);
+    }
+
+    /**
+     * Home counts of many players: cached players from memory, the rest in one database round trip.
+     */
+    public CompletableFuture<Map<UUID, Integer>> getHomeCountsAsync(Collection<UUID> uuids) {
+        return bulkAsync(uuids, cached -> cached.homes.size(), databaseManager::getHomeCountsAsync);
+    }
+
+    private CompletableFuture<Map<UUID, Integer>> bulkAsync(Collection<UUID> uuids, ToIntFunction<PlayerHomes> cachedValue,
+                                                            Function<List<UUID>, CompletableFuture<Map<UUID, Integer>>> load) {
+        Map<UUID, Integer> values = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            PlayerHomes cached = lookup(uuid);
+            if (cached != null) {
+                values.put(uuid, cachedValue.applyAsInt(cached));
+            } else {
+                missing.add(uuid);
+            }
+        }
+        if (missing.isEmpty()) return CompletableFuture.completedFuture(values);
+        return load.apply(missing).thenApply(loaded -> {
+            values.putAll(loaded);
+            return values;
+        });
+    }
+
+    /**
+     * Picks the home the player is most likely to teleport to next, by use count weighted by recency.
+     * Without any recorded use, falls back to the home named fallbackHomeName or the only home.
+     * Returns null for players that are not cached; this never reads the database.
+     */
+    public Home getMostLikelyHome(UUID uuid, String fallbackHomeName, long halfLifeMillis) {
+        PlayerHomes cached = entries.get(uuid);
+        if (cached == null) return null;
+
+        long now = System.currentTimeMillis();
+        Home best = null;
+        double bestScore = 0;
+        for (Map.Entry<String, HomeUsage> entry : cached.usage.entrySet()) {
+            double score = entry.getValue().score(now, halfLifeMillis);
+            Home home = cached.homes.get(entry.getKey());
+            if (home != null && score > bestScore) {
+                best = home;
+                bestScore = score;
+            }
+        }
+        if (best != null) return best;
+        Home fallback = cached.homes.get(fallbackHomeName.toLowerCase());
+        if (fallback != null) return fallback;
+        return cached.homes.size() == 1 ? cached.homes.values().iterator().next() : null;
+    }
+
+    /**
+     * Counts a teleport to a home, in the cache right away and in the database in the background.
+     */
+    public void recordUse(UUID uuid, String homeName) {
+        String key = homeName.toLowerCase();
+        long now = System.currentTimeMillis();
+        PlayerHomes cached = entries.get(uuid);
+        if (cached != null && cached.homes.containsKey(key)) {
+            cached.usage.merge(key, HomeUsage.UNUSED.used(now), (previous, ignored) -> previous.used(now));
+        }
+        databaseManager.recordHomeUseAsync(uuid, key, now);
+    }
+
+    // --- Writes (database first, then the cached copy and the history) ---
+    // actor is the name of the player or console making the change, or one of the HomeChange constants.
+
+    public boolean setHome(UUID uuid, Home home, String actor) {
+        return published(uuid, cacheHome(uuid, home, databaseManager.setHome(uuid, home), actor));
+    }
+
+    public CompletableFuture<Boolean> setHomeAsync(UUID uuid, Home home, String actor) {
+        return databaseManager.setHomeAsync(uuid, home).thenApply(success -> published(uuid, cacheHome(uuid, home, success, actor)));
+    }
+
+    public CompletableFuture<HomeWriteResult> setHomeWithinLimitAsync(UUID uuid, Home home, String actor) {
+        return databaseManager.setHomeWithinLimitAsync(uuid, home).thenApply(result -> {
+            published(uuid, cacheHome(uuid, home, result.isSuccess(), actor));
+            return result;
+        });
+    }
+
+    public boolean deleteHome(UUID uuid, String homeName, String actor) {
+        return published(uuid, uncacheHome(uuid, homeName, databaseManager.deleteHome(uuid, homeName), false, actor));
+    }
+
+    public CompletableFuture<Boolean> deleteHomeAsync(UUID uuid, String homeName, String actor) {
+        return databaseManager.deleteHomeAsync(uuid, homeName).thenApply(success -> published(uuid, uncacheHome(uuid, homeName, success, false, actor)));
+    }
+
+    public boolean setHomeLimit(UUID uuid, int limit, String actor) {
+        return published(uuid, cacheLimit(uuid, limit, databaseManager.setHomeLimit(uuid, limit), actor));
+    }
+
+    public CompletableFuture<Boolean> setHomeLimitAsync(UUID uuid, int limit, String actor) {
+        return databaseManager.setHomeLimitAsync(uuid, limit).thenApply(success -> published(uuid, cacheLimit(uuid, limit, success, actor)));
+    }
+
+    /**
+     * Sets the limit of several players in one transaction, trimming homes that no longer fit.
+     * Completes with the deleted home names per player, or null if the transaction failed.
+     */
+    public CompletableFuture<Map<UUID, List<String>>> setHomeLimitsAsync(Collection<UUID> uuids, int limit, String actor) {
+        return databaseManager.setHomeLimitsAsync(uuids, limit).thenApply(deleted -> {
+            if (deleted != null) {
+                deleted.forEach((uuid, homeNames) -> {
+                    for (String homeName : homeNames) {
+                        uncacheHome(uuid, homeName, true, true, actor);
+                    }
+                    cacheLimit(uuid, limit, true, actor);
+                    publish(uuid);
+                });
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Completes with the new limit, -1 if it was already at the maximum, or 0 if the update failed.
+     */
+    public CompletableFuture<Integer> increaseHomeLimitAsync(UUID uuid, String actor) {
+        return databaseManager.increaseHomeLimitAsync(uuid).thenApply(newLimit -> {
+            if (newLimit > 0) {
+                published(uuid, cacheLimit(uuid, newLimit, true, actor));
+            }
+            return newLimit;
+        });
+    }
+
+    /**
+     * Lowers the limit by one, trimming homes that no longer fit. Completes with null if the update failed.
+     */
+    public CompletableFuture<HomeStore.LimitDecrease> decreaseHomeLimitAsync(UUID uuid, String actor) {
+        return databaseManager.decreaseHomeLimitAsync(uuid).thenApply(result -> {
+            if (result != null && result.limit() > 0) {
+                for (String homeName : result.deletedHomes()) {
+                    uncacheHome(uuid, homeName, true, true, actor);
+                }
+                cacheLimit(uuid, result.limit(), true, actor);
+                publish(uuid);
+            }
+            return result;
+        });
+    }
+
+    private boolean cacheHome(UUID uuid, Home home, boolean success, String actor) {
+        if (success) {
+            history.record(HomeChange.set(uuid, home, actor));
+            spatialIndex.put(uuid, home);
+            entries.computeIfPresent(uuid, (key, cached) -> {
+                cached.put(home);
+                cached.version = versions.incrementAndGet();
+                return cached;
+            });
+        }
+        return success;
+    }
+
+    private boolean uncacheHome(UUID uuid, String homeName, boolean success, boolean auto, String actor) {
+        if (success) {
+            history.record(HomeChange.delete(uuid, homeName, auto, actor));
+            spatialIndex.remove(uuid, homeName);
+            entries.computeIfPresent(uuid, (key, cached) -> {
+                cached.remove(homeName.toLowerCase());
+                cached.version = versions.incrementAndGet();
+                return cached;
+            });
+        }
+        return success;
+    }
+
+    private boolean cacheLimit(UUID uuid, int limit, boolean success, String actor) {
+        if (success) {
+            history.record(HomeChange.limit(uuid, limit, actor));
+            entries.computeIfPresent(uuid, (key, cached) -> {
+                cached.limit = limit;
+                cached.version = versions.incrementAndGet();
+                return cached;
+            });
+        }
+        return success;
+    }
+
+    public String describeStats() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return String.format("Home cache: %d players, %.1f%% hit rate (%d lookups), invalidations %d sent / %d received via %s",
+                entries.size(), total == 0 ? 0.0 : 100.0 * hitCount / total, total,
+                invalidationsSent.sum(), invalidationsReceived.sum(), bus == null ? "none" : bus.describe());
+    }
+
+    private static final class PlayerHomes {
+        private final Map<String, Home> homes = new ConcurrentHashMap<>();
+        // Sorted names, matching the ORDER BY home_name of the database queries.
+        private final PrefixIndex names = new PrefixIndex();
+        private final Map<String, HomeUsage> usage = new ConcurrentHashMap<>();
+        private volatile int limit;
+        private volatile long lastLogin;
+        // Renewed on every local write, so a refresh can tell whether its copy from the database is already outdated.
+        private volatile long version;
+
+        private PlayerHomes(int limit) {
+            this.limit = limit;
+        }
+
+        private void put(Home home) {
+            if (homes.put(home.name(), home) == null) {
+                names.add(home.name());
+            }
+        }
+
+        private void remove(String homeName) {
+            if (homes.remove(homeName) != null) {
+                names.remove(homeName);
+                usage.remove(homeName);
+            }
+        }
+    }
+}
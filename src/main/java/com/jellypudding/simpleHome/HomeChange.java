@@ -0,0 +1,52 @@
+package com.jellypudding.simpleHome;
+
+import java.util.UUID;
+
+/**
+ * One change to a player's homes or home limit, as kept in the home history and passed to {@link HomeChangeEvent}.
+ * home is only set for SET, and limit (the new limit) only for LIMIT and IMPORT. actor is the name of the player or
+ * console that made the change, or {@link #PLUGIN} / {@link #MAINTENANCE}.
+ */
+public record HomeChange(long changedAt, UUID player, Action action, String homeName, Home home, int limit,
+                         String actor) {
+
+    public static final String PLUGIN = "plugin";
+    public static final String MAINTENANCE = "maintenance";
+
+    public enum Action {
+        SET,
+        DELETE,
+        // Deleted because a lower home limit left no room for it.
+        AUTO_DELETE,
+        LIMIT,
+        // Homes or the limit replaced by /homeadmin import, one change per player. homeName is the source file and
+        // limit the imported limit, or 0 if the file only had homes for the player.
+        IMPORT;
+
+        static Action fromId(String id) {
+            for (Action action : values()) {
+                if (action.name().equals(id)) return action;
+            }
+            return null;
+        }
+    }
+
+    public static HomeChange set(UUID player, Home home, String actor) {
+        return new HomeChange(System.currentTimeMillis(), player, Action.SET, home.name(), home, 0, actor);
+    }
+
+    public static HomeChange delete(UUID player, String homeName, boolean auto, String actor) {
+        return new HomeChange(System.currentTimeMillis(), player, auto ? Action.AUTO_DELETE : Action.DELETE,
+                homeName.toLowerCase(), null, 0, actor);
+    }
+
+    public static HomeChange limit(UUID player, int limit, String actor) {
+        return new HomeChange(System.currentTimeMillis(), player, Action.LIMIT, null, null, limit, actor);
+    }
+
+    public static HomeChange imported(UUID player, String fileName, int limit, String actor) {
+        // Cut to fit the home_name column.
+        String source = fileName.length() > 32 ? fileName.substring(0, 32) : fileName;
+        return new HomeChange(System.currentTimeMillis(), player, Action.IMPORT, source, null, limit, actor);
+    }
+}
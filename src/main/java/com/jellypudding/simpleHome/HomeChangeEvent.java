@@ -0,0 +1,36 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Called after a home was set or deleted, or a home limit changed, once the change is in the database.
+ * The event is asynchronous: it is called on SimpleHome's event thread, never the main thread, so listeners
+ * must hop to the right thread before using the Bukkit API. Events arrive one at a time, in the order the changes
+ * were made. It can't be cancelled, since the change is already made.
+ * An import fires one event with action IMPORT per imported player, not one per home or limit it replaced.
+ */
+public class HomeChangeEvent extends Event {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final HomeChange change;
+
+    public HomeChangeEvent(HomeChange change) {
+        super(true);
+        this.change = change;
+    }
+
+    public HomeChange getChange() {
+        return change;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,193 @@
+package com.jellypudding.simpleHome;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An append-only journal of home changes. Each change fires a {@link HomeChangeEvent} and, if history is enabled,
+ * is queued and written to the home_history table in batches on a database thread: when a batch is full, on a timer,
+ * and before the history is read. Recording never blocks or touches the database on the caller's thread.
+ * Events are called one at a time on a thread of their own, in the order the changes were recorded.
+ */
+public class HomeHistory {
+
+    public static final int PAGE_SIZE = 10;
+    // Changes kept while the database can't keep up; later ones are dropped and counted.
+    private static final int MAX_PENDING = 100_000;
+    private static final int MAX_PENDING_EVENTS = 10_000;
+
+    public record Page(List<HomeChange> changes, int page, boolean hasNext) {}
+
+    private final JavaPlugin plugin;
+    private final Logger logger;
+    private final DatabaseManager databaseManager;
+    private final HistorySettings settings;
+    private final Metrics metrics;
+
+    private final Queue<HomeChange> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    private final ThreadPoolExecutor events;
+    private ScheduledTask task;
+
+    // Statistics.
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    public HomeHistory(JavaPlugin plugin, DatabaseManager databaseManager, HistorySettings settings, Metrics metrics) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.databaseManager = databaseManager;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.events = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(MAX_PENDING_EVENTS), runnable -> {
+                    Thread thread = new Thread(runnable, "SimpleHome-Events");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public void start() {
+        if (!settings.enabled()) return;
+        long ticks = settings.flushIntervalSeconds() * 20L;
+        task = Schedulers.runAsyncTimer(plugin, this::requestFlush, ticks, ticks);
+    }
+
+    /**
+     * Stops the timer, writes every queued change on the calling thread and lets the queued events finish.
+     * Called on shutdown before the connection is closed.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        flush();
+        events.shutdown();
+        try {
+            if (!events.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Timed out waiting for home change listeners; dropping the remaining events.");
+                events.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            events.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void record(HomeChange change) {
+        fire(change);
+        if (!settings.enabled()) return;
+        if (pendingCount.get() >= MAX_PENDING) {
+            dropped.increment();
+            return;
+        }
+        pending.add(change);
+        if (pendingCount.incrementAndGet() >= settings.batchSize()) {
+            requestFlush();
+        }
+    }
+
+    private void fire(HomeChange change) {
+        if (HomeChangeEvent.getHandlerList().getRegisteredListeners().length == 0) return;
+        // A single thread keeps the events in order and keeps slow listeners off the database threads.
+        try {
+            events.execute(() -> plugin.getServer().getPluginManager().callEvent(new HomeChangeEvent(change)));
+        } catch (RejectedExecutionException e) {
+            droppedEvents.increment();
+        }
+    }
+
+    // --- Flushing ---
+
+    private void requestFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            databaseManager.supplyAsync(() -> {
+                flushScheduled.set(false);
+                flush();
+                return true;
+            }, false).thenAccept(ran -> {
+                // The executor rejected the flush; let the next trigger try again.
+                if (!ran) flushScheduled.set(false);
+            });
+        }
+    }
+
+    /**
+     * Writes every queued change on the calling thread, one transaction per batch.
+     */
+    private void flush() {
+        synchronized (flushLock) {
+            while (!pending.isEmpty()) {
+                List<HomeChange> batch = new ArrayList<>(Math.min(pendingCount.get(), settings.batchSize()));
+                HomeChange change;
+                while (batch.size() < settings.batchSize() && (change = pending.poll()) != null) {
+                    batch.add(change);
+                }
+                pendingCount.addAndGet(-batch.size());
+                try {
+                    databaseManager.appendHistory(batch);
+                    written.add(batch.size());
+                } catch (SQLException e) {
+                    // The changes themselves are already committed; only their history entries are lost.
+                    failedFlushes.increment();
+                    dropped.add(batch.size());
+                    logger.log(Level.SEVERE, "Could not write " + batch.size() + " home history entries: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    // --- Queries ---
+
+    /**
+     * One page of the player's changes, newest first. Queued changes are written first, so the page includes them.
+     */
+    public CompletableFuture<Page> history(UUID uuid, int page) {
+        int current = Math.max(1, page);
+        long start = metrics.start();
+        return databaseManager.supplyAsync(() -> {
+            flush();
+            // One extra row tells whether there is a next page without counting them all.
+            List<HomeChange> changes = databaseManager.getHistory(uuid, (current - 1) * PAGE_SIZE, PAGE_SIZE + 1);
+            boolean hasNext = changes.size() > PAGE_SIZE;
+            return new Page(hasNext ? changes.subList(0, PAGE_SIZE) : changes, current, hasNext);
+        }, new Page(List.of(), current, false)).whenComplete((result, error) -> metrics.record("history.query", start));
+    }
+
+    /**
+     * Deletes changes older than the configured retention. Returns the number deleted; 0 if they are kept forever.
+     * Blocks, so call it off the main thread.
+     */
+    public int prune() throws SQLException {
+        if (settings.retentionDays() == 0) return 0;
+        return databaseManager.pruneHistory(System.currentTimeMillis() - settings.retentionDays() * 86_400_000L);
+    }
+
+    public String describeStats() {
+        return "History: " + (settings.enabled() ? written.sum() + " changes written, " + pendingCount.get() + " queued, " +
+                dropped.sum() + " dropped, " + failedFlushes.sum() + " failed flushes" : "disabled") +
+                (droppedEvents.sum() > 0 ? ", " + droppedEvents.sum() + " change events dropped" : "");
+    }
+}
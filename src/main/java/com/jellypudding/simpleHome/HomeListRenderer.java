@@ -0,0 +1,191 @@
+package com.jellypudding.simpleHome;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders the home lists of /homes and /homeadmin get one page at a time.
+ * Each page is built with a single component builder, so its cost grows linearly with the names on it. Pages of
+ * /homes are kept per player and reused until {@link HomeCache#version} says the player's homes or limit changed.
+ */
+public class HomeListRenderer {
+
+    public static final int PAGE_SIZE = 20;
+
+    public enum Sort {
+        NAME("name"),
+        RECENT("most recently used"),
+        USED("most used");
+
+        private final String description;
+
+        Sort(String description) {
+            this.description = description;
+        }
+
+        public static Sort parse(String value) {
+            for (Sort sort : values()) {
+                if (sort.name().equalsIgnoreCase(value)) return sort;
+            }
+            return null;
+        }
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // Pages rendered for one version of a player's homes; only pages that were asked for are filled in.
+    private record Rendered(long version, Component[] pages) {}
+
+    private final Map<UUID, Rendered> homesPages = new ConcurrentHashMap<>();
+
+    /**
+     * The given page of a player's own home list. Pages are cached while version stays the same; pass a negative
+     * version for players that are not cached, whose pages are not kept either.
+     */
+    public Component homesPage(UUID uuid, long version, List<String> homeNames, int homeLimit, int page) {
+        int pages = pageCount(homeNames.size());
+        int index = Math.min(Math.max(1, page), pages) - 1;
+        if (version < 0) return renderHomesPage(homeNames, homeLimit, index + 1);
+
+        Rendered rendered = homesPages.get(uuid);
+        if (rendered == null || rendered.version() != version || rendered.pages().length != pages) {
+            rendered = new Rendered(version, new Component[pages]);
+            homesPages.put(uuid, rendered);
+        }
+        Component cached = rendered.pages()[index];
+        if (cached == null) {
+            cached = renderHomesPage(homeNames, homeLimit, index + 1);
+            rendered.pages()[index] = cached;
+        }
+        return cached;
+    }
+
+    public void forget(UUID uuid) {
+        homesPages.remove(uuid);
+    }
+
+    public void clear() {
+        homesPages.clear();
+    }
+
+    public int cachedPlayers() {
+        return homesPages.size();
+    }
+
+    public static int pageCount(int homeCount) {
+        return Math.max(1, (homeCount + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    static Component renderHomesPage(List<String> homeNames, int homeLimit, int page) {
+        int pages = pageCount(homeNames.size());
+        int from = (page - 1) * PAGE_SIZE;
+        int to = Math.min(from + PAGE_SIZE, homeNames.size());
+
+        TextComponent.Builder text = Component.text()
+                .content("Your homes (" + homeNames.size() + "/" + homeLimit + ")" +
+                        (pages > 1 ? ", page " + page + "/" + pages : "") + ": ")
+                .color(NamedTextColor.GOLD);
+        HoverEvent<Component> hover = HoverEvent.showText(Component.text("Click to use command."));
+        for (int i = from; i < to; i++) {
+            String name = homeNames.get(i);
+            text.append(Component.text(name)
+                    .clickEvent(ClickEvent.suggestCommand("/home " + name))
+                    .hoverEvent(hover)
+                    .decoration(TextDecoration.UNDERLINED, true)
+                    .color(NamedTextColor.WHITE));
+            if (i < to - 1) {
+                text.append(Component.text(", ").color(NamedTextColor.WHITE));
+            }
+        }
+        appendNavigation(text, page, pages, "/homes ");
+        return text.build();
+    }
+
+    /**
+     * One page of another player's homes for /homeadmin get, in the given order. Hovering a name shows how often
+     * and when it was last used; clicking it suggests /homeadmin visit.
+     */
+    public static Component renderInfoPage(String playerName, List<String> homeNames, Map<String, HomeUsage> usage,
+                                           Sort sort, int page) {
+        List<String> sorted = sort(homeNames, usage, sort);
+        int pages = pageCount(sorted.size());
+        int current = Math.min(Math.max(1, page), pages);
+        int from = (current - 1) * PAGE_SIZE;
+        int to = Math.min(from + PAGE_SIZE, sorted.size());
+
+        TextComponent.Builder text = Component.text()
+                .content("  Home names (by " + sort.description + (pages > 1 ? ", page " + current + "/" + pages : "") + "): ")
+                .color(NamedTextColor.AQUA);
+        long now = System.currentTimeMillis();
+        for (int i = from; i < to; i++) {
+            String name = sorted.get(i);
+            HomeUsage used = usage.getOrDefault(name, HomeUsage.UNUSED);
+            text.append(Component.text(name)
+                    .clickEvent(ClickEvent.suggestCommand("/homeadmin visit " + playerName + " " + name))
+                    .hoverEvent(HoverEvent.showText(Component.text(describeUsage(used, now) + "\nClick to teleport to this home")))
+                    .decoration(TextDecoration.UNDERLINED, true)
+                    .color(NamedTextColor.WHITE));
+            if (i < to - 1) {
+                text.append(Component.text(", ").color(NamedTextColor.WHITE));
+            }
+        }
+        appendNavigation(text, current, pages, "/homeadmin get " + playerName + " " + sort.key() + " ");
+        return text.build();
+    }
+
+    private static List<String> sort(List<String> homeNames, Map<String, HomeUsage> usage, Sort sort) {
+        // Home names arrive in name order, and the sort is stable, so ties stay in name order.
+        List<String> sorted = new ArrayList<>(homeNames);
+        Comparator<String> order = switch (sort) {
+            case NAME -> null;
+            case RECENT -> Comparator.comparingLong(name -> -usage.getOrDefault(name, HomeUsage.UNUSED).lastUsed());
+            case USED -> Comparator.comparingInt(name -> -usage.getOrDefault(name, HomeUsage.UNUSED).count());
+        };
+        if (order != null) {
+            sorted.sort(order);
+        }
+        return sorted;
+    }
+
+    private static String describeUsage(HomeUsage usage, long now) {
+        if (usage.count() == 0) return "Never used";
+        long minutes = Math.max(0, now - usage.lastUsed()) / 60_000;
+        String ago;
+        if (minutes < 60) {
+            ago = minutes + " minutes ago";
+        } else if (minutes < 48 * 60) {
+            ago = (minutes / 60) + " hours ago";
+        } else {
+            ago = (minutes / (24 * 60)) + " days ago";
+        }
+        return "Used " + usage.count() + (usage.count() == 1 ? " time" : " times") + ", last " + ago;
+    }
+
+    private static void appendNavigation(TextComponent.Builder text, int page, int pages, String command) {
+        if (pages <= 1) return;
+        if (page > 1) {
+            text.append(Component.text(" [Previous]")
+                    .clickEvent(ClickEvent.runCommand(command + (page - 1)))
+                    .color(NamedTextColor.GRAY));
+        }
+        if (page < pages) {
+            text.append(Component.text(" [Next]")
+                    .clickEvent(ClickEvent.runCommand(command + (page + 1)))
+                    .color(NamedTextColor.GRAY));
+        }
+    }
+}
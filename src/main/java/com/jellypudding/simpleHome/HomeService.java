@@ -0,0 +1,108 @@
+package com.jellypudding.simpleHome;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SimpleHome's API for other plugins, registered with Bukkit's ServicesManager while SimpleHome is enabled:
+ * <pre>{@code HomeService homes = Bukkit.getServicesManager().load(HomeService.class);}</pre>
+ * No method blocks. Futures of online (cached) players complete right away; the others complete on one of SimpleHome's
+ * database threads, so hop back to the right thread (the main thread, or the entity's region on Folia) before using
+ * the Bukkit API. Futures never complete exceptionally: failures are logged and complete with the fallback value given
+ * below. Players in cold storage are restored first.
+ */
+public interface HomeService {
+
+    /**
+     * The configured max-home-limit, which no player's limit can exceed.
+     */
+    int getMaxHomeLimit();
+
+    /**
+     * Falls back to 1.
+     */
+    CompletableFuture<Integer> getHomeLimit(UUID uuid);
+
+    /**
+     * The limit of every given player, read in one query per 100 players that are not cached. Falls back to 1 each.
+     */
+    CompletableFuture<Map<UUID, Integer>> getHomeLimits(Collection<UUID> uuids);
+
+    /**
+     * Raises the limit by one. Completes with false if it is already at the maximum or the write failed.
+     */
+    CompletableFuture<Boolean> increaseHomeLimit(UUID uuid);
+
+    /**
+     * Sets the limit, between 1 and {@link #getMaxHomeLimit()}. Homes that no longer fit are deleted, last in name
+     * order first. Completes with false if the limit is out of range or the write failed.
+     */
+    CompletableFuture<Boolean> setHomeLimit(UUID uuid, int limit);
+
+    /**
+     * Sets the limit of every given player in one transaction, deleting homes that no longer fit as
+     * {@link #setHomeLimit} does. Completes with the deleted home names per player, or null if nothing was changed.
+     */
+    CompletableFuture<Map<UUID, List<String>>> setHomeLimits(Collection<UUID> uuids, int limit);
+
+    /**
+     * Falls back to 0.
+     */
+    CompletableFuture<Integer> getHomeCount(UUID uuid);
+
+    /**
+     * The home count of every given player, read in one query per 100 players that are not cached. Falls back to 0 each.
+     */
+    CompletableFuture<Map<UUID, Integer>> getHomeCounts(Collection<UUID> uuids);
+
+    /**
+     * Home names in alphabetical order. Falls back to an empty list.
+     */
+    CompletableFuture<List<String>> getHomeNames(UUID uuid);
+
+    /**
+     * Completes with null if the player has no home of that name (names are case-insensitive).
+     */
+    CompletableFuture<Home> getHome(UUID uuid, String homeName);
+
+    /**
+     * Every home of the player in alphabetical order. Falls back to an empty list.
+     */
+    CompletableFuture<List<Home>> getHomes(UUID uuid);
+
+    /**
+     * Creates or moves a home, unless creating it would take the player past their limit.
+     * Completes with CREATED, UPDATED, LIMIT_REACHED or ERROR.
+     *
+     * @throws IllegalArgumentException if the home name is not 1 to 30 letters, digits, '_' or '-'
+     */
+    CompletableFuture<HomeWriteResult> setHome(UUID uuid, Home home);
+
+    /**
+     * Completes with false if the player has no home of that name or the write failed.
+     */
+    CompletableFuture<Boolean> deleteHome(UUID uuid, String homeName);
+
+    /**
+     * Every player's homes in the world within radius blocks of (x, z), measured horizontally, nearest first and
+     * split into pages of pageSize. Completes with an empty page if the location index can't be built.
+     */
+    CompletableFuture<HomeSpatialIndex.Page> getHomesNear(String world, double x, double z, double radius,
+                                                          int page, int pageSize);
+
+    /**
+     * Every player's homes in the world whose x and z lie within the box, nearest to its centre first.
+     */
+    CompletableFuture<HomeSpatialIndex.Page> getHomesWithin(String world, double minX, double minZ,
+                                                            double maxX, double maxZ, int page, int pageSize);
+
+    /**
+     * One page of the player's recorded home changes, newest first, {@link HomeHistory#PAGE_SIZE} per page.
+     * Completes with an empty page if the history can't be read. Listen for {@link HomeChangeEvent} to see changes
+     * as they happen.
+     */
+    CompletableFuture<HomeHistory.Page> getHomeHistory(UUID uuid, int page);
+}
@@ -0,0 +1,339 @@
+package com.jellypudding.simpleHome;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Every home, including homes in cold storage, bucketed per world into square grid cells by block x and z,
+ * so radius and box queries only look at the cells they overlap instead of scanning every home.
+ * The index is built on first use with one pass over the database on a database thread, and is then kept up to
+ * date by {@link HomeCache}, which reports every home written or deleted through it. Distances are horizontal.
+ */
+public class HomeSpatialIndex {
+
+    // 128 blocks (8 chunks) per cell: a 200 block radius looks at 16 to 25 cells.
+    private static final int CELL_SHIFT = 7;
+
+    public record Match(UUID owner, Home home, double distance) {}
+
+    /**
+     * One page of matches, ordered by distance and then by owner and home name, so pages stay stable between queries.
+     * Pages are numbered from 1.
+     */
+    public record Page(List<Match> matches, int page, int pages, int total) {}
+
+    private record Entry(UUID owner, Home home) {}
+
+    private static final Page EMPTY = new Page(List.of(), 1, 1, 0);
+    private static final Comparator<Match> ORDER = Comparator.comparingDouble(Match::distance)
+            .thenComparing(Match::owner)
+            .thenComparing(match -> match.home().name());
+
+    private final Logger logger;
+    private final DatabaseManager databaseManager;
+    private final Metrics metrics;
+
+    // Guarded by this.
+    private final Map<String, Map<Long, List<Entry>>> worlds = new HashMap<>();
+    private final Map<UUID, Map<String, Home>> owners = new HashMap<>();
+    private int size;
+    private CompletableFuture<Boolean> build;
+    // Changes reported while a build is reading the database, replayed once it is done.
+    private List<Runnable> changesDuringBuild;
+    // Bumped whenever the index is dropped, so a build that was already reading the database is discarded.
+    private long generation;
+    private long builds;
+
+    public HomeSpatialIndex(Logger logger, DatabaseManager databaseManager, Metrics metrics) {
+        this.logger = logger;
+        this.databaseManager = databaseManager;
+        this.metrics = metrics;
+        metrics.gauge("index.homes", this::size);
+    }
+
+    // --- Queries ---
+
+    /**
+     * Homes in the world within radius blocks of (x, z), nearest first.
+     * Completes once the index is built and the query has run on a database thread; with an empty page if the index
+     * could not be built or the database queue is full.
+     */
+    public CompletableFuture<Page> near(String world, double x, double z, double radius, int page, int pageSize) {
+        return whenBuilt().thenCompose(built -> databaseManager.supplyAsync(() -> query(world,
+                x - radius, z - radius, x + radius, z + radius, x, z, radius, page, pageSize), EMPTY));
+    }
+
+    /**
+     * Homes in the world whose x and z lie within the box, nearest to the box centre first.
+     */
+    public CompletableFuture<Page> within(String world, double minX, double minZ, double maxX, double maxZ,
+                                          int page, int pageSize) {
+        return whenBuilt().thenCompose(built -> databaseManager.supplyAsync(() -> query(world, minX, minZ, maxX, maxZ,
+                (minX + maxX) / 2, (minZ + maxZ) / 2, Double.POSITIVE_INFINITY, page, pageSize), EMPTY));
+    }
+
+    private Page query(String world, double minX, double minZ, double maxX, double maxZ,
+                       double centreX, double centreZ, double radius, int page, int pageSize) {
+        long start = metrics.start();
+        int size = Math.max(1, pageSize);
+        // Only the matches up to the end of the requested page are kept, not every match in the area.
+        TopMatches top = new TopMatches((int) Math.min(Integer.MAX_VALUE, (long) Math.max(1, page) * size));
+        synchronized (this) {
+            Map<Long, List<Entry>> cells = worlds.get(world);
+            if (cells != null) {
+                int minCellX = cell(minX);
+                int minCellZ = cell(minZ);
+                int maxCellX = cell(maxX);
+                int maxCellZ = cell(maxZ);
+                long area = (long) (maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1);
+                if (area <= cells.size()) {
+                    for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                        for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                            List<Entry> entries = cells.get(key(cellX, cellZ));
+                            if (entries != null) {
+                                collect(entries, minX, minZ, maxX, maxZ, centreX, centreZ, radius, top);
+                            }
+                        }
+                    }
+                } else {
+                    // A huge area in a sparse world: cheaper to look at every occupied cell.
+                    for (List<Entry> entries : cells.values()) {
+                        collect(entries, minX, minZ, maxX, maxZ, centreX, centreZ, radius, top);
+                    }
+                }
+            }
+        }
+        List<Match> matches = new ArrayList<>(top.heap);
+        matches.sort(ORDER);
+
+        // A page past the end shows the last one, which the heap holds in full since there are fewer matches.
+        int pages = Math.max(1, (top.total + size - 1) / size);
+        int current = Math.min(Math.max(1, page), pages);
+        int from = Math.min((current - 1) * size, matches.size());
+        int to = Math.min(from + size, matches.size());
+        metrics.record("index.query", start);
+        return new Page(List.copyOf(matches.subList(from, to)), current, pages, top.total);
+    }
+
+    private static void collect(List<Entry> entries, double minX, double minZ, double maxX, double maxZ,
+                                double centreX, double centreZ, double radius, TopMatches top) {
+        for (Entry entry : entries) {
+            Home home = entry.home();
+            if (home.x() < minX || home.x() > maxX || home.z() < minZ || home.z() > maxZ) continue;
+            double distance = Math.hypot(home.x() - centreX, home.z() - centreZ);
+            if (distance <= radius) {
+                top.offer(new Match(entry.owner(), home, distance));
+            }
+        }
+    }
+
+    /**
+     * The first limit matches in {@link #ORDER}, kept in a max-heap so the farthest one is dropped first,
+     * plus the count of every match offered.
+     */
+    private static final class TopMatches {
+        private final int limit;
+        private final PriorityQueue<Match> heap;
+        private int total;
+
+        private TopMatches(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(Math.min(limit, 256), ORDER.reversed());
+        }
+
+        private void offer(Match match) {
+            total++;
+            if (heap.size() < limit) {
+                heap.add(match);
+            } else if (ORDER.compare(match, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(match);
+            }
+        }
+    }
+
+    // --- Building ---
+
+    private synchronized CompletableFuture<Boolean> whenBuilt() {
+        if (build == null) {
+            changesDuringBuild = new ArrayList<>();
+            long buildGeneration = generation;
+            CompletableFuture<Boolean> started = databaseManager.supplyAsync(() -> load(buildGeneration), false);
+            build = started;
+            // Drop a failed build, so the next query tries again.
+            started.thenAccept(success -> {
+                synchronized (this) {
+                    if (!success && build == started) {
+                        build = null;
+                        changesDuringBuild = null;
+                    }
+                }
+            });
+        }
+        return build;
+    }
+
+    private boolean load(long buildGeneration) {
+        long start = metrics.start();
+        long startNanos = System.nanoTime();
+        List<Entry> loaded = new ArrayList<>();
+        try {
+            databaseManager.exportAll((uuid, home) -> loaded.add(new Entry(uuid, home)), (uuid, limit) -> {});
+        } catch (SQLException e) {
+            metrics.recordError("index.build");
+            logger.log(Level.SEVERE, "Could not build the home location index: " + e.getMessage(), e);
+            return false;
+        }
+
+        synchronized (this) {
+            if (generation != buildGeneration) return true;
+            clearEntries();
+            for (Entry entry : loaded) {
+                // Live homes are streamed before archived ones and win over an archived home of the same name.
+                Map<String, Home> homes = owners.get(entry.owner());
+                if (homes == null || !homes.containsKey(entry.home().name())) {
+                    add(entry.owner(), entry.home());
+                }
+            }
+            if (changesDuringBuild != null) {
+                changesDuringBuild.forEach(Runnable::run);
+                changesDuringBuild = null;
+            }
+            builds++;
+        }
+        metrics.record("index.build", start);
+        logger.info("Indexed " + loaded.size() + " home locations in " + (System.nanoTime() - startNanos) / 1_000_000 + " ms.");
+        return true;
+    }
+
+    /**
+     * Drops the index, e.g. after an import changed many rows. It is rebuilt on the next query.
+     */
+    public synchronized void invalidateAll() {
+        clearEntries();
+        build = null;
+        changesDuringBuild = null;
+        generation++;
+    }
+
+    // --- Updates ---
+
+    public void put(UUID owner, Home home) {
+        update(() -> {
+            remove0(owner, home.name(), null);
+            add(owner, home);
+        });
+    }
+
+    public void remove(UUID owner, String homeName) {
+        update(() -> remove0(owner, homeName.toLowerCase(), null));
+    }
+
+    /**
+     * Removes the home only if it is still indexed in the given world.
+     */
+    public void remove(UUID owner, String homeName, String world) {
+        update(() -> remove0(owner, homeName.toLowerCase(), world));
+    }
+
+    /**
+     * Replaces every indexed home of the player, e.g. after reloading them from a database another server writes to.
+     */
+    public void replacePlayer(UUID owner, Collection<Home> homes) {
+        List<Home> copy = List.copyOf(homes);
+        update(() -> {
+            Map<String, Home> indexed = owners.get(owner);
+            if (indexed != null) {
+                for (String homeName : List.copyOf(indexed.keySet())) {
+                    remove0(owner, homeName, null);
+                }
+            }
+            for (Home home : copy) {
+                add(owner, home);
+            }
+        });
+    }
+
+    public synchronized boolean isBuilt() {
+        return build != null && build.isDone() && changesDuringBuild == null;
+    }
+
+    private synchronized void update(Runnable change) {
+        // Not built yet: the build will read the change from the database.
+        if (build == null) return;
+        if (changesDuringBuild != null) {
+            changesDuringBuild.add(change);
+        } else {
+            change.run();
+        }
+    }
+
+    private void add(UUID owner, Home home) {
+        owners.computeIfAbsent(owner, key -> new HashMap<>()).put(home.name(), home);
+        worlds.computeIfAbsent(home.world(), key -> new HashMap<>())
+                .computeIfAbsent(key(cell(home.x()), cell(home.z())), key -> new ArrayList<>(4))
+                .add(new Entry(owner, home));
+        size++;
+    }
+
+    private void remove0(UUID owner, String homeName, String world) {
+        Map<String, Home> homes = owners.get(owner);
+        if (homes == null) return;
+        Home home = homes.get(homeName);
+        if (home == null || (world != null && !world.equals(home.world()))) return;
+        homes.remove(homeName);
+        if (homes.isEmpty()) {
+            owners.remove(owner);
+        }
+
+        Map<Long, List<Entry>> cells = worlds.get(home.world());
+        long key = key(cell(home.x()), cell(home.z()));
+        List<Entry> entries = cells.get(key);
+        entries.removeIf(entry -> entry.owner().equals(owner) && entry.home().name().equals(homeName));
+        if (entries.isEmpty()) {
+            cells.remove(key);
+            if (cells.isEmpty()) {
+                worlds.remove(home.world());
+            }
+        }
+        size--;
+    }
+
+    private void clearEntries() {
+        worlds.clear();
+        owners.clear();
+        size = 0;
+    }
+
+    private static int cell(double coordinate) {
+        return (int) Math.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    private static long key(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xffffffffL);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized String describeStats() {
+        if (!isBuilt()) return "Home location index: not built yet";
+        int cells = 0;
+        for (Map<Long, List<Entry>> world : worlds.values()) {
+            cells += world.size();
+        }
+        return "Home location index: " + size + " homes in " + cells + " cells across " + worlds.size() +
+                " worlds, built " + builds + " times";
+    }
+}
@@ -0,0 +1,194 @@
+package com.jellypudding.simpleHome;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Where homes, home limits, player names and teleport cooldowns are stored.
+ * Methods block and throw on failure; {@link DatabaseManager} runs them off the main thread, records metrics
+ * and turns failures into fallback values. A player without a stored limit has a limit of 1.
+ */
+public interface HomeStore {
+
+    /**
+     * A short description for the log, e.g. "SQLite (journal mode WAL)".
+     */
+    String describe();
+
+    int getHomeLimit(UUID uuid) throws SQLException;
+
+    /**
+     * Raises the limit by one. Returns the new limit, or -1 if it was already at maxHomeLimit.
+     */
+    int increaseHomeLimit(UUID uuid, int maxHomeLimit) throws SQLException;
+
+    /**
+     * The outcome of {@link #decreaseHomeLimit}: the new limit, or -1 if it was already 1, and the homes deleted
+     * because they no longer fit.
+     */
+    record LimitDecrease(int limit, List<String> deletedHomes) {}
+
+    /**
+     * Lowers the limit by one and deletes the homes that no longer fit, last in name order first, in one transaction.
+     */
+    LimitDecrease decreaseHomeLimit(UUID uuid) throws SQLException;
+
+    void setHomeLimit(UUID uuid, int limit) throws SQLException;
+
+    /**
+     * The stored limit of every given player, 1 for players without one, in as few queries as possible.
+     */
+    Map<UUID, Integer> getHomeLimits(Collection<UUID> uuids) throws SQLException;
+
+    /**
+     * Sets the limit of every player in one transaction and deletes the homes that no longer fit,
+     * last in name order first. Returns the deleted home names per player.
+     */
+    Map<UUID, List<String>> setHomeLimits(Collection<UUID> uuids, int limit) throws SQLException;
+
+    int getHomeCount(UUID uuid) throws SQLException;
+
+    /**
+     * The home count of every given player, 0 for players without homes, in as few queries as possible.
+     */
+    Map<UUID, Integer> getHomeCounts(Collection<UUID> uuids) throws SQLException;
+
+    Home getHome(UUID uuid, String homeName) throws SQLException;
+
+    List<Home> getAllHomes(UUID uuid) throws SQLException;
+
+    List<String> getHomes(UUID uuid) throws SQLException;
+
+    /**
+     * Applies a batch of home writes in one transaction, in order, so limit checks see earlier writes in the batch.
+     * Stored limits above maxHomeLimit count as maxHomeLimit.
+     */
+    HomeWriteResult[] applyHomeWrites(List<WriteBehindQueue.PendingWrite> writes, int maxHomeLimit) throws SQLException;
+
+    boolean recordHomeUse(UUID uuid, String homeName, long usedAt) throws SQLException;
+
+    Map<String, HomeUsage> getHomeUsage(UUID uuid) throws SQLException;
+
+    /**
+     * Deletes expired cooldowns and returns the rest.
+     */
+    List<TeleportManager.Cooldown> loadCooldowns(long now) throws SQLException;
+
+    void saveCooldown(TeleportManager.Cooldown cooldown) throws SQLException;
+
+    /**
+     * Returns every known player name, oldest first.
+     */
+    List<PlayerNameIndex.Entry> getPlayerNames() throws SQLException;
+
+    void updatePlayerName(UUID uuid, String name, long lastSeen) throws SQLException;
+
+    /**
+     * Adds the names that are not known yet and returns how many were added.
+     */
+    int addPlayerNames(List<PlayerNameIndex.Entry> entries) throws SQLException;
+
+    /**
+     * Streams every home, then every home limit, to the given consumers.
+     */
+    void exportAll(BiConsumer<UUID, Home> homes, ObjIntConsumer<UUID> limits) throws SQLException;
+
+    /**
+     * Writes imported rows in one transaction. Homes replace existing homes of the same name without a limit check;
+     * limits are clamped to 1..maxHomeLimit.
+     */
+    void importChunk(List<HomeTransfer.Row> rows, int maxHomeLimit) throws SQLException;
+
+    // --- History ---
+
+    /**
+     * Appends the changes to the home history in one transaction.
+     */
+    void appendHistory(List<HomeChange> changes) throws SQLException;
+
+    /**
+     * Up to limit of the player's changes, newest first, after skipping offset.
+     */
+    List<HomeChange> getHistory(UUID uuid, int offset, int limit) throws SQLException;
+
+    /**
+     * Deletes the changes made before changedBefore. Returns the number deleted.
+     */
+    int pruneHistory(long changedBefore) throws SQLException;
+
+    // --- Maintenance ---
+
+    /**
+     * Refreshes the statistics the query planner relies on.
+     */
+    void optimize() throws SQLException;
+
+    /**
+     * Returns up to maxPages unused pages to the file system. Returns the bytes released.
+     */
+    default long releaseFreePages(int maxPages) throws SQLException {
+        return 0;
+    }
+
+    /**
+     * Copies the write-ahead log into the database file and truncates it. Returns the bytes the log shrank by.
+     */
+    default long checkpoint() throws SQLException {
+        return 0;
+    }
+
+    /**
+     * Returns the name of every world any home was ever set in.
+     */
+    List<String> getWorldNames() throws SQLException;
+
+    /**
+     * Returns up to limit homes in the world.
+     */
+    List<HomeTransfer.Row> getHomesInWorld(String world, int limit) throws SQLException;
+
+    /**
+     * Deletes the given homes in one transaction, unless they have been moved to another world since they were read.
+     * Returns the number deleted.
+     */
+    int deleteHomes(List<HomeTransfer.Row> homes) throws SQLException;
+
+    /**
+     * Writes a consistent copy of the database to target, and of the archive (if there is one) to archiveTarget.
+     * Neither may exist yet. Returns whether the archive was copied.
+     */
+    default boolean snapshot(File target, File archiveTarget) throws SQLException {
+        throw new SQLException("Online snapshots are only supported for SQLite; use the database server's own backup tools.");
+    }
+
+    // --- Cold storage ---
+
+    /**
+     * Moves up to limit players last seen before seenBefore, with their homes and limit, out of the hot tables.
+     * Players in exclude are skipped. Returns the number of players moved; 0 if the store has no cold storage.
+     */
+    default int archiveInactivePlayers(long seenBefore, int limit, Set<UUID> exclude) throws SQLException {
+        return 0;
+    }
+
+    /**
+     * Moves an archived player's homes and limit back. Homes set since archiving win over archived ones of the
+     * same name, and the higher limit is kept. Returns the number of homes restored, or -1 if the player was not archived.
+     */
+    default int restoreArchivedPlayer(UUID uuid) throws SQLException {
+        return -1;
+    }
+
+    default long countArchivedPlayers() {
+        return 0;
+    }
+
+    void close();
+}
@@ -0,0 +1,301 @@
+package com.jellypudding.simpleHome;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Streams homes and home limits between the database and CSV or JSONL files, picked by the file extension.
+ * Every line is either one home or one home limit. Imports are committed in chunks, so a large file never holds
+ * the write lock for long and queued home writes keep flowing in between.
+ *
+ * CSV columns: type,uuid,home_name,world,x,y,z,yaw,pitch,max_homes (type is "home" or "limit").
+ * JSONL keys: the same names, e.g. {"type":"limit","uuid":"...","max_homes":3}.
+ *
+ * An import records one IMPORT change per player in the home history, and fires one {@link HomeChangeEvent} for it,
+ * rather than one per home.
+ */
+public class HomeTransfer {
+
+    static final int CHUNK_SIZE = 1000;
+    static final int PROGRESS_INTERVAL = 10_000;
+    private static final String CSV_HEADER = "type,uuid,home_name,world,x,y,z,yaw,pitch,max_homes";
+
+    private final Logger logger;
+    private final DatabaseManager databaseManager;
+    private final HomeHistory homeHistory;
+
+    // Null home for a limit row.
+    record Row(UUID uuid, Home home, int limit) {}
+
+    public record Result(long homes, long limits, long skipped) {}
+
+    public enum Format {
+        CSV, JSONL;
+
+        public static Format of(String fileName) {
+            String lower = fileName.toLowerCase();
+            if (lower.endsWith(".csv")) return CSV;
+            if (lower.endsWith(".jsonl")) return JSONL;
+            return null;
+        }
+    }
+
+    public HomeTransfer(Logger logger, DatabaseManager databaseManager, HomeHistory homeHistory) {
+        this.logger = logger;
+        this.databaseManager = databaseManager;
+        this.homeHistory = homeHistory;
+    }
+
+    /**
+     * Writes every home and home limit to the file. Blocks, so call it off the main thread.
+     * The file is written under a temporary name and moved into place once complete.
+     */
+    public Result exportTo(File file, LongConsumer progress) throws IOException, SQLException {
+        Format format = requireFormat(file);
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        long[] counts = new long[2];
+
+        try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            if (format == Format.CSV) {
+                writer.write(CSV_HEADER);
+                writer.newLine();
+            }
+            databaseManager.exportAll(
+                    (uuid, home) -> writeLine(writer, format, new Row(uuid, home, 0), ++counts[0] + counts[1], progress),
+                    (uuid, limit) -> writeLine(writer, format, new Row(uuid, null, limit), counts[0] + ++counts[1], progress));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Exported " + counts[0] + " homes and " + counts[1] + " home limits to " + file.getName());
+        return new Result(counts[0], counts[1], 0);
+    }
+
+    /**
+     * Appends rows to a CSV file in the import format, writing the header first if the file is new.
+     */
+    static void appendCsv(File file, List<Row> rows) throws IOException {
+        boolean isNew = !file.exists();
+        file.getParentFile().mkdirs();
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (isNew) {
+                writer.write(CSV_HEADER);
+                writer.newLine();
+            }
+            for (Row row : rows) {
+                writer.write(toCsv(row));
+                writer.newLine();
+            }
+        }
+    }
+
+    private void writeLine(BufferedWriter writer, Format format, Row row, long written, LongConsumer progress) {
+        try {
+            writer.write(format == Format.CSV ? toCsv(row) : toJson(row));
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (written % PROGRESS_INTERVAL == 0) {
+            progress.accept(written);
+        }
+    }
+
+    /**
+     * Reads the file and writes its rows to the database in transactions of CHUNK_SIZE rows. Blocks, so call it
+     * off the main thread. Malformed lines and invalid home names are skipped and logged.
+     * Every player with rows in a committed chunk gets a history entry by actor, even if a later chunk fails.
+     */
+    public Result importFrom(File file, String actor, LongConsumer progress) throws IOException, SQLException {
+        Format format = requireFormat(file);
+        long homes = 0;
+        long limits = 0;
+        long skipped = 0;
+        long lineNumber = 0;
+        List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+        // Player -> imported limit, or 0 for homes only.
+        Map<UUID, Integer> imported = new LinkedHashMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (format == Format.CSV && line.startsWith("type,"))) continue;
+
+                Row row;
+                try {
+                    row = format == Format.CSV ? fromCsv(line) : fromJson(line);
+                } catch (RuntimeException e) {
+                    // Missing fields, bad numbers or UUIDs and malformed JSON all count as an invalid line.
+                    row = null;
+                }
+                if (row == null) {
+                    if (skipped++ < 10) {
+                        logger.warning("Skipping invalid line " + lineNumber + " of " + file.getName() + ": " + line);
+                    }
+                    continue;
+                }
+
+                chunk.add(row);
+                if (row.home() != null) {
+                    homes++;
+                } else {
+                    limits++;
+                }
+                if (chunk.size() >= CHUNK_SIZE) {
+                    importChunk(chunk, imported);
+                }
+                if ((homes + limits) % PROGRESS_INTERVAL == 0) {
+                    progress.accept(homes + limits);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, imported);
+            }
+        } finally {
+            for (Map.Entry<UUID, Integer> entry : imported.entrySet()) {
+                homeHistory.record(HomeChange.imported(entry.getKey(), file.getName(), entry.getValue(), actor));
+            }
+        }
+        logger.info("Imported " + homes + " homes and " + limits + " home limits from " + file.getName() +
+                (skipped > 0 ? " (skipped " + skipped + " invalid lines)." : "."));
+        return new Result(homes, limits, skipped);
+    }
+
+    private void importChunk(List<Row> chunk, Map<UUID, Integer> imported) throws SQLException {
+        databaseManager.importChunk(chunk);
+        for (Row row : chunk) {
+            if (row.home() == null) {
+                imported.put(row.uuid(), databaseManager.clampImportedLimit(row.limit()));
+            } else {
+                imported.putIfAbsent(row.uuid(), 0);
+            }
+        }
+        chunk.clear();
+    }
+
+    private static Format requireFormat(File file) throws IOException {
+        Format format = Format.of(file.getName());
+        if (format == null) {
+            throw new IOException("Unsupported file type (use .csv or .jsonl): " + file.getName());
+        }
+        return format;
+    }
+
+    // --- CSV ---
+
+    static String toCsv(Row row) {
+        Home home = row.home();
+        if (home == null) {
+            return "limit," + row.uuid() + ",,,,,,,," + row.limit();
+        }
+        return "home," + row.uuid() + "," + home.name() + "," + quoteCsv(home.world()) + "," +
+                home.x() + "," + home.y() + "," + home.z() + "," + home.yaw() + "," + home.pitch() + ",";
+    }
+
+    static Row fromCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 10) return null;
+        UUID uuid = UUID.fromString(fields.get(1));
+        return switch (fields.get(0)) {
+            case "home" -> homeRow(uuid, fields.get(2), fields.get(3), Double.parseDouble(fields.get(4)),
+                    Double.parseDouble(fields.get(5)), Double.parseDouble(fields.get(6)),
+                    Float.parseFloat(fields.get(7)), Float.parseFloat(fields.get(8)));
+            case "limit" -> new Row(uuid, null, Integer.parseInt(fields.get(9)));
+            default -> null;
+        };
+    }
+
+    private static String quoteCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(10);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // --- JSONL ---
+
+    static String toJson(Row row) {
+        JsonObject json = new JsonObject();
+        Home home = row.home();
+        json.addProperty("type", home == null ? "limit" : "home");
+        json.addProperty("uuid", row.uuid().toString());
+        if (home == null) {
+            json.addProperty("max_homes", row.limit());
+        } else {
+            json.addProperty("home_name", home.name());
+            json.addProperty("world", home.world());
+            json.addProperty("x", home.x());
+            json.addProperty("y", home.y());
+            json.addProperty("z", home.z());
+            json.addProperty("yaw", home.yaw());
+            json.addProperty("pitch", home.pitch());
+        }
+        return json.toString();
+    }
+
+    static Row fromJson(String line) {
+        JsonElement element = JsonParser.parseString(line);
+        if (!element.isJsonObject()) return null;
+        JsonObject json = element.getAsJsonObject();
+        UUID uuid = UUID.fromString(json.get("uuid").getAsString());
+        return switch (json.get("type").getAsString()) {
+            case "home" -> homeRow(uuid, json.get("home_name").getAsString(), json.get("world").getAsString(),
+                    json.get("x").getAsDouble(), json.get("y").getAsDouble(), json.get("z").getAsDouble(),
+                    json.has("yaw") ? json.get("yaw").getAsFloat() : 0, json.has("pitch") ? json.get("pitch").getAsFloat() : 0);
+            case "limit" -> new Row(uuid, null, json.get("max_homes").getAsInt());
+            default -> null;
+        };
+    }
+
+    private static Row homeRow(UUID uuid, String homeName, String world, double x, double y, double z, float yaw, float pitch) {
+        if (!SimpleHome.isValidHomeName(homeName) || world.isEmpty()) return null;
+        return new Row(uuid, new Home(homeName.toLowerCase(), world, x, y, z, yaw, pitch), 0);
+    }
+}
@@ -0,0 +1,22 @@
+package com.jellypudding.simpleHome;
+
+/**
+ * How often and how recently a home was teleported to.
+ */
+public record HomeUsage(int count, long lastUsed) {
+
+    public static final HomeUsage UNUSED = new HomeUsage(0, 0);
+
+    public HomeUsage used(long now) {
+        return new HomeUsage(count + 1, now);
+    }
+
+    /**
+     * Frequency weighted by recency: the use count halves for every halfLifeMillis since the last use.
+     */
+    public double score(long now, long halfLifeMillis) {
+        if (count == 0) return 0;
+        double age = Math.max(0, now - lastUsed);
+        return count * Math.pow(0.5, age / halfLifeMillis);
+    }
+}
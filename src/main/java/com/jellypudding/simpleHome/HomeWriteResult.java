@@ -0,0 +1,18 @@
+package com.jellypudding.simpleHome;
+
+/**
+ * Outcome of a home write. Sets return CREATED, UPDATED or LIMIT_REACHED; deletes return DELETED or NOT_FOUND.
+ * Either returns ERROR if the write could not be committed.
+ */
+public enum HomeWriteResult {
+    CREATED,
+    UPDATED,
+    LIMIT_REACHED,
+    DELETED,
+    NOT_FOUND,
+    ERROR;
+
+    public boolean isSuccess() {
+        return this == CREATED || this == UPDATED || this == DELETED;
+    }
+}
@@ -0,0 +1,28 @@
+package com.jellypudding.simpleHome;
+
+import java.util.UUID;
+
+/**
+ * Tells other servers sharing the database that a player's homes or home limit changed.
+ * A null uuid means every player, e.g. after an import.
+ */
+public record Invalidation(String origin, UUID uuid, long sentAt) {
+
+    public String encode() {
+        return origin + " " + (uuid == null ? "*" : uuid.toString()) + " " + sentAt;
+    }
+
+    /**
+     * Returns null if the message is malformed, e.g. sent by an incompatible version.
+     */
+    public static Invalidation decode(String message) {
+        String[] parts = message.split(" ");
+        if (parts.length != 3) return null;
+        try {
+            UUID uuid = parts[1].equals("*") ? null : UUID.fromString(parts[1]);
+            return new Invalidation(parts[0], uuid, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.jellypudding.simpleHome;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidations between servers that share one database.
+ * Delivery is best effort; the listener may be called on any thread and may also receive this server's own messages.
+ */
+public interface InvalidationBus {
+
+    void start(Consumer<Invalidation> listener);
+
+    void publish(Invalidation invalidation);
+
+    void close();
+
+    String describe();
+}
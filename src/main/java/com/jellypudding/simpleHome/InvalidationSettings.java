@@ -0,0 +1,25 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * How cache invalidations reach the other servers sharing the database, read from config.yml.
+ */
+public record InvalidationSettings(String type, String redisUri, String redisChannel) {
+
+    private static final List<String> TYPES = List.of("none", "plugin-messaging", "redis", "loopback");
+
+    public static InvalidationSettings load(FileConfiguration config, Logger logger) {
+        String type = config.getString("invalidation.type", "none").toLowerCase();
+        if (!TYPES.contains(type)) {
+            logger.warning("Invalid invalidation.type in config.yml (must be one of " + TYPES + "). Using default value: none");
+            type = "none";
+        }
+        return new InvalidationSettings(type,
+                config.getString("invalidation.redis.uri", "redis://localhost:6379"),
+                config.getString("invalidation.redis.channel", "simplehome:invalidate"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.jellypudding.simpleHome;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+/**
+ * Homes in a MySQL, MariaDB or PostgreSQL database reached through a connection pool, so several servers
+ * (e.g. behind a proxy) can share them. The schema matches the SQLite one apart from the column types.
+ */
+public class JdbcHomeStore extends SqlHomeStore {
+
+    private final StorageSettings settings;
+
+    private JdbcHomeStore(Logger logger, SqlConnections connections, StorageSettings settings) {
+        super(logger, connections, settings.dialect());
+        this.settings = settings;
+    }
+
+    /**
+     * Opens the pool and creates any missing tables.
+     */
+    public static JdbcHomeStore open(Logger logger, StorageSettings settings) throws SQLException {
+        SqlConnections pool;
+        try {
+            pool = new HikariConnectionPool(settings);
+        } catch (RuntimeException e) {
+            // Hikari reports an unreachable database or bad credentials as an unchecked exception.
+            throw new SQLException(e.getMessage(), e);
+        }
+        JdbcHomeStore store = new JdbcHomeStore(logger, pool, settings);
+        try {
+            store.createTables();
+        } catch (SQLException e) {
+            pool.close();
+            throw e;
+        }
+        logger.info("Successfully connected to " + store.describe() + ".");
+        return store;
+    }
+
+    @Override
+    public String describe() {
+        return settings.type() + " database (pool of " + settings.poolSize() + " connections)";
+    }
+
+    @Override
+    public void optimize() throws SQLException {
+        connections.write(connection -> {
+            try (Statement stmt = connection.raw().createStatement()) {
+                stmt.execute((dialect == SqlDialect.MYSQL ? "ANALYZE TABLE" : "ANALYZE") +
+                        " worlds, player_homes, player_home_limits, player_names, teleport_cooldowns");
+            }
+            return null;
+        });
+    }
+
+    private void createTables() throws SQLException {
+        boolean mysql = dialect == SqlDialect.MYSQL;
+        String uuid = mysql ? "BINARY(16)" : "BYTEA";
+        String doubleType = mysql ? "DOUBLE" : "DOUBLE PRECISION";
+        String floatType = mysql ? "FLOAT" : "REAL";
+        // utf8mb4's default collation ignores case, like the NOCASE columns in SQLite.
+        String options = mysql ? " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4" : "";
+
+        connections.write(connection -> {
+            try (Statement stmt = connection.raw().createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS worlds (" +
+                        (mysql ? " world_id INT NOT NULL AUTO_INCREMENT PRIMARY KEY," : " world_id SERIAL PRIMARY KEY,") +
+                        " name VARCHAR(255) NOT NULL UNIQUE" +
+                        ")" + options);
+                stmt.execute("CREATE TABLE IF NOT EXISTS player_homes (" +
+                        " uuid " + uuid + " NOT NULL," +
+                        " home_name VARCHAR(32) NOT NULL," +
+                        " world_id INT NOT NULL REFERENCES worlds(world_id)," +
+                        " x " + doubleType + " NOT NULL," +
+                        " y " + doubleType + " NOT NULL," +
+                        " z " + doubleType + " NOT NULL," +
+                        " yaw " + floatType + " NOT NULL," +
+                        " pitch " + floatType + " NOT NULL," +
+                        " use_count INT NOT NULL DEFAULT 0," +
+                        " last_used BIGINT NOT NULL DEFAULT 0," +
+                        " PRIMARY KEY (uuid, home_name)" +
+                        ")" + options);
+                // The configured maximum is enforced by the plugin, since servers sharing the database may differ.
+                stmt.execute("CREATE TABLE IF NOT EXISTS player_home_limits (" +
+                        " uuid " + uuid + " NOT NULL PRIMARY KEY," +
+                        " max_homes INT NOT NULL DEFAULT 1 CHECK (max_homes >= 1)" +
+                        ")" + options);
+                stmt.execute("CREATE TABLE IF NOT EXISTS player_names (" +
+                        " name VARCHAR(32) NOT NULL PRIMARY KEY," +
+                        " uuid " + uuid + " NOT NULL," +
+                        " last_seen BIGINT NOT NULL" +
+                        (mysql ? ", INDEX idx_player_names_uuid (uuid)" : "") +
+                        ")" + options);
+                if (!mysql) {
+                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_player_names_uuid ON player_names (uuid)");
+                }
+                stmt.execute("CREATE TABLE IF NOT EXISTS teleport_cooldowns (" +
+                        " uuid " + uuid + " NOT NULL," +
+                        " kind VARCHAR(16) NOT NULL," +
+                        " expires_at BIGINT NOT NULL," +
+                        " PRIMARY KEY (uuid, kind)" +
+                        ")" + options);
+                stmt.execute("CREATE TABLE IF NOT EXISTS home_history (" +
+                        (mysql ? " id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," : " id BIGSERIAL PRIMARY KEY,") +
+                        " uuid " + uuid + " NOT NULL," +
+                        " changed_at BIGINT NOT NULL," +
+                        " action VARCHAR(16) NOT NULL," +
+                        " home_name VARCHAR(32)," +
+                        " world VARCHAR(255)," +
+                        " x " + doubleType + "," +
+                        " y " + doubleType + "," +
+                        " z " + doubleType + "," +
+                        " yaw " + floatType + "," +
+                        " pitch " + floatType + "," +
+                        " home_limit INT NOT NULL DEFAULT 0," +
+                        " actor VARCHAR(64) NOT NULL" +
+                        (mysql ? ", INDEX idx_home_history_player (uuid, changed_at)" : "") +
+                        ")" + options);
+                if (!mysql) {
+                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_home_history_player ON home_history (uuid, changed_at)");
+                }
+            }
+            return null;
+        });
+        logger.info("Database tables initialized.");
+    }
+}
@@ -0,0 +1,75 @@
+package com.jellypudding.simpleHome;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * A lock-free latency histogram in the style of HdrHistogram: buckets grow exponentially and each power of two
+ * is split into 16 linear sub-buckets, so any recorded value is reported within about 6% using a fixed 7.5 KiB array.
+ * Recording is a single atomic increment; reads take an unsynchronised snapshot, which is fine for monitoring.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Enough buckets for any non-negative long.
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketIndex(nanos));
+        max.accumulate(nanos);
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value at the given percentile (0-100) in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,41 @@
+package com.jellypudding.simpleHome;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidations to every other loopback bus in the same JVM, synchronously.
+ * Stands in for a real bus when testing several plugin instances against one database.
+ */
+public class LoopbackInvalidationBus implements InvalidationBus {
+
+    private static final List<LoopbackInvalidationBus> NODES = new CopyOnWriteArrayList<>();
+
+    private volatile Consumer<Invalidation> listener;
+
+    @Override
+    public void start(Consumer<Invalidation> listener) {
+        this.listener = listener;
+        NODES.add(this);
+    }
+
+    @Override
+    public void publish(Invalidation invalidation) {
+        for (LoopbackInvalidationBus node : NODES) {
+            if (node != this) {
+                node.listener.accept(invalidation);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        NODES.remove(this);
+    }
+
+    @Override
+    public String describe() {
+        return "loopback (" + NODES.size() + " nodes)";
+    }
+}
@@ -0,0 +1,38 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Background database maintenance settings read from config.yml.
+ */
+public record MaintenanceSettings(boolean enabled,
+                                  int intervalMinutes,
+                                  int maxOnlinePlayers,
+                                  int vacuumPagesPerStep,
+                                  int vacuumMaxSteps,
+                                  boolean checkpoint,
+                                  String orphanedHomes,
+                                  int orphanBatchSize) {
+
+    private static final List<String> ORPHAN_ACTIONS = List.of("keep", "archive", "delete");
+
+    public static MaintenanceSettings load(FileConfiguration config, Logger logger) {
+        String orphanedHomes = config.getString("maintenance.orphaned-homes", "keep").toLowerCase();
+        if (!ORPHAN_ACTIONS.contains(orphanedHomes)) {
+            logger.warning("Invalid maintenance.orphaned-homes in config.yml (must be one of " + ORPHAN_ACTIONS + "). Using default value: keep");
+            orphanedHomes = "keep";
+        }
+        return new MaintenanceSettings(
+                config.getBoolean("maintenance.enabled", true),
+                DatabaseSettings.atLeast(config, logger, "maintenance.interval-minutes", 360, 1),
+                DatabaseSettings.atLeast(config, logger, "maintenance.max-online-players", 5, 0),
+                DatabaseSettings.atLeast(config, logger, "maintenance.vacuum-pages-per-step", 500, 1),
+                DatabaseSettings.atLeast(config, logger, "maintenance.vacuum-max-steps", 20, 0),
+                config.getBoolean("maintenance.checkpoint", true),
+                orphanedHomes,
+                DatabaseSettings.atLeast(config, logger, "maintenance.orphan-batch-size", 500, 1));
+    }
+}
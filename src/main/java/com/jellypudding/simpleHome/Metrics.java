@@ -0,0 +1,179 @@
+package com.jellypudding.simpleHome;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Call counts, error counts, latency percentiles and main-thread versus off-thread time per operation.
+ * Everything is recorded with LongAdders and atomic histogram buckets, so it is cheap enough to leave enabled.
+ * Operations are named like "db.getHome" or "command.sethome" and created on first use.
+ */
+public class Metrics {
+
+    private final boolean enabled;
+    private final BooleanSupplier onMainThread;
+    private final long since = System.nanoTime();
+    // Sorted so the report and the dump list operations in a stable order.
+    private final Map<String, Operation> operations = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    public Metrics(boolean enabled, BooleanSupplier onMainThread) {
+        this.enabled = enabled;
+        this.onMainThread = onMainThread;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records one call of an operation that began at startNanos (from {@link #start()}).
+     */
+    public void record(String name, long startNanos) {
+        if (!enabled) return;
+        long elapsed = System.nanoTime() - startNanos;
+        Operation operation = operation(name);
+        operation.calls.increment();
+        operation.latency.record(elapsed);
+        if (onMainThread.getAsBoolean()) {
+            operation.mainThreadNanos.add(elapsed);
+        } else {
+            operation.offThreadNanos.add(elapsed);
+        }
+    }
+
+    /**
+     * Records a wait (e.g. time spent in a queue) rather than work, so it adds to the latency but not to thread time.
+     */
+    public void recordWait(String name, long nanos) {
+        if (!enabled) return;
+        Operation operation = operation(name);
+        operation.calls.increment();
+        operation.latency.record(nanos);
+    }
+
+    /**
+     * Registers a value that is read whenever metrics are reported. It may be read from any thread.
+     */
+    public void gauge(String name, LongSupplier value) {
+        if (!enabled) return;
+        gauges.put(name, value);
+    }
+
+    public void recordError(String name) {
+        if (!enabled) return;
+        operation(name).errors.increment();
+    }
+
+    /**
+     * Wraps a task so that each run is recorded under the given name.
+     */
+    public Runnable timed(String name, Runnable task) {
+        if (!enabled) return task;
+        return () -> {
+            long start = start();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                recordError(name);
+                throw e;
+            } finally {
+                record(name, start);
+            }
+        };
+    }
+
+    private Operation operation(String name) {
+        Operation operation = operations.get(name);
+        return operation != null ? operation : operations.computeIfAbsent(name, key -> new Operation());
+    }
+
+    // --- Reporting ---
+
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        double seconds = Math.max(1, (System.nanoTime() - since) / 1_000_000_000.0);
+        long mainThreadNanos = 0;
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            Operation operation = entry.getValue();
+            LatencyHistogram latency = operation.latency;
+            long calls = operation.calls.sum();
+            mainThreadNanos += operation.mainThreadNanos.sum();
+            lines.add(String.format("%s: %d calls (%.2f/s), %d errors, p50 %s, p95 %s, p99 %s, p99.9 %s, max %s, main thread %s, off thread %s",
+                    entry.getKey(), calls, calls / seconds, operation.errors.sum(),
+                    formatNanos(latency.getPercentileNanos(50)), formatNanos(latency.getPercentileNanos(95)),
+                    formatNanos(latency.getPercentileNanos(99)), formatNanos(latency.getPercentileNanos(99.9)),
+                    formatNanos(latency.getMaxNanos()), formatNanos(operation.mainThreadNanos.sum()),
+                    formatNanos(operation.offThreadNanos.sum())));
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            lines.add(entry.getKey() + ": " + entry.getValue().getAsLong());
+        }
+        // A server runs 20 ticks per second, so this is roughly how much of each 50 ms tick SimpleHome takes.
+        lines.add(0, String.format("Main thread time: %s total, %s per tick over %.0f s",
+                formatNanos(mainThreadNanos), formatNanos((long) (mainThreadNanos / (seconds * 20))), seconds));
+        return lines;
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text format. The file is replaced atomically so scrapers never read a partial dump.
+     */
+    public void writeTo(File file) throws IOException {
+        StringBuilder out = new StringBuilder();
+        out.append("# TYPE simplehome_calls_total counter\n");
+        out.append("# TYPE simplehome_errors_total counter\n");
+        out.append("# TYPE simplehome_latency_seconds summary\n");
+        out.append("# TYPE simplehome_latency_max_seconds gauge\n");
+        out.append("# TYPE simplehome_thread_seconds_total counter\n");
+        out.append("# TYPE simplehome_gauge gauge\n");
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            String label = "{operation=\"" + entry.getKey() + "\"";
+            Operation operation = entry.getValue();
+            out.append("simplehome_calls_total").append(label).append("} ").append(operation.calls.sum()).append('\n');
+            out.append("simplehome_errors_total").append(label).append("} ").append(operation.errors.sum()).append('\n');
+            for (double quantile : new double[]{0.5, 0.95, 0.99, 0.999}) {
+                out.append("simplehome_latency_seconds").append(label).append(",quantile=\"").append(quantile).append("\"} ")
+                        .append(operation.latency.getPercentileNanos(quantile * 100) / 1e9).append('\n');
+            }
+            out.append("simplehome_latency_max_seconds").append(label).append("} ").append(operation.latency.getMaxNanos() / 1e9).append('\n');
+            out.append("simplehome_thread_seconds_total").append(label).append(",thread=\"main\"} ").append(operation.mainThreadNanos.sum() / 1e9).append('\n');
+            out.append("simplehome_thread_seconds_total").append(label).append(",thread=\"other\"} ").append(operation.offThreadNanos.sum() / 1e9).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            out.append("simplehome_gauge{name=\"").append(entry.getKey()).append("\"} ").append(entry.getValue().getAsLong()).append('\n');
+        }
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.writeString(temp.toPath(), out, StandardCharsets.UTF_8);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos < 1_000) return nanos + " ns";
+        if (nanos < 1_000_000) return String.format("%.1f µs", nanos / 1_000.0);
+        if (nanos < 1_000_000_000) return String.format("%.2f ms", nanos / 1_000_000.0);
+        return String.format("%.2f s", nanos / 1_000_000_000.0);
+    }
+
+    private static final class Operation {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder mainThreadNanos = new LongAdder();
+        private final LongAdder offThreadNanos = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+}
@@ -0,0 +1,75 @@
+package com.jellypudding.simpleHome;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every player name SimpleHome has seen and its UUID, persisted in the player_names table and updated on each join.
+ * Admin commands resolve and tab-complete names from memory, so offline players never need a blocking profile lookup.
+ */
+public class PlayerNameIndex {
+
+    // Keyed by lowercase name.
+    private final Map<String, UUID> uuidsByName = new ConcurrentHashMap<>();
+    private final Map<UUID, String> namesByUuid = new ConcurrentHashMap<>();
+    private final PrefixIndex names = new PrefixIndex();
+
+    public record Entry(UUID uuid, String name, long lastSeen) {}
+
+    /**
+     * Adds entries in bulk, e.g. on startup. Entries must be ordered oldest first so the latest name wins.
+     */
+    public synchronized void load(Collection<Entry> entries) {
+        for (Entry entry : entries) {
+            String previous = namesByUuid.put(entry.uuid(), entry.name());
+            if (previous != null) {
+                uuidsByName.remove(previous.toLowerCase(), entry.uuid());
+            }
+            UUID previousOwner = uuidsByName.put(entry.name().toLowerCase(), entry.uuid());
+            if (previousOwner != null && !previousOwner.equals(entry.uuid())) {
+                namesByUuid.remove(previousOwner);
+            }
+        }
+        names.clear();
+        names.addAll(namesByUuid.values());
+    }
+
+    /**
+     * Records a player's current name. A previous name of the same player, or another player that used to have
+     * this name, is dropped. Returns false if nothing changed.
+     */
+    public synchronized boolean update(UUID uuid, String name) {
+        String previous = namesByUuid.put(uuid, name);
+        if (name.equals(previous)) return false;
+        if (previous != null) {
+            uuidsByName.remove(previous.toLowerCase(), uuid);
+            names.remove(previous);
+        }
+
+        UUID previousOwner = uuidsByName.put(name.toLowerCase(), uuid);
+        if (previousOwner != null && !previousOwner.equals(uuid)) {
+            namesByUuid.remove(previousOwner);
+        }
+        names.add(name);
+        return true;
+    }
+
+    public UUID getUUID(String name) {
+        return uuidsByName.get(name.toLowerCase());
+    }
+
+    public String getName(UUID uuid) {
+        return namesByUuid.get(uuid);
+    }
+
+    public List<String> startingWith(String lowercasePrefix) {
+        return names.startingWith(lowercasePrefix);
+    }
+
+    public int size() {
+        return namesByUuid.size();
+    }
+}
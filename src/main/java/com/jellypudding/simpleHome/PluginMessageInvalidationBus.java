@@ -0,0 +1,118 @@
+package com.jellypudding.simpleHome;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Sends invalidations to every other server through the proxy, using the BungeeCord "Forward" plugin message
+ * (understood by BungeeCord and Velocity). Plugin messages travel over a player's connection, so messages wait
+ * in a queue while nobody is online on this server; if too many pile up they collapse into one "everyone" message.
+ */
+public class PluginMessageInvalidationBus implements InvalidationBus, PluginMessageListener {
+
+    private static final String CHANNEL = "BungeeCord";
+    private static final String SUBCHANNEL = "SimpleHomeInvalidate";
+    private static final int MAX_PENDING = 1000;
+
+    private final JavaPlugin plugin;
+    private final Queue<Invalidation> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private volatile Consumer<Invalidation> listener;
+    private ScheduledTask task;
+
+    public PluginMessageInvalidationBus(JavaPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void start(Consumer<Invalidation> listener) {
+        this.listener = listener;
+        plugin.getServer().getMessenger().registerOutgoingPluginChannel(plugin, CHANNEL);
+        plugin.getServer().getMessenger().registerIncomingPluginChannel(plugin, CHANNEL, this);
+        task = Schedulers.runGlobalTimer(plugin, this::flush, 1L, 1L);
+    }
+
+    @Override
+    public void publish(Invalidation invalidation) {
+        pending.add(invalidation);
+        if (pendingCount.incrementAndGet() > MAX_PENDING) {
+            pending.clear();
+            pendingCount.set(1);
+            pending.add(new Invalidation(invalidation.origin(), null, invalidation.sentAt()));
+        }
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) return;
+        Iterator<? extends Player> players = plugin.getServer().getOnlinePlayers().iterator();
+        if (!players.hasNext()) return;
+        Player carrier = players.next();
+
+        Invalidation invalidation;
+        while ((invalidation = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            carrier.sendPluginMessage(plugin, CHANNEL, forward(invalidation));
+        }
+    }
+
+    private static byte[] forward(Invalidation invalidation) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            byte[] payload = invalidation.encode().getBytes(StandardCharsets.UTF_8);
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(SUBCHANNEL);
+            out.writeShort(payload.length);
+            out.write(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        if (!CHANNEL.equals(channel)) return;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            if (!SUBCHANNEL.equals(in.readUTF())) return;
+            byte[] payload = new byte[in.readUnsignedShort()];
+            in.readFully(payload);
+            Invalidation invalidation = Invalidation.decode(new String(payload, StandardCharsets.UTF_8));
+            if (invalidation != null) {
+                listener.accept(invalidation);
+            }
+        } catch (IOException e) {
+            // Another plugin's message on the shared channel.
+        }
+    }
+
+    @Override
+    public void close() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        plugin.getServer().getMessenger().unregisterOutgoingPluginChannel(plugin);
+        plugin.getServer().getMessenger().unregisterIncomingPluginChannel(plugin);
+    }
+
+    @Override
+    public String describe() {
+        return "plugin messaging (" + pendingCount.get() + " waiting for a player)";
+    }
+}
@@ -0,0 +1,45 @@
+package com.jellypudding.simpleHome;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A connection that keeps its prepared statements open for reuse, so the fixed query set is only parsed once.
+ * Only one thread uses a pooled connection at a time, which {@link SqlConnections} implementations guarantee.
+ */
+public class PooledConnection implements AutoCloseable {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    PooledConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    public Connection raw() {
+        return connection;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement statement : statements.values()) {
+            statement.close();
+        }
+        statements.clear();
+        connection.close();
+    }
+}
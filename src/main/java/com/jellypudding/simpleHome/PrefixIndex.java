@@ -0,0 +1,152 @@
+package com.jellypudding.simpleHome;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A sorted, case-insensitive index of names for tab completion.
+ * Prefix queries are answered with two binary searches over a snapshot, so they need no locking and no lowercase copies.
+ * Updates replace the snapshot (copy-on-write), which suits name lists that change far less often than they are queried.
+ */
+public class PrefixIndex {
+
+    // Keys are the lowercased values, both sorted by key.
+    private record Snapshot(String[] keys, String[] values) {}
+
+    private static final Snapshot EMPTY = new Snapshot(new String[0], new String[0]);
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    public PrefixIndex() {
+    }
+
+    public PrefixIndex(Collection<String> values) {
+        addAll(values);
+    }
+
+    public synchronized void add(String value) {
+        Snapshot current = snapshot;
+        String key = value.toLowerCase();
+        int index = Arrays.binarySearch(current.keys, key);
+        if (index >= 0) {
+            if (current.values[index].equals(value)) return;
+            // Same name with different capitalisation; keep the latest spelling.
+            String[] values = current.values.clone();
+            values[index] = value;
+            snapshot = new Snapshot(current.keys, values);
+            return;
+        }
+
+        int insertAt = -index - 1;
+        int size = current.keys.length;
+        String[] keys = new String[size + 1];
+        String[] values = new String[size + 1];
+        System.arraycopy(current.keys, 0, keys, 0, insertAt);
+        System.arraycopy(current.values, 0, values, 0, insertAt);
+        keys[insertAt] = key;
+        values[insertAt] = value;
+        System.arraycopy(current.keys, insertAt, keys, insertAt + 1, size - insertAt);
+        System.arraycopy(current.values, insertAt, values, insertAt + 1, size - insertAt);
+        snapshot = new Snapshot(keys, values);
+    }
+
+    public synchronized void addAll(Collection<String> newValues) {
+        if (newValues.isEmpty()) return;
+        Snapshot current = snapshot;
+        List<String> merged = new ArrayList<>(current.values.length + newValues.size());
+        merged.addAll(Arrays.asList(current.values));
+        merged.addAll(newValues);
+        // Sort by the lowercase key, the same order the binary searches use.
+        merged.sort(Comparator.comparing(String::toLowerCase));
+
+        // Drop duplicates, keeping the last spelling of each name.
+        List<String> keys = new ArrayList<>(merged.size());
+        List<String> values = new ArrayList<>(merged.size());
+        for (String value : merged) {
+            String key = value.toLowerCase();
+            if (!keys.isEmpty() && keys.get(keys.size() - 1).equals(key)) {
+                values.set(values.size() - 1, value);
+            } else {
+                keys.add(key);
+                values.add(value);
+            }
+        }
+        snapshot = new Snapshot(keys.toArray(new String[0]), values.toArray(new String[0]));
+    }
+
+    public synchronized void remove(String value) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.keys, value.toLowerCase());
+        if (index < 0) return;
+
+        int size = current.keys.length;
+        String[] keys = new String[size - 1];
+        String[] values = new String[size - 1];
+        System.arraycopy(current.keys, 0, keys, 0, index);
+        System.arraycopy(current.values, 0, values, 0, index);
+        System.arraycopy(current.keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(current.values, index + 1, values, index, size - index - 1);
+        snapshot = new Snapshot(keys, values);
+    }
+
+    public synchronized void clear() {
+        snapshot = EMPTY;
+    }
+
+    public boolean contains(String value) {
+        return Arrays.binarySearch(snapshot.keys, value.toLowerCase()) >= 0;
+    }
+
+    public int size() {
+        return snapshot.keys.length;
+    }
+
+    /**
+     * Returns every value, ordered by lowercase name.
+     */
+    public List<String> all() {
+        return new ArrayList<>(Arrays.asList(snapshot.values));
+    }
+
+    /**
+     * Returns the values whose lowercase form starts with the given prefix, which must already be lowercase.
+     */
+    public List<String> startingWith(String lowercasePrefix) {
+        Snapshot current = snapshot;
+        int from = lowerBound(current.keys, lowercasePrefix);
+        int to = upperBound(current.keys, lowercasePrefix, from);
+        return new ArrayList<>(Arrays.asList(current.values).subList(from, to));
+    }
+
+    private static int lowerBound(String[] keys, String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First index at or after start whose key does not begin with the prefix.
+    private static int upperBound(String[] keys, String prefix, int start) {
+        int low = start;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,34 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.logging.Logger;
+
+/**
+ * Chunk pre-warming settings read from config.yml.
+ */
+public record PrewarmSettings(boolean enabled,
+                              boolean onJoin,
+                              boolean onHomesList,
+                              boolean onWarmup,
+                              int radius,
+                              int maxLoadsPerTick,
+                              int maxLoadsInFlight,
+                              int maxTickets,
+                              int ticketSeconds,
+                              int usageHalfLifeHours) {
+
+    public static PrewarmSettings load(FileConfiguration config, Logger logger) {
+        return new PrewarmSettings(
+                config.getBoolean("prewarm.enabled", true),
+                config.getBoolean("prewarm.on-join", true),
+                config.getBoolean("prewarm.on-homes-list", true),
+                config.getBoolean("prewarm.on-warmup", true),
+                DatabaseSettings.atLeast(config, logger, "prewarm.radius", 1, 0),
+                DatabaseSettings.atLeast(config, logger, "prewarm.max-loads-per-tick", 2, 1),
+                DatabaseSettings.atLeast(config, logger, "prewarm.max-loads-in-flight", 8, 1),
+                DatabaseSettings.atLeast(config, logger, "prewarm.max-tickets", 200, 1),
+                DatabaseSettings.atLeast(config, logger, "prewarm.ticket-seconds", 30, 1),
+                DatabaseSettings.atLeast(config, logger, "prewarm.usage-half-life-hours", 72, 1));
+    }
+}
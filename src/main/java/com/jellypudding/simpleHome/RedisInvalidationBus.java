@@ -0,0 +1,96 @@
+package com.jellypudding.simpleHome;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+import java.net.URI;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Sends invalidations over Redis pub/sub. Unlike plugin messaging it works while a server is empty.
+ * The subscription runs on its own thread and reconnects after a lost connection.
+ */
+public class RedisInvalidationBus implements InvalidationBus {
+
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+    private final Logger logger;
+    private final String channel;
+    private final JedisPool pool;
+    private volatile Consumer<Invalidation> listener;
+    private volatile JedisPubSub subscription;
+    private volatile boolean running;
+    private Thread thread;
+
+    public RedisInvalidationBus(Logger logger, String uri, String channel) {
+        this.logger = logger;
+        this.channel = channel;
+        this.pool = new JedisPool(URI.create(uri));
+    }
+
+    @Override
+    public void start(Consumer<Invalidation> listener) {
+        this.listener = listener;
+        running = true;
+        thread = new Thread(this::subscribe, "SimpleHome-Redis");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void subscribe() {
+        while (running) {
+            JedisPubSub pubSub = new JedisPubSub() {
+                @Override
+                public void onMessage(String channel, String message) {
+                    Invalidation invalidation = Invalidation.decode(message);
+                    if (invalidation != null) {
+                        listener.accept(invalidation);
+                    }
+                }
+            };
+            subscription = pubSub;
+            try (Jedis jedis = pool.getResource()) {
+                // Blocks until unsubscribed or the connection drops.
+                jedis.subscribe(pubSub, channel);
+            } catch (RuntimeException e) {
+                if (!running) break;
+                logger.warning("Lost the Redis invalidation subscription (" + e.getMessage() + "). Retrying in " +
+                        (RECONNECT_DELAY_MILLIS / 1000) + " seconds.");
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void publish(Invalidation invalidation) {
+        try (Jedis jedis = pool.getResource()) {
+            jedis.publish(channel, invalidation.encode());
+        } catch (RuntimeException e) {
+            logger.warning("Could not publish a cache invalidation to Redis: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        JedisPubSub pubSub = subscription;
+        if (pubSub != null && pubSub.isSubscribed()) {
+            pubSub.unsubscribe();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        pool.close();
+    }
+
+    @Override
+    public String describe() {
+        return "Redis channel " + channel;
+    }
+}
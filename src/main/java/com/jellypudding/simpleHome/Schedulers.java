@@ -0,0 +1,74 @@
+package com.jellypudding.simpleHome;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on the right thread on both Paper and Folia, using the region-aware schedulers Paper provides.
+ * On Paper the global region and every entity run on the main thread, so these behave like the Bukkit scheduler.
+ * On Folia the global region thread owns SimpleHome's shared state (warmups, cooldowns, the teleport queue and
+ * chunk tickets), entity schedulers run work for one player, and the async scheduler runs timers that only hand
+ * work to the database threads.
+ */
+public final class Schedulers {
+
+    private Schedulers() {
+    }
+
+    /**
+     * Runs the task on the global region thread: right away if already there, otherwise on its next tick.
+     */
+    public static void runGlobal(Plugin plugin, Runnable task) {
+        if (plugin.getServer().isGlobalTickThread()) {
+            task.run();
+        } else {
+            plugin.getServer().getGlobalRegionScheduler().execute(plugin, task);
+        }
+    }
+
+    public static ScheduledTask runGlobalLater(Plugin plugin, Runnable task, long delayTicks) {
+        return plugin.getServer().getGlobalRegionScheduler().runDelayed(plugin, scheduled -> task.run(), Math.max(1, delayTicks));
+    }
+
+    public static ScheduledTask runGlobalTimer(Plugin plugin, Runnable task, long delayTicks, long periodTicks) {
+        return plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, scheduled -> task.run(),
+                Math.max(1, delayTicks), periodTicks);
+    }
+
+    /**
+     * Runs the task on the thread that owns the entity: right away if already there, otherwise on its next tick.
+     * The task is dropped if the entity is removed first, e.g. a player who logged out.
+     */
+    public static void runFor(Plugin plugin, Entity entity, Runnable task) {
+        if (plugin.getServer().isOwnedByCurrentRegion(entity)) {
+            task.run();
+        } else {
+            entity.getScheduler().run(plugin, scheduled -> task.run(), null);
+        }
+    }
+
+    public static void runAsync(Plugin plugin, Runnable task) {
+        plugin.getServer().getAsyncScheduler().runNow(plugin, scheduled -> task.run());
+    }
+
+    public static ScheduledTask runAsyncTimer(Plugin plugin, Runnable task, long delayTicks, long periodTicks) {
+        return plugin.getServer().getAsyncScheduler().runAtFixedRate(plugin, scheduled -> task.run(),
+                delayTicks * 50, periodTicks * 50, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Where to continue after a database call on behalf of a command sender: the player's own thread for players,
+     * the global region thread for the console. Always runs on a later tick, like the Bukkit scheduler's runTask.
+     */
+    public static Executor executorFor(Plugin plugin, CommandSender sender) {
+        if (sender instanceof Entity entity) {
+            return task -> entity.getScheduler().run(plugin, scheduled -> task.run(), null);
+        }
+        return task -> plugin.getServer().getGlobalRegionScheduler().execute(plugin, task);
+    }
+}
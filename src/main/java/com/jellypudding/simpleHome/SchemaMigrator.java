@@ -0,0 +1,88 @@
+package com.jellypudding.simpleHome;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Brings an SQLite database up to date by running numbered migrations, each once and in its own transaction.
+ * The number of the last applied migration is kept in PRAGMA user_version, which SQLite stores in the file header
+ * and updates in the same transaction, so a failed migration leaves both the schema and the version untouched.
+ */
+public class SchemaMigrator {
+
+    @FunctionalInterface
+    public interface Step {
+        void apply(PooledConnection connection) throws SQLException;
+    }
+
+    public record Migration(int version, String description, Step step) {}
+
+    private final Logger logger;
+    private final List<Migration> migrations;
+
+    /**
+     * Migrations must be listed in increasing version order, starting at 1.
+     */
+    public SchemaMigrator(Logger logger, List<Migration> migrations) {
+        this.logger = logger;
+        this.migrations = migrations;
+    }
+
+    public int latestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version();
+    }
+
+    /**
+     * Applies every migration newer than the database. Returns the number applied.
+     * Stops at the first failure; migrations applied before it stay committed.
+     */
+    public int migrate(PooledConnection pooled) throws SQLException {
+        Connection connection = pooled.raw();
+        int current = userVersion(connection);
+        if (current > latestVersion()) {
+            logger.warning("Database schema version " + current + " is newer than this version of SimpleHome supports (" +
+                    latestVersion() + "). Continuing, but consider updating the plugin.");
+            return 0;
+        }
+
+        int applied = 0;
+        for (Migration migration : migrations) {
+            if (migration.version() <= current) continue;
+
+            long start = System.nanoTime();
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                migration.step().apply(pooled);
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("PRAGMA user_version = " + migration.version());
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw new SQLException("Schema migration " + migration.version() + " (" + migration.description() +
+                        ") failed: " + e.getMessage(), e);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            applied++;
+            logger.info(String.format("Applied schema migration %d (%s) in %.1f ms.",
+                    migration.version(), migration.description(), (System.nanoTime() - start) / 1_000_000.0));
+        }
+        if (applied == 0) {
+            logger.info("Database schema is up to date (version " + current + ").");
+        }
+        return applied;
+    }
+
+    private static int userVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
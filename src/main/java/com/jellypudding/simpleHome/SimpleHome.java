@@ -1,32 +1,87 @@
 package com.jellypudding.simpleHome;
 
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.TextComponent;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.event.HoverEvent;
 import net.kyori.adventure.text.format.NamedTextColor;
-import net.kyori.adventure.text.format.TextDecoration;
 import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 public final class SimpleHome extends JavaPlugin implements Listener {
 
     private DatabaseManager databaseManager;
+    private HomeCache homeCache;
+    private HomeSpatialIndex homeSpatialIndex;
+    private HomeService homeService;
+    private final HomeListRenderer homeListRenderer = new HomeListRenderer();
+    private HomeTransfer homeTransfer;
+    private ChunkPrewarmer chunkPrewarmer;
+    private TeleportManager teleportManager;
+    private TeleportAdmission teleportAdmission;
+    private final AtomicBoolean transferRunning = new AtomicBoolean();
+    private final PlayerNameIndex playerNames = new PlayerNameIndex();
     private final String defaultHomeName = "home";
+    private static final int NEAR_PAGE_SIZE = 10;
+    private static final DateTimeFormatter HISTORY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
     private int maxHomeLimit = 10;
+    private int cacheEvictionDelay = 60;
+    private DatabaseSettings databaseSettings;
+    private StorageSettings storageSettings;
+    private InvalidationSettings invalidationSettings;
+    private InvalidationBus invalidationBus;
+    private PrewarmSettings prewarmSettings;
+    private TeleportSettings teleportSettings;
+    private MaintenanceSettings maintenanceSettings;
+    private ArchiveSettings archiveSettings;
+    private DatabaseMaintenance databaseMaintenance;
+    private BackupSettings backupSettings;
+    private BackupManager backupManager;
+    private HistorySettings historySettings;
+    private HomeHistory homeHistory;
+    private Metrics metrics;
+    private boolean metricsEnabled = true;
+    private int metricsLogInterval = 0;
+    private int metricsDumpInterval = 0;
 
     @Override
     public void onEnable() {
@@ -37,7 +92,40 @@ public final class SimpleHome extends JavaPlugin implements Listener {
             getDataFolder().mkdirs();
         }
 
-        databaseManager = new DatabaseManager(this, maxHomeLimit);
+        metrics = new Metrics(metricsEnabled, getServer()::isPrimaryThread);
+        databaseManager = new DatabaseManager(this, maxHomeLimit, databaseSettings, storageSettings, archiveSettings, metrics);
+        invalidationBus = createInvalidationBus();
+        homeSpatialIndex = new HomeSpatialIndex(getLogger(), databaseManager, metrics);
+        homeHistory = new HomeHistory(this, databaseManager, historySettings, metrics);
+        homeHistory.start();
+        homeCache = new HomeCache(this, databaseManager, cacheEvictionDelay, metrics, homeSpatialIndex, homeHistory, invalidationBus);
+        if (invalidationBus != null) {
+            invalidationBus.start(homeCache::onInvalidation);
+        }
+        homeTransfer = new HomeTransfer(getLogger(), databaseManager, homeHistory);
+        chunkPrewarmer = new ChunkPrewarmer(this, prewarmSettings);
+        chunkPrewarmer.start();
+        teleportAdmission = new TeleportAdmission(teleportSettings, metrics);
+        teleportManager = new TeleportManager(this, databaseManager, teleportSettings, chunkPrewarmer, teleportAdmission,
+                prewarmSettings.onWarmup());
+        teleportManager.start();
+        databaseMaintenance = new DatabaseMaintenance(this, databaseManager, homeCache, homeHistory, maintenanceSettings,
+                archiveSettings, metrics, storageSettings.isSqlite());
+        databaseMaintenance.start();
+        backupManager = new BackupManager(this, databaseManager, backupSettings);
+        if (storageSettings.isSqlite()) {
+            backupManager.start();
+        }
+        loadPlayerNames();
+        homeService = new SimpleHomeService(databaseManager, homeCache, homeSpatialIndex, homeHistory, maxHomeLimit);
+        getServer().getServicesManager().register(HomeService.class, homeService, this, ServicePriority.Normal);
+
+        // Players already online (e.g. after a reload) missed the pre-login load.
+        for (Player player : getServer().getOnlinePlayers()) {
+            UUID uuid = player.getUniqueId();
+            rememberPlayerName(uuid, player.getName());
+            Schedulers.runAsync(this, () -> homeCache.load(uuid));
+        }
 
         getServer().getPluginManager().registerEvents(this, this);
 
@@ -52,17 +140,65 @@ public final class SimpleHome extends JavaPlugin implements Listener {
         Objects.requireNonNull(getCommand("homeadmin")).setExecutor(this);
         Objects.requireNonNull(getCommand("homeadmin")).setTabCompleter(this);
 
+        scheduleMetricsReports();
+
         getLogger().info("SimpleHome has been enabled!");
     }
 
     @Override
     public void onDisable() {
+        getServer().getServicesManager().unregisterAll(this);
+        homeService = null;
+        if (databaseMaintenance != null) {
+            databaseMaintenance.stop();
+        }
+        if (backupManager != null) {
+            backupManager.stop();
+        }
+        if (teleportManager != null) {
+            teleportManager.stop();
+        }
+        if (chunkPrewarmer != null) {
+            chunkPrewarmer.stop();
+        }
+        if (invalidationBus != null) {
+            invalidationBus.close();
+        }
+        if (homeCache != null) {
+            homeCache.clear();
+        }
         if (databaseManager != null) {
+            databaseManager.flushPendingWrites();
+            // After the queued writes, whose changes it records.
+            if (homeHistory != null) {
+                homeHistory.stop();
+            }
             databaseManager.closeConnection();
         }
         getLogger().info("SimpleHome has been disabled!");
     }
 
+    private InvalidationBus createInvalidationBus() {
+        if (storageSettings.isSqlite() && !invalidationSettings.type().equals("none")) {
+            getLogger().warning("invalidation.type is set but storage.type is sqlite, which no other server can share.");
+        }
+        switch (invalidationSettings.type()) {
+            case "plugin-messaging":
+                return new PluginMessageInvalidationBus(this);
+            case "redis":
+                try {
+                    return new RedisInvalidationBus(getLogger(), invalidationSettings.redisUri(), invalidationSettings.redisChannel());
+                } catch (RuntimeException e) {
+                    getLogger().severe("Could not set up Redis invalidation (" + e.getMessage() + "). Other servers' changes will not reach the cache.");
+                    return null;
+                }
+            case "loopback":
+                return new LoopbackInvalidationBus();
+            default:
+                return null;
+        }
+    }
+
     private void loadConfigValues() {
         FileConfiguration config = getConfig();
         int configuredLimit = config.getInt("max-home-limit", 10);
@@ -72,11 +208,135 @@ public final class SimpleHome extends JavaPlugin implements Listener {
         } else {
             this.maxHomeLimit = configuredLimit;
         }
+
+        int configuredEvictionDelay = config.getInt("cache.eviction-delay-seconds", 60);
+        if (configuredEvictionDelay < 0) {
+            getLogger().warning("Invalid cache.eviction-delay-seconds in config.yml (must be >= 0). Using default value: 60");
+            this.cacheEvictionDelay = 60;
+        } else {
+            this.cacheEvictionDelay = configuredEvictionDelay;
+        }
+
+        this.databaseSettings = DatabaseSettings.load(config, getLogger());
+        this.storageSettings = StorageSettings.load(config, getLogger());
+        this.invalidationSettings = InvalidationSettings.load(config, getLogger());
+        this.prewarmSettings = PrewarmSettings.load(config, getLogger());
+        this.teleportSettings = TeleportSettings.load(config, getLogger());
+        this.maintenanceSettings = MaintenanceSettings.load(config, getLogger());
+        this.archiveSettings = ArchiveSettings.load(config, getLogger());
+        this.backupSettings = BackupSettings.load(config, getLogger());
+        this.historySettings = HistorySettings.load(config, getLogger());
+        if (archiveSettings.enabled() && !storageSettings.isSqlite()) {
+            getLogger().warning("archive.enabled only applies to sqlite storage; inactive players stay in the " + storageSettings.type() + " database.");
+        }
+
+        this.metricsEnabled = config.getBoolean("metrics.enabled", true);
+        int configuredLogInterval = config.getInt("metrics.log-interval-seconds", 0);
+        if (configuredLogInterval < 0) {
+            getLogger().warning("Invalid metrics.log-interval-seconds in config.yml (must be >= 0). Using default value: 0");
+            this.metricsLogInterval = 0;
+        } else {
+            this.metricsLogInterval = configuredLogInterval;
+        }
+        int configuredDumpInterval = config.getInt("metrics.dump-interval-seconds", 0);
+        if (configuredDumpInterval < 0) {
+            getLogger().warning("Invalid metrics.dump-interval-seconds in config.yml (must be >= 0). Using default value: 0");
+            this.metricsDumpInterval = 0;
+        } else {
+            this.metricsDumpInterval = configuredDumpInterval;
+        }
+    }
+
+    private void scheduleMetricsReports() {
+        if (!metrics.isEnabled()) return;
+        if (metricsLogInterval > 0) {
+            long ticks = metricsLogInterval * 20L;
+            Schedulers.runAsyncTimer(this, () -> {
+                for (String line : metrics.describe()) {
+                    getLogger().info("[Stats] " + line);
+                }
+            }, ticks, ticks);
+        }
+        if (metricsDumpInterval > 0) {
+            long ticks = metricsDumpInterval * 20L;
+            File dumpFile = new File(getDataFolder(), "metrics.prom");
+            Schedulers.runAsyncTimer(this, () -> {
+                try {
+                    metrics.writeTo(dumpFile);
+                } catch (IOException e) {
+                    getLogger().warning("Could not write " + dumpFile.getName() + ": " + e.getMessage());
+                }
+            }, ticks, ticks);
+        }
+    }
+
+    private void loadPlayerNames() {
+        List<PlayerNameIndex.Entry> entries = databaseManager.getPlayerNames();
+        if (entries.isEmpty()) {
+            // First start with the player_names table: import the players this server already knows, once.
+            for (OfflinePlayer offlinePlayer : getServer().getOfflinePlayers()) {
+                if (offlinePlayer.getName() != null) {
+                    entries.add(new PlayerNameIndex.Entry(offlinePlayer.getUniqueId(), offlinePlayer.getName(), offlinePlayer.getLastPlayed()));
+                }
+            }
+            entries.sort(Comparator.comparingLong(PlayerNameIndex.Entry::lastSeen));
+            List<PlayerNameIndex.Entry> imported = List.copyOf(entries);
+            databaseManager.supplyAsync(() -> databaseManager.addPlayerNames(imported), 0)
+                    .thenAccept(added -> getLogger().info("Imported " + added + " player names."));
+        }
+        playerNames.load(entries);
+    }
+
+    private void rememberPlayerName(UUID uuid, String name) {
+        playerNames.update(uuid, name);
+        // Also refreshes last_seen, so the table is written on every join.
+        databaseManager.updatePlayerNameAsync(uuid, name, System.currentTimeMillis());
+    }
+
+    // --- Cache Lifecycle ---
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        homeCache.load(event.getUniqueId());
+        // The login can still be refused later without a join or quit event to clean up after it.
+        homeCache.scheduleLoginTimeout(event.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        // Joined after the login timeout dropped the pre-login load.
+        homeCache.ensureLoaded(uuid);
+        rememberPlayerName(uuid, event.getPlayer().getName());
+        if (prewarmSettings.onJoin()) {
+            prewarmLikelyHome(event.getPlayer());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        teleportManager.cancel(event.getPlayer().getUniqueId());
+        homeCache.scheduleEviction(event.getPlayer().getUniqueId());
+        homeListRenderer.forget(event.getPlayer().getUniqueId());
     }
 
     @Override
     public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, String[] args) {
         String commandName = command.getName().toLowerCase();
+        String operation = "command." + commandName;
+        long start = metrics.start();
+        try {
+            return dispatchCommand(sender, commandName, args);
+        } catch (RuntimeException e) {
+            metrics.recordError(operation);
+            throw e;
+        } finally {
+            metrics.record(operation, start);
+        }
+    }
+
+    private boolean dispatchCommand(CommandSender sender, String commandName, String[] args) {
 
         // Handle admin commands that can be used by console.
         if (commandName.equals("homeadmin")) {
@@ -101,7 +361,7 @@ public final class SimpleHome extends JavaPlugin implements Listener {
                 handleDelHome(player, args);
                 break;
             case "homes":
-                handleHomes(player);
+                handleHomes(player, args);
                 break;
             default:
                 return false;
@@ -112,6 +372,19 @@ public final class SimpleHome extends JavaPlugin implements Listener {
     @Override
     public @Nullable List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command, @NotNull String alias, @NotNull String[] args) {
         String commandName = command.getName().toLowerCase();
+        String operation = "tabcomplete." + commandName;
+        long start = metrics.start();
+        try {
+            return completeCommand(sender, commandName, args);
+        } catch (RuntimeException e) {
+            metrics.recordError(operation);
+            throw e;
+        } finally {
+            metrics.record(operation, start);
+        }
+    }
+
+    private List<String> completeCommand(CommandSender sender, String commandName, String[] args) {
 
         // Handle homeadmin tab completion (works for console too).
         if (commandName.equals("homeadmin")) {
@@ -121,23 +394,39 @@ public final class SimpleHome extends JavaPlugin implements Listener {
 
             if (args.length == 1) {
                 String currentArg = args[0].toLowerCase();
-                return List.of("increase", "decrease", "get", "visit").stream()
+                return List.of("increase", "decrease", "get", "visit", "setlimit", "import", "export", "stats", "maintenance", "backup", "restore", "near", "history").stream()
                         .filter(action -> action.startsWith(currentArg))
                         .collect(Collectors.toList());
-            } else if (args.length == 2 && (args[0].equalsIgnoreCase("increase") || args[0].equalsIgnoreCase("decrease") || args[0].equalsIgnoreCase("get") || args[0].equalsIgnoreCase("visit"))) {
-                String currentArg = args[1].toLowerCase();
-                return getServer().getOnlinePlayers().stream()
-                        .map(p -> p.getName())
-                        .filter(name -> name.toLowerCase().startsWith(currentArg))
+            } else if (args.length == 2 && args[0].equalsIgnoreCase("import")) {
+                return listTransferFiles(args[1].toLowerCase());
+            } else if (args.length == 2 && args[0].equalsIgnoreCase("restore")) {
+                String prefix = args[1].toLowerCase();
+                return backupManager.listBackups().stream()
+                        .map(File::getName)
+                        .filter(name -> name.toLowerCase().startsWith(prefix))
+                        .collect(Collectors.toList());
+            } else if (args.length == 3 && args[0].equalsIgnoreCase("setlimit")) {
+                // Complete the last name of a comma-separated list.
+                String current = args[2];
+                int comma = current.lastIndexOf(',');
+                String done = current.substring(0, comma + 1);
+                List<String> completions = new ArrayList<>();
+                for (String name : playerNames.startingWith(current.substring(comma + 1).toLowerCase())) {
+                    completions.add(done + name);
+                }
+                return completions;
+            } else if (args.length == 2 && (args[0].equalsIgnoreCase("increase") || args[0].equalsIgnoreCase("decrease") || args[0].equalsIgnoreCase("get") || args[0].equalsIgnoreCase("visit") || args[0].equalsIgnoreCase("history"))) {
+                return playerNames.startingWith(args[1].toLowerCase());
+            } else if (args.length == 3 && args[0].equalsIgnoreCase("get")) {
+                String prefix = args[2].toLowerCase();
+                return Arrays.stream(HomeListRenderer.Sort.values())
+                        .map(HomeListRenderer.Sort::key)
+                        .filter(key -> key.startsWith(prefix))
                         .collect(Collectors.toList());
             } else if (args.length == 3 && args[0].equalsIgnoreCase("visit")) {
-                String currentArg = args[2].toLowerCase();
                 UUID targetUUID = getPlayerUUID(args[1]);
                 if (targetUUID != null) {
-                    List<String> homeNames = databaseManager.getHomes(targetUUID);
-                    return homeNames.stream()
-                            .filter(name -> name.toLowerCase().startsWith(currentArg))
-                            .collect(Collectors.toList());
+                    return homeCache.completeHomes(targetUUID, args[2].toLowerCase());
                 }
             }
         }
@@ -149,11 +438,7 @@ public final class SimpleHome extends JavaPlugin implements Listener {
 
         if (commandName.equals("home") || commandName.equals("delhome")) {
             if (args.length == 1) {
-                String currentArg = args[0].toLowerCase();
-                List<String> homeNames = databaseManager.getHomes(player.getUniqueId());
-                return homeNames.stream()
-                                .filter(name -> name.toLowerCase().startsWith(currentArg))
-                                .collect(Collectors.toList());
+                return homeCache.completeHomes(player.getUniqueId(), args[0].toLowerCase());
             }
         }
         return Collections.emptyList();
@@ -169,35 +454,32 @@ public final class SimpleHome extends JavaPlugin implements Listener {
             return;
         }
 
-        int currentHomeCount = databaseManager.getHomeCount(player.getUniqueId());
-        int homeLimit = databaseManager.getHomeLimit(player.getUniqueId());
-        boolean isUpdating = databaseManager.getHomes(player.getUniqueId()).contains(homeName.toLowerCase());
-
-        if (!isUpdating && currentHomeCount >= homeLimit) {
-            player.sendMessage(Component.text("You have reached your home limit of " + homeLimit + ".").color(NamedTextColor.RED));
-            return;
-        }
-
+        // The limit check and the write happen in one database transaction.
         Location location = player.getLocation();
-        if (databaseManager.setHome(player.getUniqueId(), homeName, location)) {
-            player.sendMessage(Component.text("Home set.").color(NamedTextColor.GREEN));
-        } else {
-            player.sendMessage(Component.text("Failed to set home '" + homeName + ".").color(NamedTextColor.RED));
-        }
+        homeCache.setHomeWithinLimitAsync(player.getUniqueId(), Home.of(homeName, location), player.getName()).thenAcceptAsync(result -> {
+            switch (result) {
+                case CREATED, UPDATED -> player.sendMessage(Component.text("Home set.").color(NamedTextColor.GREEN));
+                case LIMIT_REACHED -> homeCache.getHomeLimitAsync(player.getUniqueId()).thenAcceptAsync(limit ->
+                        player.sendMessage(Component.text("You have reached your home limit of " + limit + ".").color(NamedTextColor.RED)), callbackFor(player));
+                default -> player.sendMessage(Component.text("Failed to set home '" + homeName + ".").color(NamedTextColor.RED));
+            }
+        }, callbackFor(player));
     }
 
     private void handleHome(Player player, String[] args) {
         String homeName = (args.length > 0) ? args[0] : defaultHomeName;
+        if (!homesLoaded(player)) return;
 
-        Location location = databaseManager.getHome(player.getUniqueId(), homeName);
+        Location location = resolveLocation(player.getUniqueId(), homeCache.getHome(player.getUniqueId(), homeName));
 
         if (location == null) {
             player.sendMessage(Component.text("Home '" + homeName + "' not found or its world is not loaded.").color(NamedTextColor.RED));
             return;
         }
 
-        player.teleportAsync(location).thenAccept(success -> {
+        teleportManager.teleport(player, location, TeleportManager.Kind.HOME, success -> {
             if (success) {
+                homeCache.recordUse(player.getUniqueId(), homeName);
                 player.sendMessage(Component.text("Teleported to your home.").color(NamedTextColor.GREEN));
             } else {
                 player.sendMessage(Component.text("Teleportation failed.").color(NamedTextColor.RED));
@@ -212,35 +494,57 @@ public final class SimpleHome extends JavaPlugin implements Listener {
         }
         String homeName = args[0];
 
-        if (databaseManager.deleteHome(player.getUniqueId(), homeName)) {
-            player.sendMessage(Component.text("Home '" + homeName + "' deleted.").color(NamedTextColor.GREEN));
-        } else {
-            player.sendMessage(Component.text("Home '" + homeName + "' not found.").color(NamedTextColor.RED));
-        }
+        homeCache.deleteHomeAsync(player.getUniqueId(), homeName, player.getName()).thenAcceptAsync(success -> {
+            if (success) {
+                player.sendMessage(Component.text("Home '" + homeName + "' deleted.").color(NamedTextColor.GREEN));
+            } else {
+                player.sendMessage(Component.text("Home '" + homeName + "' not found.").color(NamedTextColor.RED));
+            }
+        }, callbackFor(player));
     }
 
-    private void handleHomes(Player player) {
-        List<String> homeNames = databaseManager.getHomes(player.getUniqueId());
-        int homeLimit = databaseManager.getHomeLimit(player.getUniqueId());
+    private void handleHomes(Player player, String[] args) {
+        int page = 1;
+        if (args.length > 0) {
+            try {
+                page = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                player.sendMessage(Component.text("Usage: /homes [page]").color(NamedTextColor.RED));
+                return;
+            }
+        }
+
+        if (!homesLoaded(player)) return;
+        UUID uuid = player.getUniqueId();
+        // Read before the homes, so a change in between only makes the cached page look outdated.
+        long version = homeCache.version(uuid);
+        List<String> homeNames = homeCache.getHomes(uuid);
+        int homeLimit = homeCache.getHomeLimit(uuid);
 
         if (homeNames.isEmpty()) {
             player.sendMessage(Component.text("You have no homes set. Use /sethome [name]").color(NamedTextColor.YELLOW));
         } else {
-            TextComponent homesText = Component.text("Your homes (" + homeNames.size() + "/" + homeLimit + "): ").color(NamedTextColor.GOLD);
-            int size = homeNames.size();
-            for (int i = 0; i < size; i++) {
-                String name = homeNames.get(i);
-                TextComponent homesNameText = Component.text(name)
-                        .clickEvent(ClickEvent.suggestCommand("/home " + name))
-                        .hoverEvent(HoverEvent.showText(Component.text("Click to use command.")))
-                        .decoration(TextDecoration.UNDERLINED, true)
-                        .color(NamedTextColor.WHITE);
-                homesText = homesText.append(homesNameText);
-                if(i < size - 1) {
-                    homesText = homesText.append(Component.text(", ").color(NamedTextColor.WHITE));
-                }
+            player.sendMessage(homeListRenderer.homesPage(uuid, version, homeNames, homeLimit, page));
+            if (prewarmSettings.onHomesList()) {
+                // The player is probably about to pick one.
+                prewarmLikelyHome(player);
             }
-            player.sendMessage(homesText);
+        }
+    }
+
+    // The handlers that read the cache on the main thread; a player whose homes aren't loaded yet is asked to wait.
+    private boolean homesLoaded(Player player) {
+        if (homeCache.ensureLoaded(player.getUniqueId())) return true;
+        player.sendMessage(Component.text("Your homes are still loading. Try again in a moment.").color(NamedTextColor.YELLOW));
+        return false;
+    }
+
+    private void prewarmLikelyHome(Player player) {
+        Home home = homeCache.getMostLikelyHome(player.getUniqueId(), defaultHomeName, prewarmSettings.usageHalfLifeHours() * 3_600_000L);
+        if (home == null) return;
+        World world = getServer().getWorld(home.world());
+        if (world != null) {
+            chunkPrewarmer.prewarm(home.toLocation(world));
         }
     }
 
@@ -250,8 +554,21 @@ public final class SimpleHome extends JavaPlugin implements Listener {
             return;
         }
 
+        if (args.length == 1 && args[0].equalsIgnoreCase("stats")) {
+            handleStats(sender);
+            return;
+        }
+        if (args.length == 1 && args[0].equalsIgnoreCase("maintenance")) {
+            handleMaintenance(sender);
+            return;
+        }
+        if (args.length == 1 && args[0].equalsIgnoreCase("backup")) {
+            handleBackup(sender);
+            return;
+        }
+
         if (args.length < 2) {
-            sender.sendMessage(Component.text("Usage: /homeadmin <increase|decrease|get|visit> <player> [home_name]").color(NamedTextColor.RED));
+            sender.sendMessage(Component.text("Usage: /homeadmin <increase|decrease|get|visit> <player> [home_name|sort] [page], /homeadmin setlimit <limit> <players|file:name>, /homeadmin <import|export> <file>, /homeadmin restore <backup>, /homeadmin near <radius> [world x z] [page], /homeadmin history <player> [page] or /homeadmin <stats|maintenance|backup>").color(NamedTextColor.RED));
             return;
         }
 
@@ -259,6 +576,27 @@ public final class SimpleHome extends JavaPlugin implements Listener {
         String playerName = args[1];
 
         switch (action) {
+            case "import":
+            case "export":
+                handleTransfer(sender, action, args[1]);
+                break;
+
+            case "setlimit":
+                handleSetLimit(sender, args);
+                break;
+
+            case "restore":
+                handleRestore(sender, args[1]);
+                break;
+
+            case "near":
+                handleNear(sender, args);
+                break;
+
+            case "history":
+                handleHistory(sender, args);
+                break;
+
             case "increase":
             case "decrease":
                 UUID targetUUID = getPlayerUUID(playerName);
@@ -267,7 +605,7 @@ public final class SimpleHome extends JavaPlugin implements Listener {
                     return;
                 }
                 Player onlinePlayer = getServer().getPlayer(playerName);
-                handleHomeLimitChange(sender, playerName, targetUUID, onlinePlayer, action);
+                afterRestore(sender, targetUUID, () -> handleHomeLimitChange(sender, playerName, targetUUID, onlinePlayer, action));
                 break;
 
             case "get":
@@ -279,97 +617,464 @@ public final class SimpleHome extends JavaPlugin implements Listener {
                 }
 
                 if (action.equals("get")) {
-                    handleHomeInfo(sender, playerName, targetUUID2);
+                    afterRestore(sender, targetUUID2, () -> handleHomeInfo(sender, args, playerName, targetUUID2));
                 } else {
-                    handleHomeVisit(sender, args, playerName, targetUUID2);
+                    afterRestore(sender, targetUUID2, () -> handleHomeVisit(sender, args, playerName, targetUUID2));
                 }
                 break;
 
             default:
-                sender.sendMessage(Component.text("Invalid action. Use 'increase', 'decrease', 'get', or 'visit'.").color(NamedTextColor.RED));
+                sender.sendMessage(Component.text("Invalid action. Use 'increase', 'decrease', 'get', 'visit', 'setlimit', 'import', 'export', 'stats', 'maintenance', 'backup', 'restore', 'near', or 'history'.").color(NamedTextColor.RED));
                 break;
         }
     }
 
-    private void handleHomeLimitChange(CommandSender sender, String playerName, UUID targetUUID, Player onlinePlayer, String action) {
-        int currentLimit = databaseManager.getHomeLimit(targetUUID);
+    /**
+     * Hops completed database futures back onto the sender's thread (the main thread on Paper, the player's region
+     * or the global region on Folia) before touching Bukkit or Adventure.
+     */
+    private Executor callbackFor(CommandSender sender) {
+        Executor executor = Schedulers.executorFor(this, sender);
+        return task -> executor.execute(metrics.timed("main.callback", task));
+    }
 
-        if (action.equals("increase")) {
-            if (currentLimit >= maxHomeLimit) {
-                sender.sendMessage(Component.text(playerName + " is already at the maximum home limit (" + maxHomeLimit + ").").color(NamedTextColor.RED));
+    /**
+     * Runs the action on the sender's thread once the player's archived homes, if any, are back in the database.
+     */
+    private void afterRestore(CommandSender sender, UUID uuid, Runnable action) {
+        if (databaseManager.countArchivedPlayers() == 0) {
+            action.run();
+            return;
+        }
+        databaseManager.restoreArchivedPlayerAsync(uuid).thenRunAsync(action, callbackFor(sender));
+    }
+
+    private void handleBackup(CommandSender sender) {
+        sender.sendMessage(Component.text("Backing up the database...").color(NamedTextColor.YELLOW));
+        databaseManager.supplyAsync(() -> {
+            try {
+                File backup = backupManager.backup();
+                return Component.text("Backed up the database to plugins/SimpleHome/backups/" + backup.getName() + ".").color(NamedTextColor.GREEN);
+            } catch (IOException | SQLException | IllegalStateException e) {
+                getLogger().log(Level.SEVERE, "Backup failed: " + e.getMessage(), e);
+                return Component.text("Backup failed: " + e.getMessage()).color(NamedTextColor.RED);
+            }
+        }, Component.text("The database queue is full; try again later.").color(NamedTextColor.RED))
+                .thenAcceptAsync(sender::sendMessage, callbackFor(sender));
+    }
+
+    private void handleRestore(CommandSender sender, String fileName) {
+        if (!storageSettings.isSqlite()) {
+            sender.sendMessage(Component.text("Restoring backups is only supported for sqlite storage.").color(NamedTextColor.RED));
+            return;
+        }
+        sender.sendMessage(Component.text("Checking " + fileName + "...").color(NamedTextColor.YELLOW));
+        databaseManager.supplyAsync(() -> {
+            try {
+                backupManager.stageRestore(fileName);
+                return Component.text(fileName + " passed the integrity check and will replace homes.db and archive.db when the server restarts. " +
+                        "Delete plugins/SimpleHome/" + BackupManager.STAGED_RESTORE + " before then to cancel.").color(NamedTextColor.GREEN);
+            } catch (IOException | SQLException e) {
+                getLogger().log(Level.WARNING, "Could not stage " + fileName + " for restore: " + e.getMessage(), e);
+                return Component.text("Could not restore " + fileName + ": " + e.getMessage()).color(NamedTextColor.RED);
+            }
+        }, Component.text("The database queue is full; try again later.").color(NamedTextColor.RED))
+                .thenAcceptAsync(sender::sendMessage, callbackFor(sender));
+    }
+
+    private void handleNear(CommandSender sender, String[] args) {
+        String usage = "Usage: /homeadmin near <radius> [page] or /homeadmin near <radius> <world> <x> <z> [page]";
+        double radius;
+        String world;
+        double x;
+        double z;
+        int page = 1;
+        try {
+            radius = Double.parseDouble(args[1]);
+            if (args.length >= 5) {
+                world = args[2];
+                x = Double.parseDouble(args[3]);
+                z = Double.parseDouble(args[4]);
+                if (args.length >= 6) page = Integer.parseInt(args[5]);
+            } else if (sender instanceof Player player) {
+                Location location = player.getLocation();
+                world = location.getWorld().getName();
+                x = location.getX();
+                z = location.getZ();
+                if (args.length >= 3) page = Integer.parseInt(args[2]);
+            } else {
+                sender.sendMessage(Component.text(usage).color(NamedTextColor.RED));
                 return;
             }
+        } catch (NumberFormatException e) {
+            sender.sendMessage(Component.text(usage).color(NamedTextColor.RED));
+            return;
+        }
+        if (!(radius > 0)) {
+            sender.sendMessage(Component.text("The radius must be greater than 0.").color(NamedTextColor.RED));
+            return;
+        }
 
-            if (databaseManager.setHomeLimit(targetUUID, currentLimit + 1)) {
-                sender.sendMessage(Component.text("Increased " + playerName + "'s home limit from " + currentLimit + " to " + (currentLimit + 1) + ".").color(NamedTextColor.GREEN));
+        String centre = String.format("%s %.0f, %.0f", world, x, z);
+        String pageCommand = "/homeadmin near " + args[1] + (args.length >= 5 ? " " + args[2] + " " + args[3] + " " + args[4] : "") + " ";
+        homeSpatialIndex.near(world, x, z, radius, page, NEAR_PAGE_SIZE).thenAcceptAsync(result -> {
+            if (result.total() == 0) {
+                sender.sendMessage(Component.text("No homes within " + args[1] + " blocks of " + centre + ".").color(NamedTextColor.YELLOW));
+                return;
+            }
+            sender.sendMessage(Component.text(result.total() + " homes within " + args[1] + " blocks of " + centre +
+                    " (page " + result.page() + "/" + result.pages() + "):").color(NamedTextColor.GOLD));
+            for (HomeSpatialIndex.Match match : result.matches()) {
+                String owner = playerNames.getName(match.owner());
+                if (owner == null) owner = match.owner().toString();
+                Home home = match.home();
+                sender.sendMessage(Component.text(String.format("  %s's '%s' at %.0f, %.0f, %.0f (%.0f blocks)",
+                                owner, home.name(), home.x(), home.y(), home.z(), match.distance()))
+                        .clickEvent(ClickEvent.suggestCommand("/homeadmin visit " + owner + " " + home.name()))
+                        .hoverEvent(HoverEvent.showText(Component.text("Click to teleport to this home")))
+                        .color(NamedTextColor.YELLOW));
+            }
+            if (result.page() < result.pages()) {
+                String next = pageCommand + (result.page() + 1);
+                sender.sendMessage(Component.text("  Next page: " + next)
+                        .clickEvent(ClickEvent.runCommand(next))
+                        .color(NamedTextColor.GRAY));
+            }
+        }, callbackFor(sender));
+    }
+
+    private void handleHistory(CommandSender sender, String[] args) {
+        String playerName = args[1];
+        int page = 1;
+        try {
+            if (args.length >= 3) page = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            sender.sendMessage(Component.text("Usage: /homeadmin history <player> [page]").color(NamedTextColor.RED));
+            return;
+        }
+        UUID targetUUID = getPlayerUUID(playerName);
+        if (targetUUID == null) {
+            sender.sendMessage(Component.text("Player '" + playerName + "' not found. Make sure the name is spelled correctly.").color(NamedTextColor.RED));
+            return;
+        }
+
+        homeHistory.history(targetUUID, page).thenAcceptAsync(result -> {
+            if (result.changes().isEmpty()) {
+                sender.sendMessage(Component.text(result.page() == 1 ? "No home changes recorded for " + playerName + "."
+                        : "No more home changes for " + playerName + ".").color(NamedTextColor.YELLOW));
+                return;
+            }
+            sender.sendMessage(Component.text(playerName + "'s home history (page " + result.page() + ", newest first):").color(NamedTextColor.GOLD));
+            for (HomeChange change : result.changes()) {
+                sender.sendMessage(Component.text("  " + HISTORY_TIME.format(Instant.ofEpochMilli(change.changedAt())) + " " +
+                        describeChange(change) + " by " + change.actor()).color(NamedTextColor.YELLOW));
+            }
+            if (result.hasNext()) {
+                String next = "/homeadmin history " + playerName + " " + (result.page() + 1);
+                sender.sendMessage(Component.text("  Next page: " + next)
+                        .clickEvent(ClickEvent.runCommand(next))
+                        .color(NamedTextColor.GRAY));
+            }
+        }, callbackFor(sender));
+    }
+
+    private static String describeChange(HomeChange change) {
+        return switch (change.action()) {
+            case SET -> {
+                Home home = change.home();
+                yield home == null ? "set '" + change.homeName() + "'"
+                        : String.format("set '%s' at %s %.0f, %.0f, %.0f", home.name(), home.world(), home.x(), home.y(), home.z());
+            }
+            case DELETE -> "deleted '" + change.homeName() + "'";
+            case AUTO_DELETE -> "auto-deleted '" + change.homeName() + "' (limit lowered)";
+            case LIMIT -> "set the home limit to " + change.limit();
+            case IMPORT -> "imported " + (change.limit() > 0 ? "homes and the home limit " + change.limit() : "homes")
+                    + " from " + change.homeName();
+        };
+    }
+
+    private void handleStats(CommandSender sender) {
+        if (!metrics.isEnabled()) {
+            sender.sendMessage(Component.text("Metrics are disabled in config.yml.").color(NamedTextColor.RED));
+            return;
+        }
+        sender.sendMessage(Component.text("SimpleHome statistics (" + databaseManager.describeStore() + "):").color(NamedTextColor.GOLD));
+        for (String line : metrics.describe()) {
+            sender.sendMessage(Component.text("  " + line).color(NamedTextColor.YELLOW));
+        }
+        sender.sendMessage(Component.text("  " + homeCache.describeStats()).color(NamedTextColor.AQUA));
+        sender.sendMessage(Component.text("  " + homeSpatialIndex.describeStats()).color(NamedTextColor.AQUA));
+        sender.sendMessage(Component.text("  " + databaseManager.getWriteQueue().describeStats()).color(NamedTextColor.AQUA));
+        sender.sendMessage(Component.text("  " + chunkPrewarmer.describeStats()).color(NamedTextColor.AQUA));
+        sender.sendMessage(Component.text("  Teleports: " + teleportManager.getPendingWarmups() + " warmups pending, " +
+                teleportManager.getActiveCooldowns() + " cooldowns active").color(NamedTextColor.AQUA));
+        sender.sendMessage(Component.text("  " + teleportAdmission.describeStats()).color(NamedTextColor.AQUA));
+        sender.sendMessage(Component.text("  " + databaseMaintenance.describeStats()).color(NamedTextColor.AQUA));
+        sender.sendMessage(Component.text("  " + homeHistory.describeStats()).color(NamedTextColor.AQUA));
+    }
+
+    private void handleMaintenance(CommandSender sender) {
+        sender.sendMessage(Component.text("Running database maintenance...").color(NamedTextColor.YELLOW));
+        databaseMaintenance.run().thenAcceptAsync(report -> {
+            if (report == null) {
+                sender.sendMessage(Component.text("Database maintenance is already running.").color(NamedTextColor.RED));
+            } else {
+                sender.sendMessage(Component.text("Database maintenance " + report.describe() + ".")
+                        .color(report.failures() > 0 ? NamedTextColor.RED : NamedTextColor.GREEN));
+            }
+        }, callbackFor(sender));
+    }
+
+    private void handleHomeLimitChange(CommandSender sender, String playerName, UUID targetUUID, Player onlinePlayer, String action) {
+        if (action.equals("increase")) {
+            increaseHomeLimit(sender, playerName, onlinePlayer, targetUUID);
+        } else {
+            decreaseHomeLimit(sender, playerName, onlinePlayer, targetUUID);
+        }
+    }
+
+    // Both change the limit with one conditional UPDATE and report the limit the database ended up with, so
+    // concurrent changes by other admins or plugins are never lost.
+    private void increaseHomeLimit(CommandSender sender, String playerName, Player onlinePlayer, UUID targetUUID) {
+        homeCache.increaseHomeLimitAsync(targetUUID, sender.getName()).thenAcceptAsync(newLimit -> {
+            if (newLimit > 0) {
+                sender.sendMessage(Component.text("Increased " + playerName + "'s home limit from " + (newLimit - 1) + " to " + newLimit + ".").color(NamedTextColor.GREEN));
                 if (onlinePlayer != null) {
-                    onlinePlayer.sendMessage(Component.text("Your home limit has been increased to " + (currentLimit + 1) + ".").color(NamedTextColor.GREEN));
+                    onlinePlayer.sendMessage(Component.text("Your home limit has been increased to " + newLimit + ".").color(NamedTextColor.GREEN));
                 }
+            } else if (newLimit < 0) {
+                sender.sendMessage(Component.text(playerName + " is already at the maximum home limit (" + maxHomeLimit + ").").color(NamedTextColor.RED));
             } else {
                 sender.sendMessage(Component.text("Failed to increase " + playerName + "'s home limit.").color(NamedTextColor.RED));
             }
-        } else {
-            if (currentLimit <= 1) {
+        }, callbackFor(sender));
+    }
+
+    private void decreaseHomeLimit(CommandSender sender, String playerName, Player onlinePlayer, UUID targetUUID) {
+        // Excess homes are deleted in the same transaction as the limit change.
+        homeCache.decreaseHomeLimitAsync(targetUUID, sender.getName()).thenAcceptAsync(result -> {
+            if (result == null) {
+                sender.sendMessage(Component.text("Failed to decrease " + playerName + "'s home limit.").color(NamedTextColor.RED));
+                return;
+            }
+            if (result.limit() < 0) {
                 sender.sendMessage(Component.text(playerName + " is already at the minimum home limit (1).").color(NamedTextColor.RED));
                 return;
             }
 
-            int currentHomes = databaseManager.getHomeCount(targetUUID);
-            int newLimit = currentLimit - 1;
+            for (String homeToDelete : result.deletedHomes()) {
+                sender.sendMessage(Component.text("Auto-deleted home '" + homeToDelete + "' from " + playerName + ".").color(NamedTextColor.YELLOW));
+                if (onlinePlayer != null) {
+                    onlinePlayer.sendMessage(Component.text("Your home '" + homeToDelete + "' was deleted due to a limit decrease.").color(NamedTextColor.YELLOW));
+                }
+            }
+            sender.sendMessage(Component.text("Decreased " + playerName + "'s home limit from " + (result.limit() + 1) + " to " + result.limit() + ".").color(NamedTextColor.GREEN));
+            if (onlinePlayer != null) {
+                onlinePlayer.sendMessage(Component.text("Your home limit has been decreased to " + result.limit() + ".").color(NamedTextColor.YELLOW));
+            }
+        }, callbackFor(sender));
+    }
+
+    private File transferFolder() {
+        return new File(getDataFolder(), "transfers");
+    }
+
+    private List<String> listTransferFiles(String lowercasePrefix) {
+        String[] files = transferFolder().list((dir, name) -> HomeTransfer.Format.of(name) != null);
+        if (files == null) return Collections.emptyList();
+        List<String> matches = new ArrayList<>();
+        for (String file : files) {
+            if (file.toLowerCase().startsWith(lowercasePrefix)) {
+                matches.add(file);
+            }
+        }
+        Collections.sort(matches);
+        return matches;
+    }
 
-            // Auto-delete excess homes if necessary.
-            if (currentHomes > newLimit) {
-                List<String> homeNames = databaseManager.getHomes(targetUUID);
-                int homesToDelete = currentHomes - newLimit;
+    /**
+     * Resolves a file name inside the transfers folder, refusing anything that could point elsewhere.
+     */
+    private File transferFile(String fileName) {
+        if (!fileName.matches("^[a-zA-Z0-9_.-]+$") || fileName.startsWith(".")) return null;
+        return new File(transferFolder(), fileName);
+    }
 
-                for (int i = homeNames.size() - 1; i >= homeNames.size() - homesToDelete; i--) {
-                    String homeToDelete = homeNames.get(i);
-                    if (databaseManager.deleteHome(targetUUID, homeToDelete)) {
-                        sender.sendMessage(Component.text("Auto-deleted home '" + homeToDelete + "' from " + playerName + ".").color(NamedTextColor.YELLOW));
-                        if (onlinePlayer != null) {
-                            onlinePlayer.sendMessage(Component.text("Your home '" + homeToDelete + "' was deleted due to a limit decrease.").color(NamedTextColor.YELLOW));
-                        }
+    private void handleTransfer(CommandSender sender, String action, String fileName) {
+        File file = transferFile(fileName);
+        if (file == null || HomeTransfer.Format.of(fileName) == null) {
+            sender.sendMessage(Component.text("Use a plain file name ending in .csv or .jsonl; files are kept in plugins/SimpleHome/transfers.").color(NamedTextColor.RED));
+            return;
+        }
+        boolean isImport = action.equals("import");
+        if (isImport && !file.isFile()) {
+            sender.sendMessage(Component.text("File '" + fileName + "' not found in plugins/SimpleHome/transfers.").color(NamedTextColor.RED));
+            return;
+        }
+        if (!transferRunning.compareAndSet(false, true)) {
+            sender.sendMessage(Component.text("An import or export is already running.").color(NamedTextColor.RED));
+            return;
+        }
+
+        transferFolder().mkdirs();
+        sender.sendMessage(Component.text((isImport ? "Importing from " : "Exporting to ") + fileName + "...").color(NamedTextColor.YELLOW));
+        LongConsumer progress = rows -> callbackFor(sender).execute(() ->
+                sender.sendMessage(Component.text("  " + rows + " rows " + (isImport ? "imported" : "exported") + "...").color(NamedTextColor.GRAY)));
+
+        CompletableFuture<Component> task = databaseManager.supplyAsync(() -> {
+            try {
+                if (isImport) {
+                    HomeTransfer.Result result = homeTransfer.importFrom(file, sender.getName(), progress);
+                    // Cached players may have new homes or limits now.
+                    homeCache.reloadAll();
+                    return Component.text("Imported " + result.homes() + " homes and " + result.limits() + " home limits" +
+                            (result.skipped() > 0 ? " (skipped " + result.skipped() + " invalid lines, see the console)." : ".")).color(NamedTextColor.GREEN);
+                }
+                HomeTransfer.Result result = homeTransfer.exportTo(file, progress);
+                return Component.text("Exported " + result.homes() + " homes and " + result.limits() + " home limits to " + fileName + ".").color(NamedTextColor.GREEN);
+            } catch (IOException | SQLException e) {
+                getLogger().log(Level.SEVERE, "Could not " + action + " " + fileName + ": " + e.getMessage(), e);
+                return Component.text("Failed to " + action + " " + fileName + ": " + e.getMessage()).color(NamedTextColor.RED);
+            } finally {
+                transferRunning.set(false);
+            }
+        }, null);
+        task.thenAcceptAsync(message -> {
+            if (message == null) {
+                transferRunning.set(false);
+                message = Component.text("The database queue is full; try again later.").color(NamedTextColor.RED);
+            }
+            sender.sendMessage(message);
+        }, callbackFor(sender));
+    }
+
+    private void handleSetLimit(CommandSender sender, String[] args) {
+        if (args.length < 3) {
+            sender.sendMessage(Component.text("Usage: /homeadmin setlimit <limit> <player1,player2,...|file:name>").color(NamedTextColor.RED));
+            return;
+        }
+
+        int limit;
+        try {
+            limit = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            limit = -1;
+        }
+        if (limit < 1 || limit > maxHomeLimit) {
+            sender.sendMessage(Component.text("The limit must be a number from 1 to " + maxHomeLimit + ".").color(NamedTextColor.RED));
+            return;
+        }
+
+        String target = args[2];
+        File file = null;
+        if (target.startsWith("file:")) {
+            file = transferFile(target.substring("file:".length()));
+            if (file == null || !file.isFile()) {
+                sender.sendMessage(Component.text("File '" + target.substring("file:".length()) + "' not found in plugins/SimpleHome/transfers.").color(NamedTextColor.RED));
+                return;
+            }
+        }
+
+        int newLimit = limit;
+        File playerFile = file;
+        record Resolved(List<UUID> uuids, List<String> unknown) {}
+        databaseManager.supplyAsync(() -> {
+            List<String> entries = new ArrayList<>();
+            if (playerFile != null) {
+                // One player name or UUID per line.
+                try {
+                    for (String line : Files.readAllLines(playerFile.toPath(), StandardCharsets.UTF_8)) {
+                        if (!line.isBlank()) entries.add(line.trim());
                     }
+                } catch (IOException e) {
+                    getLogger().warning("Could not read " + playerFile.getName() + ": " + e.getMessage());
+                    return null;
                 }
+            } else {
+                entries.addAll(List.of(target.split(",")));
             }
 
-            if (databaseManager.setHomeLimit(targetUUID, newLimit)) {
-                sender.sendMessage(Component.text("Decreased " + playerName + "'s home limit from " + currentLimit + " to " + newLimit + ".").color(NamedTextColor.GREEN));
+            Set<UUID> uuids = new LinkedHashSet<>();
+            List<String> unknown = new ArrayList<>();
+            for (String entry : entries) {
+                UUID uuid = parseUUID(entry);
+                if (uuid == null) uuid = playerNames.getUUID(entry);
+                if (uuid != null) {
+                    uuids.add(uuid);
+                } else {
+                    unknown.add(entry);
+                }
+            }
+            return new Resolved(new ArrayList<>(uuids), unknown);
+        }, null).thenCompose(resolved -> {
+            if (resolved == null || resolved.uuids().isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return homeCache.setHomeLimitsAsync(resolved.uuids(), newLimit, sender.getName()).thenApply(deleted -> deleted == null ? null : Map.entry(resolved, deleted));
+        }).thenAcceptAsync(result -> {
+            if (result == null) {
+                sender.sendMessage(Component.text("Failed to set home limits; no known players were given or the update failed.").color(NamedTextColor.RED));
+                return;
+            }
+            Resolved resolved = result.getKey();
+            int deletedHomes = 0;
+            for (Map.Entry<UUID, List<String>> entry : result.getValue().entrySet()) {
+                deletedHomes += entry.getValue().size();
+                Player onlinePlayer = getServer().getPlayer(entry.getKey());
                 if (onlinePlayer != null) {
-                    onlinePlayer.sendMessage(Component.text("Your home limit has been decreased to " + newLimit + ".").color(NamedTextColor.YELLOW));
+                    onlinePlayer.sendMessage(Component.text("Your home limit has been set to " + newLimit + ".").color(NamedTextColor.YELLOW));
                 }
-            } else {
-                sender.sendMessage(Component.text("Failed to decrease " + playerName + "'s home limit.").color(NamedTextColor.RED));
             }
+            sender.sendMessage(Component.text("Set the home limit of " + resolved.uuids().size() + " players to " + newLimit +
+                    (deletedHomes > 0 ? ", deleting " + deletedHomes + " excess homes." : ".")).color(NamedTextColor.GREEN));
+            if (!resolved.unknown().isEmpty()) {
+                sender.sendMessage(Component.text("Unknown players skipped: " + String.join(", ", resolved.unknown())).color(NamedTextColor.YELLOW));
+            }
+        }, callbackFor(sender));
+    }
+
+    private static UUID parseUUID(String value) {
+        try {
+            return value.length() == 36 ? UUID.fromString(value) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
-    private void handleHomeInfo(CommandSender sender, String playerName, UUID targetUUID) {
-        int currentLimit = databaseManager.getHomeLimit(targetUUID);
-        int homeCount = databaseManager.getHomeCount(targetUUID);
-        List<String> homeNames = databaseManager.getHomes(targetUUID);
+    private void handleHomeInfo(CommandSender sender, String[] args, String playerName, UUID targetUUID) {
+        HomeListRenderer.Sort sort = args.length >= 3 ? HomeListRenderer.Sort.parse(args[2]) : HomeListRenderer.Sort.NAME;
+        int page = 1;
+        try {
+            if (args.length >= 4) page = Integer.parseInt(args[3]);
+        } catch (NumberFormatException e) {
+            sort = null;
+        }
+        if (sort == null) {
+            sender.sendMessage(Component.text("Usage: /homeadmin get <player> [name|recent|used] [page]").color(NamedTextColor.RED));
+            return;
+        }
+
+        HomeListRenderer.Sort order = sort;
+        int requestedPage = page;
+        CompletableFuture<Map<String, HomeUsage>> usage = order == HomeListRenderer.Sort.NAME
+                ? CompletableFuture.completedFuture(Map.of())
+                : homeCache.getHomeUsageAsync(targetUUID);
+        CompletableFuture<Integer> limit = homeCache.getHomeLimitAsync(targetUUID);
+        CompletableFuture<List<String>> homeNames = homeCache.getHomesAsync(targetUUID);
+        CompletableFuture.allOf(limit, homeNames, usage)
+                .thenRunAsync(() -> sendHomeInfo(sender, playerName, limit.join(), homeNames.join(), usage.join(),
+                        order, requestedPage), callbackFor(sender));
+    }
 
+    private void sendHomeInfo(CommandSender sender, String playerName, int currentLimit, List<String> homeNames,
+                              Map<String, HomeUsage> usage, HomeListRenderer.Sort sort, int page) {
         sender.sendMessage(Component.text(playerName + "'s home info:").color(NamedTextColor.GOLD));
-        sender.sendMessage(Component.text("  Current homes: " + homeCount + " / " + currentLimit).color(NamedTextColor.YELLOW));
+        sender.sendMessage(Component.text("  Current homes: " + homeNames.size() + " / " + currentLimit).color(NamedTextColor.YELLOW));
 
         if (homeNames.isEmpty()) {
             sender.sendMessage(Component.text("  No homes set.").color(NamedTextColor.GRAY));
         } else {
-            TextComponent homesText = Component.text("  Home names: ").color(NamedTextColor.AQUA);
-            int size = homeNames.size();
-            for (int i = 0; i < size; i++) {
-                String name = homeNames.get(i);
-                TextComponent homeNameComponent = Component.text(name)
-                        .clickEvent(ClickEvent.suggestCommand("/homeadmin visit " + playerName + " " + name))
-                        .hoverEvent(HoverEvent.showText(Component.text("Click to teleport to this home")))
-                        .decoration(TextDecoration.UNDERLINED, true)
-                        .color(NamedTextColor.WHITE);
-                homesText = homesText.append(homeNameComponent);
-                if (i < size - 1) {
-                    homesText = homesText.append(Component.text(", ").color(NamedTextColor.WHITE));
-                }
-            }
-            sender.sendMessage(homesText);
+            sender.sendMessage(HomeListRenderer.renderInfoPage(playerName, homeNames, usage, sort, page));
         }
     }
 
@@ -385,23 +1090,35 @@ public final class SimpleHome extends JavaPlugin implements Listener {
         }
 
         String homeName = args[2];
-        Location homeLocation = databaseManager.getHome(targetUUID, homeName);
+        homeCache.getHomeAsync(targetUUID, homeName).thenAcceptAsync(home -> {
+            Location homeLocation = resolveLocation(targetUUID, home);
 
-        if (homeLocation == null) {
-            sender.sendMessage(Component.text("Home '" + homeName + "' not found for player '" + playerName + "' or its world is not loaded.").color(NamedTextColor.RED));
-            return;
-        }
-
-        adminPlayer.teleportAsync(homeLocation).thenAccept(success -> {
-            if (success) {
-                adminPlayer.sendMessage(Component.text("Teleported to " + playerName + "'s home '" + homeName + "'.").color(NamedTextColor.GREEN));
-            } else {
-                adminPlayer.sendMessage(Component.text("Teleportation failed.").color(NamedTextColor.RED));
+            if (homeLocation == null) {
+                sender.sendMessage(Component.text("Home '" + homeName + "' not found for player '" + playerName + "' or its world is not loaded.").color(NamedTextColor.RED));
+                return;
             }
-        });
+
+            teleportManager.teleport(adminPlayer, homeLocation, TeleportManager.Kind.VISIT, success -> {
+                if (success) {
+                    adminPlayer.sendMessage(Component.text("Teleported to " + playerName + "'s home '" + homeName + "'.").color(NamedTextColor.GREEN));
+                } else {
+                    adminPlayer.sendMessage(Component.text("Teleportation failed.").color(NamedTextColor.RED));
+                }
+            });
+        }, callbackFor(sender));
+    }
+
+    private Location resolveLocation(UUID uuid, Home home) {
+        if (home == null) return null;
+        World world = getServer().getWorld(home.world());
+        if (world == null) {
+            getLogger().warning("World '" + home.world() + "' not found for home '" + home.name() + "' of " + uuid);
+            return null;
+        }
+        return home.toLocation(world);
     }
 
-    private boolean isValidHomeName(String name) {
+    static boolean isValidHomeName(String name) {
         return name != null && !name.isEmpty() && name.matches("^[a-zA-Z0-9_-]+$") && name.length() <= 30;
     }
 
@@ -412,41 +1129,41 @@ public final class SimpleHome extends JavaPlugin implements Listener {
             return onlinePlayer.getUniqueId();
         }
 
-        // If not online, try offline player.
-        org.bukkit.OfflinePlayer offlinePlayer = getServer().getOfflinePlayer(playerName);
-        if (offlinePlayer != null && offlinePlayer.hasPlayedBefore()) {
-            return offlinePlayer.getUniqueId();
-        }
+        // If not online, use the names recorded on join. Never a blocking profile lookup.
+        return playerNames.getUUID(playerName);
+    }
 
-        return null;
+    // --- API Methods ---
+    // These block until the answer is known; other plugins should use the HomeService instead.
+
+    /**
+     * The asynchronous API, also available from Bukkit's ServicesManager. Null while the plugin is disabled.
+     */
+    public HomeService getHomeService() {
+        return homeService;
     }
 
-    // --- API Methods --- 
     public int getHomeLimit(UUID playerUUID) {
-        if (databaseManager == null) {
-             getLogger().warning("Attempted to get home limit, but DatabaseManager is null.");
+        if (homeService == null) {
+             getLogger().warning("Attempted to get home limit, but SimpleHome is not enabled.");
              return 1;
         }
-        return databaseManager.getHomeLimit(playerUUID);
+        return homeService.getHomeLimit(playerUUID).join();
     }
 
     public boolean increaseHomeLimit(UUID playerUUID) {
-         if (databaseManager == null) {
-             getLogger().severe("Attempted to increase home limit, but DatabaseManager is null.");
-             return false;
-         }
-         if (getHomeLimit(playerUUID) >= this.maxHomeLimit) {
+         if (homeService == null) {
+             getLogger().severe("Attempted to increase home limit, but SimpleHome is not enabled.");
              return false;
          }
-         boolean success = databaseManager.increaseHomeLimit(playerUUID);
-         return success;
+         return homeService.increaseHomeLimit(playerUUID).join();
     }
 
     public int getCurrentHomeCount(UUID playerUUID) {
-        if (databaseManager == null) {
-            getLogger().warning("Attempted to get home count, but DatabaseManager is null.");
+        if (homeService == null) {
+            getLogger().warning("Attempted to get home count, but SimpleHome is not enabled.");
             return 0;
         }
-        return databaseManager.getHomeCount(playerUUID);
+        return homeService.getHomeCount(playerUUID).join();
     }
 }
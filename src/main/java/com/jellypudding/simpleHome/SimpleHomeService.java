@@ -0,0 +1,142 @@
+package com.jellypudding.simpleHome;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * The {@link HomeService} registered by SimpleHome. Reads and writes go through the {@link HomeCache}, so other
+ * plugins see the same homes as the commands and their writes reach the cache and the other servers.
+ */
+public class SimpleHomeService implements HomeService {
+
+    private final DatabaseManager databaseManager;
+    private final HomeCache homeCache;
+    private final HomeSpatialIndex spatialIndex;
+    private final HomeHistory history;
+    private final int maxHomeLimit;
+
+    SimpleHomeService(DatabaseManager databaseManager, HomeCache homeCache, HomeSpatialIndex spatialIndex,
+                      HomeHistory history, int maxHomeLimit) {
+        this.databaseManager = databaseManager;
+        this.homeCache = homeCache;
+        this.spatialIndex = spatialIndex;
+        this.history = history;
+        this.maxHomeLimit = maxHomeLimit;
+    }
+
+    @Override
+    public int getMaxHomeLimit() {
+        return maxHomeLimit;
+    }
+
+    @Override
+    public CompletableFuture<Integer> getHomeLimit(UUID uuid) {
+        return afterRestore(uuid, () -> homeCache.getHomeLimitAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, Integer>> getHomeLimits(Collection<UUID> uuids) {
+        return afterRestore(uuids, () -> homeCache.getHomeLimitsAsync(uuids));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> increaseHomeLimit(UUID uuid) {
+        return afterRestore(uuid, () -> homeCache.increaseHomeLimitAsync(uuid, HomeChange.PLUGIN).thenApply(newLimit -> newLimit > 0));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setHomeLimit(UUID uuid, int limit) {
+        return setHomeLimits(List.of(uuid), limit).thenApply(deleted -> deleted != null);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, List<String>>> setHomeLimits(Collection<UUID> uuids, int limit) {
+        if (limit < 1 || limit > maxHomeLimit) return CompletableFuture.completedFuture(null);
+        // Restores archived players itself.
+        return homeCache.setHomeLimitsAsync(List.copyOf(uuids), limit, HomeChange.PLUGIN);
+    }
+
+    @Override
+    public CompletableFuture<Integer> getHomeCount(UUID uuid) {
+        return afterRestore(uuid, () -> homeCache.getHomeCountAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, Integer>> getHomeCounts(Collection<UUID> uuids) {
+        return afterRestore(uuids, () -> homeCache.getHomeCountsAsync(uuids));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getHomeNames(UUID uuid) {
+        return afterRestore(uuid, () -> homeCache.getHomesAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Home> getHome(UUID uuid, String homeName) {
+        return afterRestore(uuid, () -> homeCache.getHomeAsync(uuid, homeName));
+    }
+
+    @Override
+    public CompletableFuture<List<Home>> getHomes(UUID uuid) {
+        return afterRestore(uuid, () -> homeCache.getAllHomesAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<HomeWriteResult> setHome(UUID uuid, Home home) {
+        if (!SimpleHome.isValidHomeName(home.name())) {
+            throw new IllegalArgumentException("Invalid home name: " + home.name());
+        }
+        Home normalized = new Home(home.name().toLowerCase(), home.world(), home.x(), home.y(), home.z(), home.yaw(), home.pitch());
+        return afterRestore(uuid, () -> homeCache.setHomeWithinLimitAsync(uuid, normalized, HomeChange.PLUGIN));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteHome(UUID uuid, String homeName) {
+        return afterRestore(uuid, () -> homeCache.deleteHomeAsync(uuid, homeName.toLowerCase(), HomeChange.PLUGIN));
+    }
+
+    @Override
+    public CompletableFuture<HomeSpatialIndex.Page> getHomesNear(String world, double x, double z, double radius,
+                                                                 int page, int pageSize) {
+        return spatialIndex.near(world, x, z, radius, page, pageSize);
+    }
+
+    @Override
+    public CompletableFuture<HomeSpatialIndex.Page> getHomesWithin(String world, double minX, double minZ,
+                                                                   double maxX, double maxZ, int page, int pageSize) {
+        return spatialIndex.within(world, minX, minZ, maxX, maxZ, page, pageSize);
+    }
+
+    @Override
+    public CompletableFuture<HomeHistory.Page> getHomeHistory(UUID uuid, int page) {
+        return history.history(uuid, page);
+    }
+
+    // Cached players were restored when they were loaded; without archived players there is nothing to restore.
+    private <T> CompletableFuture<T> afterRestore(UUID uuid, Supplier<CompletableFuture<T>> action) {
+        if (databaseManager.countArchivedPlayers() == 0 || homeCache.cachedPlayers().contains(uuid)) {
+            return action.get();
+        }
+        return databaseManager.restoreArchivedPlayerAsync(uuid).thenCompose(restored -> action.get());
+    }
+
+    private <T> CompletableFuture<T> afterRestore(Collection<UUID> uuids, Supplier<CompletableFuture<T>> action) {
+        if (databaseManager.countArchivedPlayers() == 0) return action.get();
+        List<UUID> uncached = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            if (!homeCache.cachedPlayers().contains(uuid)) uncached.add(uuid);
+        }
+        if (uncached.isEmpty()) return action.get();
+        return databaseManager.supplyAsync(() -> {
+            for (UUID uuid : uncached) {
+                databaseManager.restoreArchivedPlayer(uuid);
+            }
+            return null;
+        }, null).thenCompose(restored -> action.get());
+    }
+}
@@ -0,0 +1,31 @@
+package com.jellypudding.simpleHome;
+
+import java.sql.SQLException;
+
+/**
+ * Hands out database connections for reads, writes and transactions.
+ * Implementations decide how connections are shared; callers only see a {@link PooledConnection} for the duration of the work.
+ */
+public interface SqlConnections {
+
+    @FunctionalInterface
+    interface SqlFunction<T> {
+        T apply(PooledConnection connection) throws SQLException;
+    }
+
+    <T> T read(SqlFunction<T> work) throws SQLException;
+
+    <T> T write(SqlFunction<T> work) throws SQLException;
+
+    /**
+     * Runs work inside one transaction, rolling back if it throws.
+     */
+    <T> T transaction(SqlFunction<T> work) throws SQLException;
+
+    /**
+     * Runs a long read whose result sets are streamed rather than loaded at once, e.g. an export.
+     */
+    <T> T stream(SqlFunction<T> work) throws SQLException;
+
+    void close();
+}
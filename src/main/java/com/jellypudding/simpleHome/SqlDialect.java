@@ -0,0 +1,42 @@
+package com.jellypudding.simpleHome;
+
+import java.util.Collections;
+import java.util.StringJoiner;
+
+/**
+ * The statements whose syntax differs between the supported databases.
+ * MariaDB uses the MySQL dialect.
+ */
+public enum SqlDialect {
+    SQLITE, MYSQL, POSTGRESQL;
+
+    /**
+     * Inserts a row or, if one with the same key exists, updates the given columns in place.
+     * Columns are comma-separated, e.g. upsert("player_home_limits", "uuid, max_homes", "uuid", "max_homes").
+     */
+    public String upsert(String table, String columns, String keyColumns, String updateColumns) {
+        StringJoiner assignments = new StringJoiner(", ");
+        for (String column : updateColumns.split(", ")) {
+            assignments.add(this == MYSQL ? column + " = VALUES(" + column + ")" : column + " = excluded." + column);
+        }
+        String insert = "INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders(columns) + ")";
+        return this == MYSQL ? insert + " ON DUPLICATE KEY UPDATE " + assignments
+                : insert + " ON CONFLICT (" + keyColumns + ") DO UPDATE SET " + assignments;
+    }
+
+    /**
+     * Inserts a row unless one with the same key exists.
+     */
+    public String insertIgnore(String table, String columns) {
+        String values = " (" + columns + ") VALUES (" + placeholders(columns) + ")";
+        return switch (this) {
+            case SQLITE -> "INSERT OR IGNORE INTO " + table + values;
+            case MYSQL -> "INSERT IGNORE INTO " + table + values;
+            case POSTGRESQL -> "INSERT INTO " + table + values + " ON CONFLICT DO NOTHING";
+        };
+    }
+
+    private static String placeholders(String columns) {
+        return String.join(", ", Collections.nCopies(columns.split(", ").length, "?"));
+    }
+}
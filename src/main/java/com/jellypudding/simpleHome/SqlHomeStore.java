@@ -0,0 +1,707 @@
+package com.jellypudding.simpleHome;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.logging.Logger;
+
+/**
+ * The queries shared by every SQL database. Subclasses open the connections and create the schema;
+ * statements whose syntax differs come from the {@link SqlDialect}.
+ */
+public abstract class SqlHomeStore implements HomeStore {
+
+    private static final String SELECT_LIMIT = "SELECT max_homes FROM player_home_limits WHERE uuid = ?";
+    private static final String INCREASE_LIMIT = "UPDATE player_home_limits SET max_homes = max_homes + 1 WHERE uuid = ? AND max_homes < ?";
+    private static final String DECREASE_LIMIT = "UPDATE player_home_limits SET max_homes = max_homes - 1 WHERE uuid = ? AND max_homes > 1";
+    private static final String COUNT_HOMES = "SELECT COUNT(*) FROM player_homes WHERE uuid = ?";
+    private static final String HOME_COLUMNS = "SELECT h.home_name, w.name AS world, h.x, h.y, h.z, h.yaw, h.pitch" +
+            " FROM player_homes h JOIN worlds w ON w.world_id = h.world_id";
+    private static final String SELECT_HOME = HOME_COLUMNS + " WHERE h.uuid = ? AND h.home_name = ?";
+    private static final String SELECT_HOMES = HOME_COLUMNS + " WHERE h.uuid = ? ORDER BY h.home_name";
+    private static final String SELECT_HOME_NAMES = "SELECT home_name FROM player_homes WHERE uuid = ? ORDER BY home_name";
+    private static final String DELETE_HOME = "DELETE FROM player_homes WHERE uuid = ? AND home_name = ?";
+    // Existence, home count and home limit of a player in one round trip.
+    private static final String SELECT_QUOTA = "SELECT EXISTS(SELECT 1 FROM player_homes WHERE uuid = ? AND home_name = ?)," +
+            " (SELECT COUNT(*) FROM player_homes WHERE uuid = ?)," +
+            " COALESCE((SELECT max_homes FROM player_home_limits WHERE uuid = ?), 1)";
+    // Servers sharing the database would otherwise both see room for one more home; SQLite has a single writer anyway.
+    private static final String LOCK_LIMIT = "SELECT max_homes FROM player_home_limits WHERE uuid = ? FOR UPDATE";
+    private static final String SELECT_WORLD_ID = "SELECT world_id FROM worlds WHERE name = ?";
+    private static final String SELECT_PLAYER_NAMES = "SELECT uuid, name, last_seen FROM player_names ORDER BY last_seen";
+    private static final String DELETE_OLD_PLAYER_NAMES = "DELETE FROM player_names WHERE uuid = ? AND name <> ?";
+    private static final String EXPORT_HOMES = "SELECT h.uuid, h.home_name, w.name AS world, h.x, h.y, h.z, h.yaw, h.pitch" +
+            " FROM player_homes h JOIN worlds w ON w.world_id = h.world_id";
+    private static final String EXPORT_LIMITS = "SELECT uuid, max_homes FROM player_home_limits";
+    private static final String RECORD_HOME_USE = "UPDATE player_homes SET use_count = use_count + 1, last_used = ? WHERE uuid = ? AND home_name = ?";
+    private static final String SELECT_HOME_USAGE = "SELECT home_name, use_count, last_used FROM player_homes WHERE uuid = ? AND use_count > 0";
+    private static final String DELETE_EXPIRED_COOLDOWNS = "DELETE FROM teleport_cooldowns WHERE expires_at <= ?";
+    private static final String SELECT_COOLDOWNS = "SELECT uuid, kind, expires_at FROM teleport_cooldowns";
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final String SELECT_WORLD_NAMES = "SELECT name FROM worlds ORDER BY name";
+    private static final String SELECT_WORLD_HOMES = "SELECT h.uuid, h.home_name, w.name AS world, h.x, h.y, h.z, h.yaw, h.pitch" +
+            " FROM player_homes h JOIN worlds w ON w.world_id = h.world_id WHERE w.name = ? LIMIT ?";
+    // Bulk lookups bind this many UUIDs per statement, repeating the last one to fill a short chunk,
+    // so every chunk reuses the same prepared statement.
+    private static final int BULK_CHUNK_SIZE = 100;
+    private static final String SELECT_LIMITS = "SELECT uuid, max_homes FROM player_home_limits WHERE uuid IN (" +
+            placeholders(BULK_CHUNK_SIZE) + ")";
+    private static final String COUNT_HOMES_BULK = "SELECT uuid, COUNT(*) AS homes FROM player_homes WHERE uuid IN (" +
+            placeholders(BULK_CHUNK_SIZE) + ") GROUP BY uuid";
+    private static final String INSERT_HISTORY = "INSERT INTO home_history" +
+            " (uuid, changed_at, action, home_name, world, x, y, z, yaw, pitch, home_limit, actor)" +
+            " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_HISTORY = "SELECT changed_at, action, home_name, world, x, y, z, yaw, pitch, home_limit, actor" +
+            " FROM home_history WHERE uuid = ? ORDER BY changed_at DESC, id DESC LIMIT ? OFFSET ?";
+    private static final String PRUNE_HISTORY = "DELETE FROM home_history WHERE changed_at < ?";
+    private static final String DELETE_WORLD_HOME = "DELETE FROM player_homes WHERE uuid = ? AND home_name = ?" +
+            " AND world_id = (SELECT world_id FROM worlds WHERE name = ?)";
+
+    protected final Logger logger;
+    protected final SqlConnections connections;
+    protected final SqlDialect dialect;
+
+    private final String upsertLimit;
+    private final String insertDefaultLimit;
+    // Unlike REPLACE INTO, an upsert keeps the usage columns of an existing home.
+    private final String upsertHome;
+    private final String insertWorld;
+    private final String upsertPlayerName;
+    private final String insertPlayerName;
+    private final String upsertCooldown;
+
+    // World name -> world_id. Ids never change once assigned, even with several servers sharing the database.
+    private final Map<String, Integer> worldIds = new ConcurrentHashMap<>();
+
+    protected SqlHomeStore(Logger logger, SqlConnections connections, SqlDialect dialect) {
+        this.logger = logger;
+        this.connections = connections;
+        this.dialect = dialect;
+        this.upsertLimit = dialect.upsert("player_home_limits", "uuid, max_homes", "uuid", "max_homes");
+        this.insertDefaultLimit = dialect.insertIgnore("player_home_limits", "uuid, max_homes");
+        this.upsertHome = dialect.upsert("player_homes", "uuid, home_name, world_id, x, y, z, yaw, pitch",
+                "uuid, home_name", "world_id, x, y, z, yaw, pitch");
+        this.insertWorld = dialect.insertIgnore("worlds", "name");
+        this.upsertPlayerName = dialect.upsert("player_names", "name, uuid, last_seen", "name", "name, uuid, last_seen");
+        this.insertPlayerName = dialect.insertIgnore("player_names", "name, uuid, last_seen");
+        this.upsertCooldown = dialect.upsert("teleport_cooldowns", "uuid, kind, expires_at", "uuid, kind", "expires_at");
+    }
+
+    @Override
+    public void close() {
+        connections.close();
+    }
+
+    // --- Home Limits ---
+
+    @Override
+    public int getHomeLimit(UUID uuid) throws SQLException {
+        return connections.read(connection -> selectHomeLimit(connection, uuid));
+    }
+
+    private int selectHomeLimit(PooledConnection connection, UUID uuid) throws SQLException {
+        PreparedStatement pstmt = connection.prepare(SELECT_LIMIT);
+        pstmt.setBytes(1, Uuids.toBytes(uuid));
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt("max_homes") : 1;
+        }
+    }
+
+    @Override
+    public int increaseHomeLimit(UUID uuid, int maxHomeLimit) throws SQLException {
+        // A single conditional UPDATE, so two increases (possibly from two servers) can't both read the same limit.
+        return connections.transaction(connection -> {
+            byte[] uuidBytes = Uuids.toBytes(uuid);
+            PreparedStatement insert = connection.prepare(insertDefaultLimit);
+            insert.setBytes(1, uuidBytes);
+            insert.setInt(2, 1);
+            insert.executeUpdate();
+
+            PreparedStatement update = connection.prepare(INCREASE_LIMIT);
+            update.setBytes(1, uuidBytes);
+            update.setInt(2, maxHomeLimit);
+            if (update.executeUpdate() == 0) {
+                return -1;
+            }
+            return selectHomeLimit(connection, uuid);
+        });
+    }
+
+    @Override
+    public LimitDecrease decreaseHomeLimit(UUID uuid) throws SQLException {
+        // Conditional like the increase; a player without a stored limit is at the default of 1 already.
+        return connections.transaction(connection -> {
+            PreparedStatement update = connection.prepare(DECREASE_LIMIT);
+            update.setBytes(1, Uuids.toBytes(uuid));
+            if (update.executeUpdate() == 0) {
+                return new LimitDecrease(-1, List.of());
+            }
+            int limit = selectHomeLimit(connection, uuid);
+            return new LimitDecrease(limit, deleteExcessHomes(connection, uuid, limit));
+        });
+    }
+
+    @Override
+    public void setHomeLimit(UUID uuid, int limit) throws SQLException {
+        connections.write(connection -> {
+            PreparedStatement pstmt = connection.prepare(upsertLimit);
+            pstmt.setBytes(1, Uuids.toBytes(uuid));
+            pstmt.setInt(2, limit);
+            return pstmt.executeUpdate();
+        });
+    }
+
+    @Override
+    public Map<UUID, List<String>> setHomeLimits(Collection<UUID> uuids, int limit) throws SQLException {
+        return connections.transaction(connection -> {
+            Map<UUID, List<String>> deletedHomes = new HashMap<>();
+            for (UUID uuid : uuids) {
+                List<String> excess = deleteExcessHomes(connection, uuid, limit);
+                PreparedStatement upsert = connection.prepare(upsertLimit);
+                upsert.setBytes(1, Uuids.toBytes(uuid));
+                upsert.setInt(2, limit);
+                upsert.executeUpdate();
+                deletedHomes.put(uuid, excess);
+            }
+            return deletedHomes;
+        });
+    }
+
+    private List<String> deleteExcessHomes(PooledConnection connection, UUID uuid, int limit) throws SQLException {
+        byte[] uuidBytes = Uuids.toBytes(uuid);
+        // Homes past the first N in name order are the ones a limit of N leaves no room for.
+        List<String> names = selectHomeNames(connection, uuid);
+        List<String> excess = new ArrayList<>(names.subList(Math.min(limit, names.size()), names.size()));
+        PreparedStatement delete = connection.prepare(DELETE_HOME);
+        for (String homeName : excess) {
+            delete.setBytes(1, uuidBytes);
+            delete.setString(2, homeName);
+            delete.executeUpdate();
+        }
+        return excess;
+    }
+
+    @Override
+    public Map<UUID, Integer> getHomeLimits(Collection<UUID> uuids) throws SQLException {
+        Map<UUID, Integer> limits = new HashMap<>();
+        for (UUID uuid : uuids) {
+            limits.put(uuid, 1);
+        }
+        connections.read(connection -> selectInChunks(connection, SELECT_LIMITS, uuids,
+                rs -> limits.put(Uuids.fromBytes(rs.getBytes("uuid")), rs.getInt("max_homes"))));
+        return limits;
+    }
+
+    // --- Homes ---
+
+    @Override
+    public Map<UUID, Integer> getHomeCounts(Collection<UUID> uuids) throws SQLException {
+        Map<UUID, Integer> counts = new HashMap<>();
+        for (UUID uuid : uuids) {
+            counts.put(uuid, 0);
+        }
+        connections.read(connection -> selectInChunks(connection, COUNT_HOMES_BULK, uuids,
+                rs -> counts.put(Uuids.fromBytes(rs.getBytes("uuid")), rs.getInt("homes"))));
+        return counts;
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+        void read(ResultSet rs) throws SQLException;
+    }
+
+    private static Void selectInChunks(PooledConnection connection, String query, Collection<UUID> uuids,
+                                       RowReader reader) throws SQLException {
+        List<UUID> all = new ArrayList<>(uuids);
+        PreparedStatement pstmt = connection.prepare(query);
+        for (int from = 0; from < all.size(); from += BULK_CHUNK_SIZE) {
+            List<UUID> chunk = all.subList(from, Math.min(from + BULK_CHUNK_SIZE, all.size()));
+            for (int i = 0; i < BULK_CHUNK_SIZE; i++) {
+                pstmt.setBytes(i + 1, Uuids.toBytes(chunk.get(Math.min(i, chunk.size() - 1))));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    reader.read(rs);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    @Override
+    public int getHomeCount(UUID uuid) throws SQLException {
+        return connections.read(connection -> {
+            PreparedStatement pstmt = connection.prepare(COUNT_HOMES);
+            pstmt.setBytes(1, Uuids.toBytes(uuid));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    @Override
+    public Home getHome(UUID uuid, String homeName) throws SQLException {
+        return connections.read(connection -> {
+            PreparedStatement pstmt = connection.prepare(SELECT_HOME);
+            pstmt.setBytes(1, Uuids.toBytes(uuid));
+            pstmt.setString(2, homeName.toLowerCase());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? readHome(rs) : null;
+            }
+        });
+    }
+
+    @Override
+    public List<Home> getAllHomes(UUID uuid) throws SQLException {
+        return connections.read(connection -> {
+            List<Home> homes = new ArrayList<>();
+            PreparedStatement pstmt = connection.prepare(SELECT_HOMES);
+            pstmt.setBytes(1, Uuids.toBytes(uuid));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    homes.add(readHome(rs));
+                }
+            }
+            return homes;
+        });
+    }
+
+    private Home readHome(ResultSet rs) throws SQLException {
+        return new Home(rs.getString("home_name"), rs.getString("world"),
+                rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z"),
+                rs.getFloat("yaw"), rs.getFloat("pitch"));
+    }
+
+    @Override
+    public List<String> getHomes(UUID uuid) throws SQLException {
+        return connections.read(connection -> selectHomeNames(connection, uuid));
+    }
+
+    private List<String> selectHomeNames(PooledConnection connection, UUID uuid) throws SQLException {
+        List<String> homeNames = new ArrayList<>();
+        PreparedStatement pstmt = connection.prepare(SELECT_HOME_NAMES);
+        pstmt.setBytes(1, Uuids.toBytes(uuid));
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                homeNames.add(rs.getString("home_name"));
+            }
+        }
+        return homeNames;
+    }
+
+    @Override
+    public HomeWriteResult[] applyHomeWrites(List<WriteBehindQueue.PendingWrite> writes, int maxHomeLimit) throws SQLException {
+        try {
+            return connections.transaction(connection -> {
+                HomeWriteResult[] results = new HomeWriteResult[writes.size()];
+                for (int i = 0; i < writes.size(); i++) {
+                    WriteBehindQueue.PendingWrite write = writes.get(i);
+                    if (write.home() != null) {
+                        results[i] = upsertHome(connection, write.uuid(), write.home(), write.enforceLimit(), maxHomeLimit);
+                    } else {
+                        PreparedStatement delete = connection.prepare(DELETE_HOME);
+                        delete.setBytes(1, Uuids.toBytes(write.uuid()));
+                        delete.setString(2, write.homeName());
+                        results[i] = delete.executeUpdate() > 0 ? HomeWriteResult.DELETED : HomeWriteResult.NOT_FOUND;
+                    }
+                }
+                return results;
+            });
+        } catch (SQLException e) {
+            // World ids added by the rolled back transaction no longer exist.
+            worldIds.clear();
+            throw e;
+        }
+    }
+
+    private HomeWriteResult upsertHome(PooledConnection connection, UUID uuid, Home home, boolean enforceLimit, int maxHomeLimit) throws SQLException {
+        if (enforceLimit && dialect != SqlDialect.SQLITE) {
+            lockHomeLimit(connection, uuid);
+        }
+        PreparedStatement quota = connection.prepare(SELECT_QUOTA);
+        quota.setBytes(1, Uuids.toBytes(uuid));
+        quota.setString(2, home.name());
+        quota.setBytes(3, Uuids.toBytes(uuid));
+        quota.setBytes(4, Uuids.toBytes(uuid));
+        boolean exists;
+        try (ResultSet rs = quota.executeQuery()) {
+            rs.next();
+            exists = rs.getBoolean(1);
+            if (enforceLimit && !exists && rs.getInt(2) >= Math.min(rs.getInt(3), maxHomeLimit)) {
+                return HomeWriteResult.LIMIT_REACHED;
+            }
+        }
+
+        writeHome(connection, uuid, home);
+        return exists ? HomeWriteResult.UPDATED : HomeWriteResult.CREATED;
+    }
+
+    /**
+     * Locks the player's limit row until the transaction ends, adding it with the default limit if it is missing.
+     * The row is locked first and only inserted if absent, since upgrading the shared lock a duplicate insert takes
+     * would deadlock two servers setting a home for the same player.
+     */
+    private void lockHomeLimit(PooledConnection connection, UUID uuid) throws SQLException {
+        PreparedStatement lock = connection.prepare(LOCK_LIMIT);
+        lock.setBytes(1, Uuids.toBytes(uuid));
+        try (ResultSet rs = lock.executeQuery()) {
+            if (rs.next()) return;
+        }
+        PreparedStatement insert = connection.prepare(insertDefaultLimit);
+        insert.setBytes(1, Uuids.toBytes(uuid));
+        insert.setInt(2, 1);
+        insert.executeUpdate();
+        try (ResultSet rs = lock.executeQuery()) {
+            rs.next();
+        }
+    }
+
+    private void writeHome(PooledConnection connection, UUID uuid, Home home) throws SQLException {
+        PreparedStatement upsert = connection.prepare(upsertHome);
+        upsert.setBytes(1, Uuids.toBytes(uuid));
+        upsert.setString(2, home.name());
+        upsert.setInt(3, worldId(connection, home.world()));
+        upsert.setDouble(4, home.x());
+        upsert.setDouble(5, home.y());
+        upsert.setDouble(6, home.z());
+        upsert.setFloat(7, home.yaw());
+        upsert.setFloat(8, home.pitch());
+        upsert.executeUpdate();
+    }
+
+    /**
+     * Returns the id of a world in the dictionary table, adding it if needed.
+     * Must run on a connection that may write.
+     */
+    protected int worldId(PooledConnection connection, String worldName) throws SQLException {
+        Integer cached = worldIds.get(worldName);
+        if (cached != null) return cached;
+
+        Integer id = selectWorldId(connection, worldName);
+        if (id == null) {
+            // Another server may add the same world at the same time, so insert-or-ignore and read the id back.
+            PreparedStatement insert = connection.prepare(insertWorld);
+            insert.setString(1, worldName);
+            insert.executeUpdate();
+            id = selectWorldId(connection, worldName);
+            if (id == null) {
+                throw new SQLException("Could not add world " + worldName + " to the worlds table.");
+            }
+        }
+        worldIds.put(worldName, id);
+        return id;
+    }
+
+    private Integer selectWorldId(PooledConnection connection, String worldName) throws SQLException {
+        PreparedStatement select = connection.prepare(SELECT_WORLD_ID);
+        select.setString(1, worldName);
+        try (ResultSet rs = select.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : null;
+        }
+    }
+
+    protected void forgetWorldIds() {
+        worldIds.clear();
+    }
+
+    // --- Home Usage ---
+
+    @Override
+    public boolean recordHomeUse(UUID uuid, String homeName, long usedAt) throws SQLException {
+        int updated = connections.write(connection -> {
+            PreparedStatement pstmt = connection.prepare(RECORD_HOME_USE);
+            pstmt.setLong(1, usedAt);
+            pstmt.setBytes(2, Uuids.toBytes(uuid));
+            pstmt.setString(3, homeName.toLowerCase());
+            return pstmt.executeUpdate();
+        });
+        return updated > 0;
+    }
+
+    @Override
+    public Map<String, HomeUsage> getHomeUsage(UUID uuid) throws SQLException {
+        return connections.read(connection -> {
+            Map<String, HomeUsage> usage = new HashMap<>();
+            PreparedStatement pstmt = connection.prepare(SELECT_HOME_USAGE);
+            pstmt.setBytes(1, Uuids.toBytes(uuid));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    usage.put(rs.getString("home_name"), new HomeUsage(rs.getInt("use_count"), rs.getLong("last_used")));
+                }
+            }
+            return usage;
+        });
+    }
+
+    // --- Teleport Cooldowns ---
+
+    @Override
+    public List<TeleportManager.Cooldown> loadCooldowns(long now) throws SQLException {
+        return connections.write(connection -> {
+            PreparedStatement delete = connection.prepare(DELETE_EXPIRED_COOLDOWNS);
+            delete.setLong(1, now);
+            delete.executeUpdate();
+
+            List<TeleportManager.Cooldown> cooldowns = new ArrayList<>();
+            PreparedStatement select = connection.prepare(SELECT_COOLDOWNS);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    cooldowns.add(new TeleportManager.Cooldown(Uuids.fromBytes(rs.getBytes("uuid")),
+                            rs.getString("kind"), rs.getLong("expires_at")));
+                }
+            }
+            return cooldowns;
+        });
+    }
+
+    @Override
+    public void saveCooldown(TeleportManager.Cooldown cooldown) throws SQLException {
+        connections.write(connection -> {
+            PreparedStatement pstmt = connection.prepare(upsertCooldown);
+            pstmt.setBytes(1, Uuids.toBytes(cooldown.uuid()));
+            pstmt.setString(2, cooldown.kind());
+            pstmt.setLong(3, cooldown.expiresAt());
+            return pstmt.executeUpdate();
+        });
+    }
+
+    // --- History ---
+
+    @Override
+    public void appendHistory(List<HomeChange> changes) throws SQLException {
+        connections.transaction(connection -> {
+            PreparedStatement insert = connection.prepare(INSERT_HISTORY);
+            for (HomeChange change : changes) {
+                Home home = change.home();
+                insert.setBytes(1, Uuids.toBytes(change.player()));
+                insert.setLong(2, change.changedAt());
+                insert.setString(3, change.action().name());
+                insert.setString(4, change.homeName());
+                if (home != null) {
+                    insert.setString(5, home.world());
+                    insert.setDouble(6, home.x());
+                    insert.setDouble(7, home.y());
+                    insert.setDouble(8, home.z());
+                    insert.setFloat(9, home.yaw());
+                    insert.setFloat(10, home.pitch());
+                } else {
+                    insert.setNull(5, Types.VARCHAR);
+                    for (int i = 6; i <= 10; i++) {
+                        insert.setNull(i, Types.DOUBLE);
+                    }
+                }
+                insert.setInt(11, change.limit());
+                insert.setString(12, change.actor());
+                insert.addBatch();
+            }
+            return insert.executeBatch();
+        });
+    }
+
+    @Override
+    public List<HomeChange> getHistory(UUID uuid, int offset, int limit) throws SQLException {
+        return connections.read(connection -> {
+            List<HomeChange> changes = new ArrayList<>();
+            PreparedStatement pstmt = connection.prepare(SELECT_HISTORY);
+            pstmt.setBytes(1, Uuids.toBytes(uuid));
+            pstmt.setInt(2, limit);
+            pstmt.setInt(3, offset);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    // Rows written by a newer version of the plugin may use actions this one doesn't know.
+                    HomeChange.Action action = HomeChange.Action.fromId(rs.getString("action"));
+                    if (action == null) continue;
+                    String homeName = rs.getString("home_name");
+                    String world = rs.getString("world");
+                    Home home = world == null ? null : new Home(homeName, world, rs.getDouble("x"), rs.getDouble("y"),
+                            rs.getDouble("z"), rs.getFloat("yaw"), rs.getFloat("pitch"));
+                    changes.add(new HomeChange(rs.getLong("changed_at"), uuid, action, homeName, home,
+                            rs.getInt("home_limit"), rs.getString("actor")));
+                }
+            }
+            return changes;
+        });
+    }
+
+    @Override
+    public int pruneHistory(long changedBefore) throws SQLException {
+        return connections.write(connection -> {
+            PreparedStatement pstmt = connection.prepare(PRUNE_HISTORY);
+            pstmt.setLong(1, changedBefore);
+            return pstmt.executeUpdate();
+        });
+    }
+
+    // --- Player Names ---
+
+    @Override
+    public List<PlayerNameIndex.Entry> getPlayerNames() throws SQLException {
+        return connections.read(connection -> {
+            List<PlayerNameIndex.Entry> entries = new ArrayList<>();
+            PreparedStatement pstmt = connection.prepare(SELECT_PLAYER_NAMES);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(new PlayerNameIndex.Entry(Uuids.fromBytes(rs.getBytes("uuid")),
+                            rs.getString("name"), rs.getLong("last_seen")));
+                }
+            }
+            return entries;
+        });
+    }
+
+    @Override
+    public void updatePlayerName(UUID uuid, String name, long lastSeen) throws SQLException {
+        // Replaces the player's previous name and any other player that used to have this one.
+        connections.transaction(connection -> {
+            PreparedStatement delete = connection.prepare(DELETE_OLD_PLAYER_NAMES);
+            delete.setBytes(1, Uuids.toBytes(uuid));
+            delete.setString(2, name);
+            delete.executeUpdate();
+
+            PreparedStatement upsert = connection.prepare(upsertPlayerName);
+            upsert.setString(1, name);
+            upsert.setBytes(2, Uuids.toBytes(uuid));
+            upsert.setLong(3, lastSeen);
+            return upsert.executeUpdate();
+        });
+    }
+
+    @Override
+    public int addPlayerNames(List<PlayerNameIndex.Entry> entries) throws SQLException {
+        return connections.transaction(connection -> {
+            PreparedStatement insert = connection.prepare(insertPlayerName);
+            int added = 0;
+            for (PlayerNameIndex.Entry entry : entries) {
+                insert.setString(1, entry.name());
+                insert.setBytes(2, Uuids.toBytes(entry.uuid()));
+                insert.setLong(3, entry.lastSeen());
+                added += insert.executeUpdate();
+            }
+            return added;
+        });
+    }
+
+    // --- Bulk Transfer ---
+
+    @Override
+    public void exportAll(BiConsumer<UUID, Home> homes, ObjIntConsumer<UUID> limits) throws SQLException {
+        connections.stream(connection -> {
+            try (Statement stmt = connection.raw().createStatement()) {
+                stmt.setFetchSize(EXPORT_FETCH_SIZE);
+                for (String query : exportHomeQueries()) {
+                    try (ResultSet rs = stmt.executeQuery(query)) {
+                        while (rs.next()) {
+                            homes.accept(Uuids.fromBytes(rs.getBytes("uuid")), readHome(rs));
+                        }
+                    }
+                }
+                for (String query : exportLimitQueries()) {
+                    try (ResultSet rs = stmt.executeQuery(query)) {
+                        while (rs.next()) {
+                            limits.accept(Uuids.fromBytes(rs.getBytes("uuid")), rs.getInt("max_homes"));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Queries returning uuid plus the home columns, e.g. to include homes kept outside player_homes.
+     */
+    protected List<String> exportHomeQueries() {
+        return List.of(EXPORT_HOMES);
+    }
+
+    /**
+     * Queries returning uuid and max_homes.
+     */
+    protected List<String> exportLimitQueries() {
+        return List.of(EXPORT_LIMITS);
+    }
+
+    @Override
+    public void importChunk(List<HomeTransfer.Row> rows, int maxHomeLimit) throws SQLException {
+        try {
+            connections.transaction(connection -> {
+                for (HomeTransfer.Row row : rows) {
+                    if (row.home() != null) {
+                        writeHome(connection, row.uuid(), row.home());
+                    } else {
+                        PreparedStatement upsert = connection.prepare(upsertLimit);
+                        upsert.setBytes(1, Uuids.toBytes(row.uuid()));
+                        upsert.setInt(2, Math.max(1, Math.min(row.limit(), maxHomeLimit)));
+                        upsert.executeUpdate();
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            worldIds.clear();
+            throw e;
+        }
+    }
+
+    // --- Maintenance ---
+
+    @Override
+    public List<String> getWorldNames() throws SQLException {
+        return connections.read(connection -> {
+            List<String> names = new ArrayList<>();
+            try (ResultSet rs = connection.prepare(SELECT_WORLD_NAMES).executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString("name"));
+                }
+            }
+            return names;
+        });
+    }
+
+    @Override
+    public List<HomeTransfer.Row> getHomesInWorld(String world, int limit) throws SQLException {
+        return connections.read(connection -> {
+            PreparedStatement pstmt = connection.prepare(SELECT_WORLD_HOMES);
+            pstmt.setString(1, world);
+            pstmt.setInt(2, limit);
+            List<HomeTransfer.Row> homes = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    homes.add(new HomeTransfer.Row(Uuids.fromBytes(rs.getBytes("uuid")), readHome(rs), 0));
+                }
+            }
+            return homes;
+        });
+    }
+
+    @Override
+    public int deleteHomes(List<HomeTransfer.Row> homes) throws SQLException {
+        return connections.transaction(connection -> {
+            PreparedStatement delete = connection.prepare(DELETE_WORLD_HOME);
+            int deleted = 0;
+            for (HomeTransfer.Row row : homes) {
+                delete.setBytes(1, Uuids.toBytes(row.uuid()));
+                delete.setString(2, row.home().name());
+                delete.setString(3, row.home().world());
+                deleted += delete.executeUpdate();
+            }
+            return deleted;
+        });
+    }
+}
@@ -0,0 +1,673 @@
+package com.jellypudding.simpleHome;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Homes in homes.db in the plugin folder: one writer plus read-only connections in WAL mode.
+ * The schema is versioned with PRAGMA user_version, see {@link SchemaMigrator}.
+ * Homes of long inactive players can be moved to archive.db, attached to every connection as the schema "archive",
+ * so the hot tables and their indexes stay small.
+ */
+public class SqliteHomeStore extends SqlHomeStore {
+
+    private static final int MIGRATION_BATCH_SIZE = 1000;
+    private static final String HOME_COLUMNS = "uuid, home_name, world_id, x, y, z, yaw, pitch, use_count, last_used";
+    private static final String SELECT_INACTIVE = "SELECT n.uuid, MAX(n.last_seen) AS last_seen FROM player_names n" +
+            " GROUP BY n.uuid HAVING MAX(n.last_seen) < ?" +
+            " AND (EXISTS (SELECT 1 FROM player_homes h WHERE h.uuid = n.uuid)" +
+            " OR EXISTS (SELECT 1 FROM player_home_limits l WHERE l.uuid = n.uuid))" +
+            " LIMIT ?";
+    private static final String ARCHIVE_HOMES = "INSERT OR REPLACE INTO archive.homes (" + HOME_COLUMNS + ")" +
+            " SELECT " + HOME_COLUMNS + " FROM main.player_homes WHERE uuid = ?";
+    private static final String ARCHIVE_PLAYER = "INSERT OR REPLACE INTO archive.players (uuid, max_homes, last_seen, archived_at)" +
+            " VALUES (?, (SELECT max_homes FROM main.player_home_limits WHERE uuid = ?), ?, ?)";
+    // Only rows whose archived copy still exists; a restore in between the two steps wins.
+    private static final String DELETE_ARCHIVED_HOMES = "DELETE FROM main.player_homes WHERE uuid = ?" +
+            " AND EXISTS (SELECT 1 FROM archive.players WHERE uuid = ?)";
+    private static final String DELETE_ARCHIVED_LIMIT = "DELETE FROM main.player_home_limits WHERE uuid = ?" +
+            " AND EXISTS (SELECT 1 FROM archive.players WHERE uuid = ?)";
+    private static final String SELECT_ARCHIVED_PLAYER = "SELECT max_homes FROM archive.players WHERE uuid = ?";
+    private static final String RESTORE_HOMES = "INSERT OR IGNORE INTO main.player_homes (" + HOME_COLUMNS + ")" +
+            " SELECT " + HOME_COLUMNS + " FROM archive.homes WHERE uuid = ?";
+    private static final String RESTORE_LIMIT = "INSERT INTO main.player_home_limits (uuid, max_homes) VALUES (?, ?)" +
+            " ON CONFLICT(uuid) DO UPDATE SET max_homes = MAX(max_homes, excluded.max_homes)";
+    private static final String DELETE_RESTORED_HOMES = "DELETE FROM archive.homes WHERE uuid = ?";
+    private static final String DELETE_RESTORED_PLAYER = "DELETE FROM archive.players WHERE uuid = ?";
+
+    private final File databaseFile;
+    private final DatabaseSettings settings;
+    private boolean vacuumAfterMigration;
+    private File archiveFile;
+    // Held while players move between homes.db and archive.db, and while both are snapshotted, so a backup never
+    // catches a player half way and loses them from both files.
+    private final Object archiveLock = new Object();
+    // Lets logins skip the archive lookup entirely while nobody is archived.
+    private final AtomicLong archivedPlayers = new AtomicLong();
+
+    private SqliteHomeStore(Logger logger, ConnectionPool pool, File databaseFile, DatabaseSettings settings) {
+        super(logger, pool, SqlDialect.SQLITE);
+        this.databaseFile = databaseFile;
+        this.settings = settings;
+    }
+
+    /**
+     * Opens homes.db, creating or migrating the schema, then opens the read-only connections.
+     * archive.db is attached if coldStorage is set or it already exists, so archived players can always be restored.
+     */
+    public static SqliteHomeStore open(Logger logger, File dataFolder, DatabaseSettings settings, boolean coldStorage) throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite driver not found.", e);
+        }
+        File databaseFile = new File(dataFolder, "homes.db");
+        applyStagedRestore(logger, dataFolder, databaseFile);
+        ConnectionPool pool = new ConnectionPool(logger, "jdbc:sqlite:" + databaseFile.getAbsolutePath(), settings);
+        logger.info("Successfully connected to SQLite database (journal mode " + settings.journalMode() + ").");
+
+        SqliteHomeStore store = new SqliteHomeStore(logger, pool, databaseFile, settings);
+        store.initializeDatabase();
+        File archiveFile = new File(dataFolder, "archive.db");
+        if (coldStorage || archiveFile.exists()) {
+            try {
+                store.attachArchive(pool, archiveFile);
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Could not open " + archiveFile.getName() + "; archived homes are unavailable: " + e.getMessage(), e);
+            }
+        }
+        try {
+            pool.openReaders();
+            logger.info("Opened " + settings.readerPoolSize() + " read-only database connections.");
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Could not open read-only database connections: " + e.getMessage(), e);
+        }
+        return store;
+    }
+
+    /**
+     * Swaps in a backup staged by /homeadmin restore. homes.db and archive.db are swapped as a pair, since archived
+     * homes refer to worlds in homes.db: the current files, with their WAL, are kept as *.before-restore, and a backup
+     * taken without an archive leaves no archive.db.
+     */
+    private static void applyStagedRestore(Logger logger, File dataFolder, File databaseFile) throws SQLException {
+        File staged = new File(dataFolder, BackupManager.STAGED_RESTORE);
+        File stagedArchive = new File(dataFolder, BackupManager.STAGED_ARCHIVE_RESTORE);
+        try {
+            if (!staged.exists()) {
+                // Left over from a restore that was cancelled by deleting homes.db.restore.
+                Files.deleteIfExists(stagedArchive.toPath());
+                return;
+            }
+            for (String name : List.of(databaseFile.getName(), "archive.db")) {
+                for (String suffix : List.of("", "-wal", "-shm")) {
+                    Path current = new File(dataFolder, name + suffix).toPath();
+                    Path kept = new File(dataFolder, name + ".before-restore" + suffix).toPath();
+                    Files.deleteIfExists(kept);
+                    if (Files.exists(current)) {
+                        Files.move(current, kept);
+                    }
+                }
+            }
+            if (stagedArchive.exists()) {
+                Files.move(stagedArchive.toPath(), new File(dataFolder, "archive.db").toPath());
+            }
+            Files.move(staged.toPath(), databaseFile.toPath());
+        } catch (IOException e) {
+            throw new SQLException("Could not swap in the staged backup " + staged.getName() + ": " + e.getMessage(), e);
+        }
+        logger.warning("Restored homes.db and archive.db from the staged backup. The previous files were kept as *.before-restore.");
+    }
+
+    // --- Backups ---
+
+    /**
+     * Runs VACUUM INTO for homes.db and then archive.db on a connection of its own. Each copy only holds a read
+     * transaction, which in WAL mode never blocks the writer. In other journal modes that read transaction holds a
+     * shared lock on the file, so every home write waits until the copy is done.
+     * The two files can't be copied in one transaction, so archiving and restoring players wait for the pair instead.
+     */
+    @Override
+    public boolean snapshot(File target, File archiveTarget) throws SQLException {
+        synchronized (archiveLock) {
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+                 Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA busy_timeout = " + settings.busyTimeoutMillis());
+                vacuumInto(connection, "main", target);
+                if (archiveFile == null) return false;
+                attach(connection, "archive", archiveFile);
+                vacuumInto(connection, "archive", archiveTarget);
+                return true;
+            }
+        }
+    }
+
+    private static void vacuumInto(Connection connection, String schema, File target) throws SQLException {
+        try (PreparedStatement vacuum = connection.prepareStatement("VACUUM " + schema + " INTO ?")) {
+            vacuum.setString(1, target.getAbsolutePath());
+            vacuum.execute();
+        }
+    }
+
+    private static void attach(Connection connection, String schema, File file) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("ATTACH DATABASE ? AS " + schema)) {
+            pstmt.setString(1, file.getAbsolutePath());
+            pstmt.execute();
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "SQLite (" + databaseFile.getName() + ", journal mode " + settings.journalMode() +
+                (archiveFile != null ? ", " + archivedPlayers.get() + " players in " + archiveFile.getName() : "") + ")";
+    }
+
+    // --- Cold storage ---
+
+    private void attachArchive(ConnectionPool pool, File file) throws SQLException {
+        pool.attach("archive", file);
+        connections.write(connection -> {
+            try (Statement stmt = connection.raw().createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS archive.players (" +
+                        " uuid BLOB PRIMARY KEY NOT NULL," +
+                        // Null if the player had no stored limit.
+                        " max_homes INTEGER," +
+                        " last_seen INTEGER NOT NULL," +
+                        " archived_at INTEGER NOT NULL" +
+                        ") WITHOUT ROWID;");
+                stmt.execute("CREATE TABLE IF NOT EXISTS archive.homes (" +
+                        " uuid BLOB NOT NULL," +
+                        " home_name TEXT NOT NULL COLLATE NOCASE," +
+                        " world_id INTEGER NOT NULL," +
+                        " x REAL NOT NULL," +
+                        " y REAL NOT NULL," +
+                        " z REAL NOT NULL," +
+                        " yaw REAL NOT NULL," +
+                        " pitch REAL NOT NULL," +
+                        " use_count INTEGER NOT NULL," +
+                        " last_used INTEGER NOT NULL," +
+                        " PRIMARY KEY (uuid, home_name)" +
+                        ") WITHOUT ROWID;");
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM archive.players")) {
+                    archivedPlayers.set(rs.next() ? rs.getLong(1) : 0);
+                }
+            }
+            return null;
+        });
+        archiveFile = file;
+        logger.info("Attached " + file.getName() + " (" + archivedPlayers.get() + " archived players).");
+    }
+
+    /**
+     * Copies the players to the archive in one transaction and deletes them from the hot tables in a second, so a
+     * crash in between leaves a duplicate rather than losing homes. archive.db and homes.db commit separately anyway.
+     */
+    @Override
+    public int archiveInactivePlayers(long seenBefore, int limit, Set<UUID> exclude) throws SQLException {
+        if (archiveFile == null) return 0;
+
+        Map<UUID, Long> candidates = new LinkedHashMap<>();
+        connections.read(connection -> {
+            PreparedStatement pstmt = connection.prepare(SELECT_INACTIVE);
+            pstmt.setLong(1, seenBefore);
+            // Room for excluded players, which are dropped below.
+            pstmt.setInt(2, limit + exclude.size());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next() && candidates.size() < limit) {
+                    UUID uuid = Uuids.fromBytes(rs.getBytes("uuid"));
+                    if (!exclude.contains(uuid)) {
+                        candidates.put(uuid, rs.getLong("last_seen"));
+                    }
+                }
+            }
+            return null;
+        });
+        if (candidates.isEmpty()) return 0;
+
+        synchronized (archiveLock) {
+            // A player who started logging in since the select stays; exclude is a live view.
+            candidates.keySet().removeIf(exclude::contains);
+            if (candidates.isEmpty()) return 0;
+            // Counted before the move, so a login that starts now waits for the lock in restoreArchivedPlayer instead
+            // of skipping the restore and reading the hot tables half way through.
+            archivedPlayers.addAndGet(candidates.size());
+            long now = System.currentTimeMillis();
+            try {
+                connections.transaction(connection -> {
+                    PreparedStatement homes = connection.prepare(ARCHIVE_HOMES);
+                    PreparedStatement player = connection.prepare(ARCHIVE_PLAYER);
+                    for (Map.Entry<UUID, Long> entry : candidates.entrySet()) {
+                        byte[] uuid = Uuids.toBytes(entry.getKey());
+                        homes.setBytes(1, uuid);
+                        homes.executeUpdate();
+                        player.setBytes(1, uuid);
+                        player.setBytes(2, uuid);
+                        player.setLong(3, entry.getValue());
+                        player.setLong(4, now);
+                        player.executeUpdate();
+                    }
+                    return null;
+                });
+            } catch (SQLException | RuntimeException e) {
+                archivedPlayers.addAndGet(-candidates.size());
+                throw e;
+            }
+            connections.transaction(connection -> {
+                PreparedStatement homes = connection.prepare(DELETE_ARCHIVED_HOMES);
+                PreparedStatement limits = connection.prepare(DELETE_ARCHIVED_LIMIT);
+                for (UUID uuid : candidates.keySet()) {
+                    byte[] bytes = Uuids.toBytes(uuid);
+                    homes.setBytes(1, bytes);
+                    homes.setBytes(2, bytes);
+                    homes.executeUpdate();
+                    limits.setBytes(1, bytes);
+                    limits.setBytes(2, bytes);
+                    limits.executeUpdate();
+                }
+                return null;
+            });
+            return candidates.size();
+        }
+    }
+
+    /**
+     * Copies back first and deletes the archived copy second, for the same reason as archiving.
+     */
+    @Override
+    public int restoreArchivedPlayer(UUID uuid) throws SQLException {
+        if (archiveFile == null || archivedPlayers.get() == 0) return -1;
+        byte[] bytes = Uuids.toBytes(uuid);
+
+        synchronized (archiveLock) {
+            Integer restored = connections.transaction(connection -> {
+                PreparedStatement select = connection.prepare(SELECT_ARCHIVED_PLAYER);
+                select.setBytes(1, bytes);
+                Integer limit;
+                try (ResultSet rs = select.executeQuery()) {
+                    if (!rs.next()) return null;
+                    int value = rs.getInt("max_homes");
+                    limit = rs.wasNull() ? null : value;
+                }
+                PreparedStatement homes = connection.prepare(RESTORE_HOMES);
+                homes.setBytes(1, bytes);
+                int count = homes.executeUpdate();
+                if (limit != null) {
+                    PreparedStatement upsert = connection.prepare(RESTORE_LIMIT);
+                    upsert.setBytes(1, bytes);
+                    upsert.setInt(2, limit);
+                    upsert.executeUpdate();
+                }
+                return count;
+            });
+            if (restored == null) return -1;
+
+            connections.transaction(connection -> {
+                PreparedStatement homes = connection.prepare(DELETE_RESTORED_HOMES);
+                homes.setBytes(1, bytes);
+                homes.executeUpdate();
+                PreparedStatement player = connection.prepare(DELETE_RESTORED_PLAYER);
+                player.setBytes(1, bytes);
+                if (player.executeUpdate() > 0) {
+                    archivedPlayers.decrementAndGet();
+                }
+                return null;
+            });
+            return restored;
+        }
+    }
+
+    @Override
+    public long countArchivedPlayers() {
+        return archivedPlayers.get();
+    }
+
+    @Override
+    protected List<String> exportHomeQueries() {
+        if (archiveFile == null) return super.exportHomeQueries();
+        return List.of(super.exportHomeQueries().get(0),
+                "SELECT h.uuid, h.home_name, w.name AS world, h.x, h.y, h.z, h.yaw, h.pitch" +
+                        " FROM archive.homes h JOIN main.worlds w ON w.world_id = h.world_id");
+    }
+
+    @Override
+    protected List<String> exportLimitQueries() {
+        if (archiveFile == null) return super.exportLimitQueries();
+        return List.of(super.exportLimitQueries().get(0),
+                "SELECT uuid, max_homes FROM archive.players WHERE max_homes IS NOT NULL");
+    }
+
+    // --- Maintenance ---
+
+    @Override
+    public void optimize() throws SQLException {
+        connections.write(connection -> {
+            try (Statement stmt = connection.raw().createStatement()) {
+                // PRAGMA optimize only refreshes statistics that already exist, so the first run gathers them in full.
+                stmt.execute(hasTable(connection.raw(), "sqlite_stat1") ? "PRAGMA optimize" : "ANALYZE");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Databases created before incremental auto-vacuum was enabled are switched over with one full VACUUM the first
+     * time there is anything to release; after that, free pages are released a bounded number at a time.
+     */
+    @Override
+    public long releaseFreePages(int maxPages) throws SQLException {
+        return connections.write(connection -> {
+            Connection raw = connection.raw();
+            long pageSize = pragma(raw, "page_size");
+            long before = pragma(raw, "freelist_count");
+            if (before == 0) return 0L;
+
+            try (Statement stmt = raw.createStatement()) {
+                if (pragma(raw, "auto_vacuum") != 2) {
+                    logger.info("Switching " + databaseFile.getName() + " to incremental auto-vacuum (one full VACUUM)...");
+                    stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                    stmt.execute("VACUUM");
+                    return (before - pragma(raw, "freelist_count")) * pageSize;
+                }
+                // Each freed page is one step of the statement, and some drivers step it only once per execution.
+                long target = Math.max(0, before - maxPages);
+                long free = before;
+                while (free > target) {
+                    stmt.execute("PRAGMA incremental_vacuum(" + (free - target) + ")");
+                    long now = pragma(raw, "freelist_count");
+                    if (now >= free) break;
+                    free = now;
+                }
+                return (before - free) * pageSize;
+            }
+        });
+    }
+
+    @Override
+    public long checkpoint() throws SQLException {
+        if (!settings.journalMode().equals("WAL")) return 0;
+        File wal = new File(databaseFile.getPath() + "-wal");
+        return connections.write(connection -> {
+            long before = wal.length();
+            try (Statement stmt = connection.raw().createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(TRUNCATE)")) {
+                // The first column is 1 if a reader kept the checkpoint from completing.
+                if (rs.next() && rs.getInt(1) != 0) {
+                    logger.fine("WAL checkpoint could not complete because of an active reader.");
+                }
+            }
+            return Math.max(0, before - wal.length());
+        });
+    }
+
+    private static long pragma(Connection connection, String name) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA " + name)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static String homesTableSql(String table) {
+        // WITHOUT ROWID clusters rows on the primary key, so there is no separate index to maintain.
+        return "CREATE TABLE IF NOT EXISTS " + table + " (" +
+                " uuid BLOB NOT NULL," +
+                " home_name TEXT NOT NULL COLLATE NOCASE," +
+                " world_id INTEGER NOT NULL REFERENCES worlds(world_id)," +
+                " x REAL NOT NULL," +
+                " y REAL NOT NULL," +
+                " z REAL NOT NULL," +
+                " yaw REAL NOT NULL," +
+                " pitch REAL NOT NULL," +
+                " use_count INTEGER NOT NULL DEFAULT 0," +
+                " last_used INTEGER NOT NULL DEFAULT 0," +
+                " PRIMARY KEY (uuid, home_name)" +
+                ") WITHOUT ROWID;";
+    }
+
+    // The configured max-home-limit is enforced by the plugin, so changing it never rewrites this table.
+    private static String limitsTableSql(String table) {
+        return "CREATE TABLE IF NOT EXISTS " + table + " (" +
+                " uuid BLOB PRIMARY KEY NOT NULL," +
+                " max_homes INTEGER NOT NULL DEFAULT 1 CHECK(max_homes >= 1)" +
+                ") WITHOUT ROWID;";
+    }
+
+    private static final String WORLDS_TABLE_SQL = "CREATE TABLE IF NOT EXISTS worlds (" +
+            " world_id INTEGER PRIMARY KEY," +
+            " name TEXT NOT NULL UNIQUE" +
+            ");";
+
+    /**
+     * Every schema change, in order. Append new migrations; never edit or reorder released ones.
+     * Migrations 1 to 5 also run on databases created before versioning (user_version 0), which may already
+     * contain some of their changes, so they check before changing anything.
+     */
+    private List<SchemaMigrator.Migration> migrations() {
+        return List.of(
+                new SchemaMigrator.Migration(1, "compact homes and limits tables", this::createCompactTables),
+                new SchemaMigrator.Migration(2, "home usage columns", connection -> {
+                    if (!hasColumn(connection.raw(), "player_homes", "use_count")) {
+                        try (Statement stmt = connection.raw().createStatement()) {
+                            stmt.execute("ALTER TABLE player_homes ADD COLUMN use_count INTEGER NOT NULL DEFAULT 0");
+                            stmt.execute("ALTER TABLE player_homes ADD COLUMN last_used INTEGER NOT NULL DEFAULT 0");
+                        }
+                    }
+                }),
+                new SchemaMigrator.Migration(3, "player names", connection -> {
+                    try (Statement stmt = connection.raw().createStatement()) {
+                        stmt.execute("CREATE TABLE IF NOT EXISTS player_names (" +
+                                " name TEXT PRIMARY KEY NOT NULL COLLATE NOCASE," +
+                                " uuid BLOB NOT NULL," +
+                                " last_seen INTEGER NOT NULL" +
+                                ") WITHOUT ROWID;");
+                        stmt.execute("CREATE INDEX IF NOT EXISTS idx_player_names_uuid ON player_names (uuid);");
+                    }
+                }),
+                new SchemaMigrator.Migration(4, "teleport cooldowns", connection -> {
+                    try (Statement stmt = connection.raw().createStatement()) {
+                        stmt.execute("CREATE TABLE IF NOT EXISTS teleport_cooldowns (" +
+                                " uuid BLOB NOT NULL," +
+                                " kind TEXT NOT NULL," +
+                                " expires_at INTEGER NOT NULL," +
+                                " PRIMARY KEY (uuid, kind)" +
+                                ") WITHOUT ROWID;");
+                    }
+                }),
+                new SchemaMigrator.Migration(5, "drop max-home-limit from the home limit constraint", this::dropLimitUpperBound),
+                new SchemaMigrator.Migration(6, "home history", connection -> {
+                    try (Statement stmt = connection.raw().createStatement()) {
+                        // A rowid table, so appends go to the end of the table instead of into the middle of an index.
+                        stmt.execute("CREATE TABLE IF NOT EXISTS home_history (" +
+                                " id INTEGER PRIMARY KEY," +
+                                " uuid BLOB NOT NULL," +
+                                " changed_at INTEGER NOT NULL," +
+                                " action TEXT NOT NULL," +
+                                " home_name TEXT," +
+                                " world TEXT," +
+                                " x REAL," +
+                                " y REAL," +
+                                " z REAL," +
+                                " yaw REAL," +
+                                " pitch REAL," +
+                                " home_limit INTEGER NOT NULL DEFAULT 0," +
+                                " actor TEXT NOT NULL" +
+                                ");");
+                        stmt.execute("CREATE INDEX IF NOT EXISTS idx_home_history_player ON home_history (uuid, changed_at);");
+                    }
+                })
+        );
+    }
+
+    private void initializeDatabase() {
+        try {
+            connections.write(connection -> {
+                // Measured before migrating, since the migration itself writes to the WAL.
+                long sizeBefore = sizeOnDisk();
+                new SchemaMigrator(logger, migrations()).migrate(connection);
+                if (vacuumAfterMigration) {
+                    // Return the pages freed by the old tables to the file system.
+                    try (Statement stmt = connection.raw().createStatement()) {
+                        stmt.execute("VACUUM");
+                        // In WAL mode the vacuumed pages are still in the WAL; write them back so the size is real.
+                        stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                    }
+                    logger.info("Database file size before migration: " + (sizeBefore / 1024) + " KiB, after: " + (sizeOnDisk() / 1024) + " KiB.");
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            forgetWorldIds();
+            logger.log(Level.SEVERE, "Could not migrate the database schema: " + e.getMessage(), e);
+        }
+    }
+
+    // The database file plus its WAL, which holds committed pages until they are checkpointed.
+    private long sizeOnDisk() {
+        return databaseFile.length() + new File(databaseFile.getPath() + "-wal").length();
+    }
+
+    private boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (rs.getString("name").equalsIgnoreCase(column)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void createCompactTables(PooledConnection connection) throws SQLException {
+        if (hasColumn(connection.raw(), "player_homes", "world")) {
+            migrateToCompactSchema(connection);
+            vacuumAfterMigration = true;
+            return;
+        }
+        try (Statement stmt = connection.raw().createStatement()) {
+            stmt.execute(WORLDS_TABLE_SQL);
+            stmt.execute(homesTableSql("player_homes"));
+            stmt.execute(limitsTableSql("player_home_limits"));
+        }
+    }
+
+    /**
+     * Moves the original TEXT-keyed tables to the compact layout: 16-byte UUID BLOBs, a worlds dictionary
+     * and WITHOUT ROWID tables. Rows are streamed across in batches.
+     */
+    private void migrateToCompactSchema(PooledConnection pooled) throws SQLException {
+        Connection connection = pooled.raw();
+        logger.info("Migrating database to the compact schema (binary UUIDs and a world dictionary)...");
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE player_homes RENAME TO player_homes_legacy");
+            stmt.execute("ALTER TABLE player_home_limits RENAME TO player_home_limits_legacy");
+            stmt.execute(WORLDS_TABLE_SQL);
+            stmt.execute(homesTableSql("player_homes"));
+            stmt.execute(limitsTableSql("player_home_limits"));
+
+            int homes = 0;
+            int skipped = 0;
+            String insertHome = "INSERT OR REPLACE INTO player_homes (uuid, home_name, world_id, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement insert = connection.prepareStatement(insertHome);
+                 ResultSet rs = stmt.executeQuery("SELECT uuid, home_name, world, x, y, z, yaw, pitch FROM player_homes_legacy")) {
+                while (rs.next()) {
+                    UUID uuid = parseLegacyUuid(rs.getString("uuid"));
+                    if (uuid == null) {
+                        skipped++;
+                        continue;
+                    }
+                    insert.setBytes(1, Uuids.toBytes(uuid));
+                    insert.setString(2, rs.getString("home_name").toLowerCase());
+                    insert.setInt(3, worldId(pooled, rs.getString("world")));
+                    insert.setDouble(4, rs.getDouble("x"));
+                    insert.setDouble(5, rs.getDouble("y"));
+                    insert.setDouble(6, rs.getDouble("z"));
+                    insert.setFloat(7, rs.getFloat("yaw"));
+                    insert.setFloat(8, rs.getFloat("pitch"));
+                    insert.addBatch();
+                    if (++homes % MIGRATION_BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+
+            int limits = 0;
+            String insertLimit = "INSERT OR REPLACE INTO player_home_limits (uuid, max_homes) VALUES (?, ?)";
+            try (PreparedStatement insert = connection.prepareStatement(insertLimit);
+                 ResultSet rs = stmt.executeQuery("SELECT uuid, MAX(max_homes, 1) AS max_homes FROM player_home_limits_legacy")) {
+                while (rs.next()) {
+                    UUID uuid = parseLegacyUuid(rs.getString("uuid"));
+                    if (uuid == null) {
+                        skipped++;
+                        continue;
+                    }
+                    insert.setBytes(1, Uuids.toBytes(uuid));
+                    insert.setInt(2, rs.getInt("max_homes"));
+                    insert.addBatch();
+                    if (++limits % MIGRATION_BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+
+            stmt.execute("DROP TABLE player_homes_legacy");
+            stmt.execute("DROP TABLE player_home_limits_legacy");
+            logger.info("Migrated " + homes + " homes and " + limits + " home limits" +
+                    (skipped > 0 ? " (skipped " + skipped + " rows with an invalid UUID)." : "."));
+        }
+    }
+
+    private UUID parseLegacyUuid(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Older versions baked max-home-limit into the CHECK constraint and rebuilt the table whenever it changed.
+     */
+    private void dropLimitUpperBound(PooledConnection connection) throws SQLException {
+        String sql;
+        try (PreparedStatement pstmt = connection.raw().prepareStatement("SELECT sql FROM sqlite_master WHERE type = 'table' AND name = 'player_home_limits'")) {
+            ResultSet rs = pstmt.executeQuery();
+            sql = rs.next() ? rs.getString(1) : null;
+        }
+        if (sql == null || !sql.contains("max_homes <=")) return;
+
+        try (Statement stmt = connection.raw().createStatement()) {
+            stmt.execute(limitsTableSql("player_home_limits_new"));
+            stmt.execute("INSERT INTO player_home_limits_new (uuid, max_homes) SELECT uuid, max_homes FROM player_home_limits");
+            stmt.execute("DROP TABLE player_home_limits");
+            stmt.execute("ALTER TABLE player_home_limits_new RENAME TO player_home_limits");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Which database homes are stored in, read from config.yml. SQLite needs nothing else;
+ * the networked databases are reached through a connection pool.
+ */
+public record StorageSettings(String type,
+                              SqlDialect dialect,
+                              String jdbcUrl,
+                              String driverClass,
+                              String username,
+                              String password,
+                              int poolSize,
+                              int minimumIdle,
+                              int connectionTimeoutMillis,
+                              int idleTimeoutMillis,
+                              int maxLifetimeMillis) {
+
+    private static final List<String> TYPES = List.of("sqlite", "mysql", "mariadb", "postgresql");
+
+    public static StorageSettings load(FileConfiguration config, Logger logger) {
+        String type = config.getString("storage.type", "sqlite").toLowerCase();
+        if (!TYPES.contains(type)) {
+            logger.warning("Invalid storage.type in config.yml (must be one of " + TYPES + "). Using default value: sqlite");
+            type = "sqlite";
+        }
+
+        SqlDialect dialect = switch (type) {
+            case "mysql", "mariadb" -> SqlDialect.MYSQL;
+            case "postgresql" -> SqlDialect.POSTGRESQL;
+            default -> SqlDialect.SQLITE;
+        };
+        String driverClass = switch (type) {
+            case "mysql" -> "com.mysql.cj.jdbc.Driver";
+            case "mariadb" -> "org.mariadb.jdbc.Driver";
+            case "postgresql" -> "org.postgresql.Driver";
+            default -> null;
+        };
+
+        String jdbcUrl = config.getString("storage.jdbc-url", "");
+        if (jdbcUrl.isEmpty()) {
+            int port = config.getInt("storage.port", 0);
+            if (port <= 0) {
+                port = dialect == SqlDialect.POSTGRESQL ? 5432 : 3306;
+            }
+            jdbcUrl = "jdbc:" + type + "://" + config.getString("storage.host", "localhost") + ":" + port + "/" +
+                    config.getString("storage.database", "simplehome");
+        } else {
+            // A custom URL (e.g. an embedded test database) brings its own driver.
+            driverClass = null;
+        }
+
+        return new StorageSettings(type, dialect, jdbcUrl, driverClass,
+                config.getString("storage.username", "simplehome"),
+                config.getString("storage.password", ""),
+                DatabaseSettings.atLeast(config, logger, "storage.pool.maximum-size", 10, 1),
+                DatabaseSettings.atLeast(config, logger, "storage.pool.minimum-idle", 2, 0),
+                DatabaseSettings.atLeast(config, logger, "storage.pool.connection-timeout-ms", 5000, 250),
+                DatabaseSettings.atLeast(config, logger, "storage.pool.idle-timeout-ms", 600000, 0),
+                DatabaseSettings.atLeast(config, logger, "storage.pool.max-lifetime-ms", 1800000, 0));
+    }
+
+    public boolean isSqlite() {
+        return dialect == SqlDialect.SQLITE;
+    }
+}
@@ -0,0 +1,203 @@
+package com.jellypudding.simpleHome;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A global admission queue in front of teleports, so a burst of /home commands (e.g. right after a restart)
+ * turns into a steady stream of chunk loads instead of hundreds in the same tick.
+ * A token bucket refilled every tick decides how many teleports start. Requests whose destinations share a chunk
+ * region are grouped and admitted together for one token, since they need the same chunks.
+ * Players are told their position while they wait. All state is touched on the global region
+ * thread (the main thread on Paper) only.
+ */
+public class TeleportAdmission {
+
+    private final TeleportSettings settings;
+    private final Metrics metrics;
+    private final double tokensPerTick;
+    private double tokens;
+
+    // Groups in order of arrival; each group is admitted as a whole.
+    private final LinkedHashMap<Object, List<Request>> groups = new LinkedHashMap<>();
+    private final Map<UUID, Request> requests = new HashMap<>();
+    private final List<Request> admitted = new ArrayList<>();
+    // Read by the metrics reporter, which may run on another thread.
+    private volatile int queued;
+    private long ticks;
+
+    // Statistics.
+    private long admittedImmediately;
+    private long admittedFromQueue;
+    private long admittedGrouped;
+    private long rejected;
+    private int maxQueued;
+
+    private record RegionKey(World world, int x, int z) {}
+
+    private static final class Request {
+        private final Player player;
+        private final Object group;
+        private final Runnable action;
+        private final long queuedAt = System.nanoTime();
+
+        private Request(Player player, Object group, Runnable action) {
+            this.player = player;
+            this.group = group;
+            this.action = action;
+        }
+    }
+
+    public TeleportAdmission(TeleportSettings settings, Metrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+        this.tokensPerTick = settings.admissionTeleportsPerSecond() / 20.0;
+        this.tokens = settings.admissionBurst();
+        metrics.gauge("teleport.admission.queued", () -> queued);
+    }
+
+    /**
+     * Runs the action now if there is budget left and nobody is waiting, otherwise queues it.
+     * A player has at most one queued request; a new one replaces the old.
+     */
+    public void submit(Player player, Location destination, Runnable action) {
+        if (!settings.admissionEnabled()) {
+            action.run();
+            return;
+        }
+        cancel(player.getUniqueId());
+
+        if (groups.isEmpty() && tokens >= 1) {
+            tokens--;
+            admittedImmediately++;
+            metrics.recordWait("teleport.admission.wait", 0);
+            action.run();
+            return;
+        }
+
+        if (queued >= settings.admissionMaxQueue()) {
+            rejected++;
+            player.sendMessage(Component.text("Too many players are teleporting right now. Please try again in a moment.").color(NamedTextColor.RED));
+            return;
+        }
+
+        Object group = groupOf(destination);
+        Request request = new Request(player, group, action);
+        List<Request> members = groups.computeIfAbsent(group, key -> new ArrayList<>(1));
+        members.add(request);
+        requests.put(player.getUniqueId(), request);
+        queued++;
+        maxQueued = Math.max(maxQueued, queued);
+        player.sendMessage(Component.text("Teleport queued, position " + positionOf(group) + ".").color(NamedTextColor.YELLOW));
+    }
+
+    /**
+     * Removes the player's queued request, if any, without running it.
+     */
+    public void cancel(UUID uuid) {
+        Request request = requests.remove(uuid);
+        if (request == null) return;
+        List<Request> members = groups.get(request.group);
+        members.remove(request);
+        if (members.isEmpty()) {
+            groups.remove(request.group);
+        }
+        queued--;
+    }
+
+    public boolean isQueued(UUID uuid) {
+        return requests.containsKey(uuid);
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public void tick() {
+        ticks++;
+        tokens = Math.min(settings.admissionBurst(), tokens + tokensPerTick);
+
+        long now = System.nanoTime();
+        Iterator<List<Request>> iterator = groups.values().iterator();
+        while (tokens >= 1 && iterator.hasNext()) {
+            List<Request> members = iterator.next();
+            iterator.remove();
+            tokens--;
+            for (int i = 0; i < members.size(); i++) {
+                Request request = members.get(i);
+                requests.remove(request.player.getUniqueId());
+                queued--;
+                admittedFromQueue++;
+                if (i > 0) {
+                    admittedGrouped++;
+                }
+                metrics.recordWait("teleport.admission.wait", now - request.queuedAt);
+                admitted.add(request);
+            }
+        }
+        // Run after dequeuing so an action can safely submit or cancel requests.
+        for (Request request : admitted) {
+            if (request.player.isOnline()) {
+                request.action.run();
+            }
+        }
+        admitted.clear();
+
+        int updateTicks = settings.admissionPositionUpdateSeconds() * 20;
+        if (updateTicks > 0 && ticks % updateTicks == 0 && !groups.isEmpty()) {
+            sendPositions();
+        }
+    }
+
+    public void clear() {
+        groups.clear();
+        requests.clear();
+        queued = 0;
+    }
+
+    private Object groupOf(Location destination) {
+        int size = settings.admissionGroupRegionChunks();
+        if (size <= 0) {
+            // Every request is its own group.
+            return new Object();
+        }
+        return new RegionKey(destination.getWorld(), Math.floorDiv(destination.getBlockX() >> 4, size),
+                Math.floorDiv(destination.getBlockZ() >> 4, size));
+    }
+
+    private int positionOf(Object group) {
+        int position = 1;
+        for (Object key : groups.keySet()) {
+            if (key.equals(group)) break;
+            position++;
+        }
+        return position;
+    }
+
+    private void sendPositions() {
+        int position = 1;
+        for (List<Request> members : groups.values()) {
+            Component message = Component.text("Still waiting to teleport, position " + position + ".").color(NamedTextColor.YELLOW);
+            for (Request request : members) {
+                request.player.sendMessage(message);
+            }
+            position++;
+        }
+    }
+
+    public String describeStats() {
+        return String.format("Teleport admission: %d admitted immediately, %d from the queue (%d grouped), %d rejected, %d queued in %d groups, %d at most, %.1f tokens",
+                admittedImmediately, admittedFromQueue, admittedGrouped, rejected, queued, groups.size(), maxQueued, tokens);
+    }
+}
@@ -0,0 +1,243 @@
+package com.jellypudding.simpleHome;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Teleport warmups (cancelled when the player moves) and cooldowns for /home and /homeadmin visit.
+ * Teleports that are ready to go pass through the {@link TeleportAdmission} queue.
+ * Everything runs on one repeating task: a timing wheel fires warmups and expires cooldowns, and pending warmups
+ * are checked for movement in one batch every few ticks instead of from a PlayerMoveEvent handler.
+ * Cooldowns are stored in the database so they survive restarts. All state is touched on the global region thread
+ * (the main thread on Paper) only; the teleport itself runs on the player's own thread.
+ */
+public class TeleportManager {
+
+    public enum Kind {
+        HOME("home", "/home"),
+        VISIT("visit", "/homeadmin visit");
+
+        private final String id;
+        private final String command;
+
+        Kind(String id, String command) {
+            this.id = id;
+            this.command = command;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        static Kind fromId(String id) {
+            for (Kind kind : values()) {
+                if (kind.id.equals(id)) return kind;
+            }
+            return null;
+        }
+    }
+
+    public record Cooldown(UUID uuid, String kind, long expiresAt) {}
+
+    private record CooldownKey(UUID uuid, Kind kind) {}
+
+    // Half a block, squared.
+    private static final double MOVE_TOLERANCE_SQUARED = 0.25;
+
+    private final JavaPlugin plugin;
+    private final DatabaseManager databaseManager;
+    private final TeleportSettings settings;
+    private final ChunkPrewarmer chunkPrewarmer;
+    private final TeleportAdmission admission;
+    private final boolean prewarmOnWarmup;
+    // 512 ticks (25.6 s) per revolution; longer delays just wait extra rounds.
+    private final TimingWheel wheel = new TimingWheel(512);
+    private final Map<UUID, Warmup> warmups = new HashMap<>();
+    private final Map<CooldownKey, Long> cooldowns = new HashMap<>();
+    // Reused by the movement check so it allocates nothing per player.
+    private final Location scratch = new Location(null, 0, 0, 0);
+    private ScheduledTask task;
+
+    private static final class Warmup {
+        private final Player player;
+        private final World world;
+        private final double x;
+        private final double y;
+        private final double z;
+        private TimingWheel.Timeout timeout;
+
+        private Warmup(Player player, Location origin) {
+            this.player = player;
+            this.world = origin.getWorld();
+            this.x = origin.getX();
+            this.y = origin.getY();
+            this.z = origin.getZ();
+        }
+    }
+
+    public TeleportManager(JavaPlugin plugin, DatabaseManager databaseManager, TeleportSettings settings,
+                           ChunkPrewarmer chunkPrewarmer, TeleportAdmission admission, boolean prewarmOnWarmup) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.settings = settings;
+        this.chunkPrewarmer = chunkPrewarmer;
+        this.admission = admission;
+        this.prewarmOnWarmup = prewarmOnWarmup;
+    }
+
+    public void start() {
+        long now = System.currentTimeMillis();
+        for (Cooldown cooldown : databaseManager.loadCooldowns(now)) {
+            Kind kind = Kind.fromId(cooldown.kind());
+            if (kind != null) {
+                trackCooldown(new CooldownKey(cooldown.uuid(), kind), cooldown.expiresAt(), now);
+            }
+        }
+        task = Schedulers.runGlobalTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        warmups.clear();
+        cooldowns.clear();
+        admission.clear();
+    }
+
+    /**
+     * Teleports the player after the warmup configured for this kind, unless they are on cooldown.
+     * onComplete receives the result of the teleport; it is not called if the teleport is refused or cancelled.
+     * Call on the player's thread.
+     */
+    public void teleport(Player player, Location destination, Kind kind, Consumer<Boolean> onComplete) {
+        Location origin = player.getLocation();
+        Schedulers.runGlobal(plugin, () -> teleport(player, origin, destination, kind, onComplete));
+    }
+
+    private void teleport(Player player, Location origin, Location destination, Kind kind, Consumer<Boolean> onComplete) {
+        UUID uuid = player.getUniqueId();
+        long remaining = remainingCooldownMillis(uuid, kind);
+        if (remaining > 0 && !player.hasPermission("simplehome.bypass.cooldown")) {
+            player.sendMessage(Component.text("You must wait " + ((remaining + 999) / 1000) + " seconds before using " + kind.command + " again.").color(NamedTextColor.RED));
+            return;
+        }
+
+        int warmupSeconds = settings.warmupSeconds(kind);
+        if (warmupSeconds <= 0 || player.hasPermission("simplehome.bypass.warmup")) {
+            complete(player, destination, kind, onComplete);
+            return;
+        }
+
+        cancel(uuid);
+        if (prewarmOnWarmup) {
+            chunkPrewarmer.prewarm(destination);
+        }
+        Warmup warmup = new Warmup(player, origin);
+        warmup.timeout = wheel.schedule(warmupSeconds * 20L, () -> {
+            warmups.remove(uuid);
+            complete(player, destination, kind, onComplete);
+        });
+        warmups.put(uuid, warmup);
+        player.sendMessage(Component.text("Teleporting in " + warmupSeconds + " seconds." +
+                (settings.cancelOnMove() ? " Don't move." : "")).color(NamedTextColor.YELLOW));
+    }
+
+    /**
+     * Cancels a pending warmup or queued teleport without a message, e.g. when the player leaves.
+     */
+    public void cancel(UUID uuid) {
+        Schedulers.runGlobal(plugin, () -> {
+            Warmup warmup = warmups.remove(uuid);
+            if (warmup != null) {
+                warmup.timeout.cancel();
+            }
+            admission.cancel(uuid);
+        });
+    }
+
+    public long remainingCooldownMillis(UUID uuid, Kind kind) {
+        Long expiresAt = cooldowns.get(new CooldownKey(uuid, kind));
+        return expiresAt == null ? 0 : Math.max(0, expiresAt - System.currentTimeMillis());
+    }
+
+    public int getPendingWarmups() {
+        return warmups.size();
+    }
+
+    public int getActiveCooldowns() {
+        return cooldowns.size();
+    }
+
+    private void complete(Player player, Location destination, Kind kind, Consumer<Boolean> onComplete) {
+        if (!player.isOnline()) return;
+        admission.submit(player, destination, () -> Schedulers.runFor(plugin, player, () ->
+                player.teleportAsync(destination).thenAccept(success -> Schedulers.runGlobal(plugin, () -> {
+                    if (success) {
+                        startCooldown(player.getUniqueId(), kind);
+                    }
+                    onComplete.accept(success);
+                }))));
+    }
+
+    private void startCooldown(UUID uuid, Kind kind) {
+        int cooldownSeconds = settings.cooldownSeconds(kind);
+        if (cooldownSeconds <= 0) return;
+        long now = System.currentTimeMillis();
+        long expiresAt = now + cooldownSeconds * 1000L;
+        trackCooldown(new CooldownKey(uuid, kind), expiresAt, now);
+        databaseManager.saveCooldownAsync(new Cooldown(uuid, kind.id, expiresAt));
+    }
+
+    private void trackCooldown(CooldownKey key, long expiresAt, long now) {
+        cooldowns.put(key, expiresAt);
+        long ticks = (expiresAt - now + 49) / 50;
+        // Only forget the entry if it wasn't replaced by a newer cooldown in the meantime.
+        wheel.schedule(ticks, () -> cooldowns.remove(key, expiresAt));
+    }
+
+    private void tick() {
+        wheel.advance();
+        admission.tick();
+        if (settings.cancelOnMove() && !warmups.isEmpty() && wheel.getTick() % settings.moveCheckIntervalTicks() == 0) {
+            checkMovement();
+        }
+    }
+
+    private void checkMovement() {
+        Iterator<Warmup> iterator = warmups.values().iterator();
+        while (iterator.hasNext()) {
+            Warmup warmup = iterator.next();
+            Player player = warmup.player;
+            if (!player.isOnline()) {
+                warmup.timeout.cancel();
+                iterator.remove();
+                continue;
+            }
+
+            // On Folia this reads the position of a player ticked by another thread; a slightly stale position
+            // is fine for a half-block tolerance.
+            player.getLocation(scratch);
+            double dx = scratch.getX() - warmup.x;
+            double dy = scratch.getY() - warmup.y;
+            double dz = scratch.getZ() - warmup.z;
+            if (scratch.getWorld() != warmup.world || dx * dx + dy * dy + dz * dz > MOVE_TOLERANCE_SQUARED) {
+                warmup.timeout.cancel();
+                iterator.remove();
+                player.sendMessage(Component.text("Teleport cancelled because you moved.").color(NamedTextColor.RED));
+            }
+        }
+    }
+}
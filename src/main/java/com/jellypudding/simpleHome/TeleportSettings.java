@@ -0,0 +1,46 @@
+package com.jellypudding.simpleHome;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.logging.Logger;
+
+/**
+ * Teleport warmup, cooldown and admission settings read from config.yml.
+ */
+public record TeleportSettings(int homeWarmupSeconds,
+                               int homeCooldownSeconds,
+                               int visitWarmupSeconds,
+                               int visitCooldownSeconds,
+                               boolean cancelOnMove,
+                               int moveCheckIntervalTicks,
+                               boolean admissionEnabled,
+                               int admissionTeleportsPerSecond,
+                               int admissionBurst,
+                               int admissionMaxQueue,
+                               int admissionGroupRegionChunks,
+                               int admissionPositionUpdateSeconds) {
+
+    public static TeleportSettings load(FileConfiguration config, Logger logger) {
+        return new TeleportSettings(
+                DatabaseSettings.atLeast(config, logger, "teleport.home.warmup-seconds", 0, 0),
+                DatabaseSettings.atLeast(config, logger, "teleport.home.cooldown-seconds", 0, 0),
+                DatabaseSettings.atLeast(config, logger, "teleport.visit.warmup-seconds", 0, 0),
+                DatabaseSettings.atLeast(config, logger, "teleport.visit.cooldown-seconds", 0, 0),
+                config.getBoolean("teleport.cancel-on-move", true),
+                DatabaseSettings.atLeast(config, logger, "teleport.move-check-interval-ticks", 5, 1),
+                config.getBoolean("teleport.admission.enabled", true),
+                DatabaseSettings.atLeast(config, logger, "teleport.admission.teleports-per-second", 20, 1),
+                DatabaseSettings.atLeast(config, logger, "teleport.admission.burst", 10, 1),
+                DatabaseSettings.atLeast(config, logger, "teleport.admission.max-queue", 500, 1),
+                DatabaseSettings.atLeast(config, logger, "teleport.admission.group-region-chunks", 4, 0),
+                DatabaseSettings.atLeast(config, logger, "teleport.admission.position-update-seconds", 5, 0));
+    }
+
+    public int warmupSeconds(TeleportManager.Kind kind) {
+        return kind == TeleportManager.Kind.HOME ? homeWarmupSeconds : visitWarmupSeconds;
+    }
+
+    public int cooldownSeconds(TeleportManager.Kind kind) {
+        return kind == TeleportManager.Kind.HOME ? homeCooldownSeconds : visitCooldownSeconds;
+    }
+}
@@ -0,0 +1,130 @@
+package com.jellypudding.simpleHome;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hashed timing wheel driven by one call to {@link #advance()} per tick.
+ * Each slot holds an intrusive doubly-linked list of timeouts, so scheduling and cancelling are O(1)
+ * and a tick only touches the timeouts in its own slot. Delays longer than one revolution wait a number of rounds.
+ * Not thread-safe: schedule, cancel and advance must all happen on the same thread.
+ */
+public class TimingWheel {
+
+    private final Timeout[] heads;
+    private final int mask;
+    private long tick;
+    private int size;
+    private final List<Timeout> expired = new ArrayList<>();
+
+    /**
+     * @param slots number of slots, rounded up to a power of two. One revolution lasts this many ticks.
+     */
+    public TimingWheel(int slots) {
+        int length = Integer.highestOneBit(Math.max(2, slots) - 1) << 1;
+        this.heads = new Timeout[length];
+        this.mask = length - 1;
+    }
+
+    public final class Timeout {
+        private final Runnable task;
+        private final int slot;
+        private long rounds;
+        private Timeout previous;
+        private Timeout next;
+        private boolean linked = true;
+        private boolean pending = true;
+
+        private Timeout(Runnable task, int slot, long rounds) {
+            this.task = task;
+            this.slot = slot;
+            this.rounds = rounds;
+        }
+
+        /**
+         * Cancels the timeout. Returns false if it already ran or was cancelled.
+         */
+        public boolean cancel() {
+            if (!pending) return false;
+            pending = false;
+            if (linked) {
+                unlink(this);
+            }
+            return true;
+        }
+
+        public boolean isPending() {
+            return pending;
+        }
+    }
+
+    /**
+     * Runs the task after the given number of ticks (at least 1).
+     */
+    public Timeout schedule(long delayTicks, Runnable task) {
+        long delay = Math.max(1, delayTicks);
+        int slot = (int) ((tick + delay) & mask);
+        Timeout timeout = new Timeout(task, slot, (delay - 1) / heads.length);
+
+        Timeout head = heads[slot];
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        heads[slot] = timeout;
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves the wheel forward one tick and runs the timeouts that are due.
+     */
+    public void advance() {
+        tick++;
+        Timeout timeout = heads[(int) (tick & mask)];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds == 0) {
+                unlink(timeout);
+                expired.add(timeout);
+            } else {
+                timeout.rounds--;
+            }
+            timeout = next;
+        }
+
+        // Run after unlinking so tasks can freely schedule or cancel other timeouts.
+        for (int i = 0; i < expired.size(); i++) {
+            Timeout due = expired.get(i);
+            // An earlier task may have cancelled it.
+            if (due.pending) {
+                due.pending = false;
+                due.task.run();
+            }
+        }
+        expired.clear();
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            heads[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.linked = false;
+        size--;
+    }
+}
@@ -0,0 +1,25 @@
+package com.jellypudding.simpleHome;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Converts UUIDs to and from the 16-byte BLOBs stored in the database.
+ */
+public final class Uuids {
+
+    private Uuids() {
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
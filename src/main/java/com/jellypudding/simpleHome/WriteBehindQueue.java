@@ -0,0 +1,313 @@
+package com.jellypudding.simpleHome;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Buffers home writes and commits them in a single transaction per flush (group commit).
+ * Consecutive writes of the same kind to the same (uuid, home_name) are coalesced so only the last one reaches the
+ * database; a set and a delete, or an enforced and an unenforced set, are both kept and applied in order.
+ * A flush is triggered when the batch reaches its size limit, on a timer, or before a read of a player with pending writes.
+ */
+public class WriteBehindQueue {
+
+    private final Logger logger;
+    private final DatabaseManager databaseManager;
+    private final int maxBatchSize;
+    private final long flushIntervalTicks;
+    private final long statsLogIntervalTicks;
+
+    private final Object lock = new Object();
+    // Writes in commit order, and the last queued write of each key.
+    private List<PendingWrite> pending = new ArrayList<>();
+    private Map<Key, PendingWrite> latest = new HashMap<>();
+    private final Map<UUID, Integer> pendingPerPlayer = new HashMap<>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private ScheduledTask flushTask;
+    private ScheduledTask statsTask;
+
+    // Flush statistics.
+    private final long statsSince = System.nanoTime();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder rowsFlushed = new LongAdder();
+    private final LongAdder writesCoalesced = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private volatile long maxFlushNanos;
+
+    public WriteBehindQueue(Logger logger, DatabaseManager databaseManager, boolean enabled, int maxBatchSize,
+                            long flushIntervalTicks, int statsLogIntervalSeconds) {
+        this.logger = logger;
+        this.databaseManager = databaseManager;
+        // When write-behind is disabled every write is flushed on its own, as before.
+        this.maxBatchSize = enabled ? Math.max(1, maxBatchSize) : 1;
+        this.flushIntervalTicks = enabled ? Math.max(1, flushIntervalTicks) : 0;
+        this.statsLogIntervalTicks = Math.max(0, statsLogIntervalSeconds) * 20L;
+    }
+
+    public void start(Plugin plugin) {
+        if (flushIntervalTicks > 0) {
+            flushTask = Schedulers.runAsyncTimer(plugin, this::requestFlush, flushIntervalTicks, flushIntervalTicks);
+        }
+        if (statsLogIntervalTicks > 0) {
+            statsTask = Schedulers.runAsyncTimer(plugin,
+                    () -> logger.info(describeStats()), statsLogIntervalTicks, statsLogIntervalTicks);
+        }
+    }
+
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        if (statsTask != null) {
+            statsTask.cancel();
+            statsTask = null;
+        }
+    }
+
+    // --- Enqueueing ---
+
+    /**
+     * Queues a home upsert. With enforceLimit the player's home limit is checked in the same transaction
+     * as the upsert, so concurrent sets can't exceed it.
+     */
+    public CompletableFuture<HomeWriteResult> enqueueSet(UUID uuid, Home home, boolean enforceLimit) {
+        return enqueue(new PendingWrite(new Key(uuid, home.name()), home, enforceLimit));
+    }
+
+    public CompletableFuture<HomeWriteResult> enqueueDelete(UUID uuid, String homeName) {
+        return enqueue(new PendingWrite(new Key(uuid, homeName.toLowerCase()), null, false));
+    }
+
+    private CompletableFuture<HomeWriteResult> enqueue(PendingWrite write) {
+        int size;
+        synchronized (lock) {
+            PendingWrite previous = latest.put(write.key, write);
+            if (previous != null && previous.canBeReplacedBy(write)) {
+                // The earlier write is replaced in its place but still counts as applied once this one commits.
+                write.index = previous.index;
+                pending.set(write.index, write);
+                write.superseded.addAll(previous.superseded);
+                write.superseded.add(previous);
+                writesCoalesced.increment();
+            } else {
+                write.index = pending.size();
+                pending.add(write);
+                pendingPerPlayer.merge(write.key.uuid(), 1, Integer::sum);
+            }
+            size = pending.size();
+        }
+        if (size >= maxBatchSize) {
+            requestFlush();
+        }
+        return write.future;
+    }
+
+    // --- Flushing ---
+
+    /**
+     * Schedules a flush on the database executor unless one is already queued.
+     */
+    public void requestFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            databaseManager.supplyAsync(() -> {
+                flushScheduled.set(false);
+                flush();
+                return true;
+            }, false).thenAccept(ran -> {
+                // The executor rejected the flush; let the next trigger try again.
+                if (!ran) flushScheduled.set(false);
+            });
+        }
+    }
+
+    /**
+     * Commits the player's queued writes, and only those, on the calling thread so that a following read sees them.
+     * Other players' writes stay queued for the next batch.
+     */
+    public void flushIfPending(UUID uuid) {
+        synchronized (flushLock) {
+            List<PendingWrite> batch = new ArrayList<>();
+            synchronized (lock) {
+                if (pendingPerPlayer.remove(uuid) == null) return;
+                List<PendingWrite> remaining = new ArrayList<>(pending.size());
+                for (PendingWrite write : pending) {
+                    if (write.uuid().equals(uuid)) {
+                        batch.add(write);
+                        latest.remove(write.key, write);
+                    } else {
+                        write.index = remaining.size();
+                        remaining.add(write);
+                    }
+                }
+                pending = remaining;
+            }
+            commit(batch);
+        }
+    }
+
+    /**
+     * Commits every queued write on the calling thread.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            while (true) {
+                List<PendingWrite> batch;
+                synchronized (lock) {
+                    if (pending.isEmpty()) return;
+                    batch = pending;
+                    pending = new ArrayList<>();
+                    latest = new HashMap<>();
+                    pendingPerPlayer.clear();
+                }
+                commit(batch);
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        long start = System.nanoTime();
+        HomeWriteResult[] results;
+        try {
+            results = databaseManager.applyHomeWrites(batch);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Could not flush " + batch.size() + " home writes: " + e.getMessage(), e);
+            failedFlushes.increment();
+            for (PendingWrite write : batch) {
+                write.complete(HomeWriteResult.ERROR);
+            }
+            return;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        flushCount.increment();
+        rowsFlushed.add(batch.size());
+        totalFlushNanos.add(elapsed);
+        if (elapsed > maxFlushNanos) {
+            maxFlushNanos = elapsed;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(results[i]);
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    // --- Statistics ---
+
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    public long getRowsFlushed() {
+        return rowsFlushed.sum();
+    }
+
+    public long getWritesCoalesced() {
+        return writesCoalesced.sum();
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes.sum();
+    }
+
+    public double getAverageFlushMillis() {
+        long flushes = flushCount.sum();
+        return flushes == 0 ? 0 : totalFlushNanos.sum() / (flushes * 1_000_000.0);
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushNanos / 1_000_000.0;
+    }
+
+    public String describeStats() {
+        double seconds = Math.max(1, (System.nanoTime() - statsSince) / 1_000_000_000.0);
+        long flushes = getFlushCount();
+        long rows = getRowsFlushed();
+        long writes = rows + getWritesCoalesced();
+        return String.format("Write-behind: %d flushes (%.3f/s) committed %d rows for %d writes (%.3f writes/s), %d coalesced, %d failed, avg %.2f ms, max %.2f ms, %d pending",
+                flushes, flushes / seconds, rows, writes, writes / seconds, getWritesCoalesced(), getFailedFlushes(),
+                getAverageFlushMillis(), getMaxFlushMillis(), getPendingCount());
+    }
+
+    record Key(UUID uuid, String homeName) {}
+
+    static final class PendingWrite {
+        final Key key;
+        // Null for a delete.
+        final Home home;
+        final boolean enforceLimit;
+        final CompletableFuture<HomeWriteResult> future = new CompletableFuture<>();
+        final List<PendingWrite> superseded = new ArrayList<>();
+        // Position in the pending list.
+        int index;
+
+        PendingWrite(Key key, Home home, boolean enforceLimit) {
+            this.key = key;
+            this.home = home;
+            this.enforceLimit = enforceLimit;
+        }
+
+        UUID uuid() {
+            return key.uuid();
+        }
+
+        String homeName() {
+            return key.homeName();
+        }
+
+        Home home() {
+            return home;
+        }
+
+        boolean enforceLimit() {
+            return enforceLimit;
+        }
+
+        /**
+         * Only writes with the same outcome rules coalesce: two deletes, or two sets with the same enforceLimit.
+         */
+        boolean canBeReplacedBy(PendingWrite later) {
+            return (home == null) == (later.home == null) && enforceLimit == later.enforceLimit;
+        }
+
+        // Superseded writes complete first, in the order they were queued, so callers that update the cache when
+        // their future completes apply the writes in the same order as the database. The first write of the group
+        // gets the committed outcome; the ones after it get what repeating that write would have returned.
+        private void complete(HomeWriteResult result) {
+            boolean first = true;
+            for (PendingWrite earlier : superseded) {
+                earlier.future.complete(first ? result : repeated(result));
+                first = false;
+            }
+            future.complete(first ? result : repeated(result));
+        }
+
+        private static HomeWriteResult repeated(HomeWriteResult result) {
+            return switch (result) {
+                case CREATED -> HomeWriteResult.UPDATED;
+                case DELETED -> HomeWriteResult.NOT_FOUND;
+                default -> result;
+            };
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.jellypudding.simpleHome;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the shared SQL queries against an in-memory H2 database in MySQL mode, through the same pool as a real server.
+ */
+class JdbcHomeStoreTest {
+
+    private static final int MAX_HOME_LIMIT = 10;
+
+    private JdbcHomeStore store;
+
+    @BeforeEach
+    void open() throws SQLException {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        StorageSettings settings = new StorageSettings("mysql", SqlDialect.MYSQL, url, null, "sa", "",
+                4, 0, 5000, 600000, 1800000);
+        store = JdbcHomeStore.open(Logger.getLogger("SimpleHomeTest"), settings);
+    }
+
+    @AfterEach
+    void close() {
+        store.close();
+    }
+
+    @Test
+    void upsertCreatesThenUpdatesHome() throws SQLException {
+        UUID player = UUID.randomUUID();
+        Home first = new Home("base", "world", 1, 64, 2, 90, 0);
+        Home moved = new Home("base", "world_nether", 10, 70, 20, 180, 45);
+
+        assertArrayEquals(new HomeWriteResult[]{HomeWriteResult.CREATED}, apply(set(player, first, false)));
+        assertTrue(store.recordHomeUse(player, "base", 1234));
+        assertArrayEquals(new HomeWriteResult[]{HomeWriteResult.UPDATED}, apply(set(player, moved, false)));
+
+        assertEquals(moved, store.getHome(player, "base"));
+        assertEquals(1, store.getHomeCount(player));
+        // The upsert keeps the usage columns of the existing row.
+        assertEquals(1, store.getHomeUsage(player).get("base").count());
+    }
+
+    @Test
+    void deleteReportsWhetherHomeExisted() throws SQLException {
+        UUID player = UUID.randomUUID();
+        apply(set(player, new Home("base", "world", 0, 64, 0, 0, 0), false));
+
+        assertArrayEquals(new HomeWriteResult[]{HomeWriteResult.DELETED, HomeWriteResult.NOT_FOUND},
+                apply(delete(player, "base"), delete(player, "base")));
+        assertNull(store.getHome(player, "base"));
+    }
+
+    @Test
+    void quotaSeesEarlierWritesInTheBatch() throws SQLException {
+        UUID player = UUID.randomUUID();
+        store.setHomeLimit(player, 2);
+
+        HomeWriteResult[] results = apply(
+                set(player, new Home("a", "world", 0, 64, 0, 0, 0), true),
+                set(player, new Home("b", "world", 0, 64, 0, 0, 0), true),
+                set(player, new Home("c", "world", 0, 64, 0, 0, 0), true),
+                // Replacing an existing home never counts against the limit.
+                set(player, new Home("a", "world", 5, 64, 5, 0, 0), true));
+
+        assertArrayEquals(new HomeWriteResult[]{HomeWriteResult.CREATED, HomeWriteResult.CREATED,
+                HomeWriteResult.LIMIT_REACHED, HomeWriteResult.UPDATED}, results);
+        assertEquals(List.of("a", "b"), store.getHomes(player));
+    }
+
+    @Test
+    void quotaUsesDefaultLimitAndCapsStoredLimit() throws SQLException {
+        UUID newcomer = UUID.randomUUID();
+        UUID veteran = UUID.randomUUID();
+        store.setHomeLimit(veteran, MAX_HOME_LIMIT + 5);
+
+        List<WriteBehindQueue.PendingWrite> writes = new ArrayList<>();
+        writes.add(set(newcomer, new Home("a", "world", 0, 64, 0, 0, 0), true));
+        writes.add(set(newcomer, new Home("b", "world", 0, 64, 0, 0, 0), true));
+        for (int i = 0; i <= MAX_HOME_LIMIT; i++) {
+            writes.add(set(veteran, new Home("home" + i, "world", i, 64, i, 0, 0), true));
+        }
+        HomeWriteResult[] results = store.applyHomeWrites(writes, MAX_HOME_LIMIT);
+
+        assertEquals(HomeWriteResult.CREATED, results[0]);
+        assertEquals(HomeWriteResult.LIMIT_REACHED, results[1]);
+        assertEquals(HomeWriteResult.LIMIT_REACHED, results[results.length - 1]);
+        assertEquals(MAX_HOME_LIMIT, store.getHomeCount(veteran));
+        // Locking the limit row adds it with the default limit.
+        assertEquals(1, store.getHomeLimit(newcomer));
+    }
+
+    @Test
+    void concurrentLimitCheckedWritesDoNotExceedLimit() throws Exception {
+        UUID player = UUID.randomUUID();
+        int writers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<HomeWriteResult[]>> futures = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                Home home = new Home("home" + i, "world", i, 64, i, 0, 0);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return apply(set(player, home, true));
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            for (Future<HomeWriteResult[]> future : futures) {
+                if (future.get()[0] == HomeWriteResult.CREATED) created++;
+            }
+            assertEquals(1, created);
+            assertEquals(1, store.getHomeCount(player));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void bulkLookupsSpanSeveralChunks() throws SQLException {
+        // More than two chunks of bound UUIDs, with a short last chunk.
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            players.add(UUID.randomUUID());
+        }
+        List<WriteBehindQueue.PendingWrite> writes = new ArrayList<>();
+        for (int i = 0; i < players.size(); i += 3) {
+            store.setHomeLimit(players.get(i), 1 + i % 5);
+            for (int j = 0; j <= i % 4; j++) {
+                writes.add(set(players.get(i), new Home("home" + j, "world", j, 64, j, 0, 0), false));
+            }
+        }
+        store.applyHomeWrites(writes, MAX_HOME_LIMIT);
+
+        Map<UUID, Integer> limits = store.getHomeLimits(players);
+        Map<UUID, Integer> counts = store.getHomeCounts(players);
+        assertEquals(players.size(), limits.size());
+        assertEquals(players.size(), counts.size());
+        for (int i = 0; i < players.size(); i++) {
+            UUID player = players.get(i);
+            assertEquals(i % 3 == 0 ? 1 + i % 5 : 1, limits.get(player), "limit of player " + i);
+            assertEquals(i % 3 == 0 ? 1 + i % 4 : 0, counts.get(player), "home count of player " + i);
+        }
+    }
+
+    private HomeWriteResult[] apply(WriteBehindQueue.PendingWrite... writes) throws SQLException {
+        return store.applyHomeWrites(List.of(writes), MAX_HOME_LIMIT);
+    }
+
+    private static WriteBehindQueue.PendingWrite set(UUID player, Home home, boolean enforceLimit) {
+        return new WriteBehindQueue.PendingWrite(new WriteBehindQueue.Key(player, home.name()), home, enforceLimit);
+    }
+
+    private static WriteBehindQueue.PendingWrite delete(UUID player, String homeName) {
+        return new WriteBehindQueue.PendingWrite(new WriteBehindQueue.Key(player, homeName), null, false);
+    }
+}